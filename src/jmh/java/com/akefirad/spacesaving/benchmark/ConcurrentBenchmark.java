@@ -0,0 +1,51 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.summary.ConcurrentStreamSummary;
+import org.openjdk.jmh.annotations.*;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of adding elements to the concurrent summary, from all the threads.
+ * Run it with different number of threads (e.g. -t 1, -t 2, -t 4) to see the scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBenchmark {
+	private static final int KEYS = 1 << 20;
+	private static final int BATCH = 1024;
+
+	@Param({"1000"})
+	private int size;
+
+	private ConcurrentStreamSummary<Long> summary;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		summary = new ConcurrentStreamSummary<>(size);
+	}
+
+	@State(Scope.Thread)
+	public static class Producer {
+		private Long[] keys;
+		private int index;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			keys = Keys.boxed(Keys.generate("zipf-1.0", KEYS, Thread.currentThread().getId()));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void add(Producer producer) {
+		int index = producer.index;
+		for (int i = 0; i < BATCH; i++)
+			summary.add(producer.keys[index++ & (KEYS - 1)]);
+		producer.index = index;
+	}
+}
@@ -0,0 +1,130 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.ingest.FanOutIngestion;
+import com.akefirad.spacesaving.ingest.IngestionPipeline;
+import com.akefirad.spacesaving.ingest.MappedFileIngestion;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.stream.CharacterStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.CharacterStreamSummary;
+import com.akefirad.spacesaving.summary.DictionaryStreamSummary;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Time of summarizing the bundled text end to end (tokenizing and counting).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+	@Param({"100", "10000"})
+	private int size;
+
+	private byte[] text;
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		text = Texts.load(Texts.LONG_TEXT);
+		file = Files.createTempFile("spacesaving", ".txt");
+		Files.write(file, text);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public StreamSummary<String> simple() throws IOException {
+		StreamSummary<String> summary = new SimpleStreamSummary<>(size);
+		try (StringStream stream = new StringStream(new InputStreamReader(new ByteArrayInputStream(text), UTF_8))) {
+			String token;
+			while ((token = stream.next()) != null)
+				summary.add(token);
+		}
+		return summary;
+	}
+
+	@Benchmark
+	public StreamSummary<String> linked() throws IOException {
+		StreamSummary<String> summary = new LinkedStreamSummary<>(size);
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			while (stream.advance())
+				summary.addView(stream);
+		}
+		return summary;
+	}
+
+	@Benchmark
+	public StreamSummary<String> dictionary() throws IOException {
+		DictionaryStreamSummary summary = new DictionaryStreamSummary(size);
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			while (stream.advance())
+				summary.add(stream.array(), stream.offset(), stream.length());
+		}
+		return summary;
+	}
+
+	@Benchmark
+	public StreamSummary<String> mapped() throws IOException {
+		// Small chunks, so the (small) text is summarized in parallel:
+		return new MappedFileIngestion(size, 64 * 1024, ForkJoinPool.commonPool()).summarize(file);
+	}
+
+	@Benchmark
+	public StreamSummary<String> pipeline() throws IOException {
+		return new IngestionPipeline(size).summarize(new ByteArrayInputStream(text));
+	}
+
+	@Benchmark
+	public StreamSummary<String> separatePasses() throws IOException {
+		// Words, characters and bigrams, each one in its own pass:
+		StreamSummary<String> words = linked();
+		CharacterStreamSummary characters = new CharacterStreamSummary(size);
+		try (CharacterStream stream = new CharacterStream(new InputStreamReader(new ByteArrayInputStream(text), UTF_8))) {
+			char[] chars = new char[8192];
+			int read;
+			while ((read = stream.read(chars, 0, chars.length)) != -1)
+				characters.add(chars, 0, read);
+		}
+		StreamSummary<String> bigrams = new LinkedStreamSummary<>(size);
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			String previous = null;
+			while (stream.advance()) {
+				String token = stream.materialize();
+				if (previous != null)
+					bigrams.add(previous + " " + token);
+				previous = token;
+			}
+		}
+		return words;
+	}
+
+	@Benchmark
+	public StreamSummary<String> fanOut() throws IOException {
+		StreamSummary<String> words = new LinkedStreamSummary<>(size);
+		FanOutIngestion ingestion = new FanOutIngestion(words, new CharacterStreamSummary(size),
+				Collections.singletonMap(2, new LinkedStreamSummary<>(size)));
+		ingestion.summarize(new ByteArrayInputStream(text));
+		return words;
+	}
+}
@@ -0,0 +1,58 @@
+package com.akefirad.spacesaving.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates keys (elements) of the benchmarks with different distributions:
+ * uniform, zipf-s (Zipf with the exponent s) and churn (all distinct).
+ */
+final class Keys {
+	static final int DISTINCT = 1_000_000;
+
+	private Keys() {
+	}
+
+	static long[] generate(String distribution, int length, long seed) {
+		Random random = new Random(seed);
+		long[] keys = new long[length];
+		if (distribution.equals("uniform")) {
+			for (int idx = 0; idx < length; idx++)
+				keys[idx] = scramble(random.nextInt(DISTINCT));
+		} else if (distribution.startsWith("zipf-")) {
+			double[] cdf = zipf(Double.parseDouble(distribution.substring("zipf-".length())));
+			for (int idx = 0; idx < length; idx++) {
+				int rank = Arrays.binarySearch(cdf, random.nextDouble());
+				keys[idx] = scramble(rank < 0 ? -rank - 1 : rank);
+			}
+		} else if (distribution.equals("churn")) {
+			// Adversarial: every key is new, so every add evicts the minimum
+			for (int idx = 0; idx < length; idx++)
+				keys[idx] = scramble(idx);
+		} else {
+			throw new IllegalArgumentException("unknown distribution " + distribution + "!");
+		}
+		return keys;
+	}
+
+	static Long[] boxed(long[] keys) {
+		Long[] boxed = new Long[keys.length];
+		for (int idx = 0; idx < keys.length; idx++)
+			boxed[idx] = keys[idx];
+		return boxed;
+	}
+
+	private static double[] zipf(double exponent) {
+		double[] cdf = new double[DISTINCT];
+		double sum = 0;
+		for (int rank = 0; rank < DISTINCT; rank++)
+			cdf[rank] = sum += 1 / Math.pow(rank + 1, exponent);
+		for (int rank = 0; rank < DISTINCT; rank++)
+			cdf[rank] /= sum;
+		return cdf;
+	}
+
+	private static long scramble(long key) {
+		return key * 0x9E3779B97F4A7C15L;
+	}
+}
@@ -0,0 +1,64 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.summary.Estimate;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Latency of the queries, on summaries filled with a Zipfian stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+	@Param({"10000", "100000"})
+	private int size;
+
+	@Param({"simple", "linked", "long"})
+	private String implementation;
+
+	private Long[] keys;
+	private StreamSummary<Long> summary;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		keys = Keys.boxed(Keys.generate("zipf-1.0", 1 << 22, 42));
+		summary = Summaries.create(implementation, size);
+		for (Long key : keys)
+			summary.add(key);
+	}
+
+	@Benchmark
+	public Map<SummaryElement<Long>, Integer> sortedFrequencies() {
+		return summary.sortedFrequencies();
+	}
+
+	@Benchmark
+	public Map<SummaryElement<Long>, Integer> mostFrequents() {
+		return summary.mostFrequents();
+	}
+
+	@Benchmark
+	public Map<SummaryElement<Long>, Integer> topK() {
+		return summary.topK(10);
+	}
+
+	@Benchmark
+	public Map<SummaryElement<Long>, Integer> heavyHitters() {
+		return summary.heavyHitters(0.001);
+	}
+
+	@Benchmark
+	public Estimate estimate() {
+		return summary.estimate(keys[index++ & (keys.length - 1)]);
+	}
+}
@@ -0,0 +1,76 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of adding elements to many small summaries (one per tenant), in a
+ * registry against a map of summaries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+	private static final int KEYS = 1 << 20;
+	private static final int BATCH = 1024;
+
+	@Param({"10"})
+	private int size;
+
+	@Param({"100000"})
+	private int tenants;
+
+	private long[] keys;
+	private Long[] boxedKeys;
+	private int[] keyTenants;
+	private Integer[] boxedTenants;
+	private int index;
+
+	private SummaryRegistry<Integer, Long> registry;
+	private Map<Integer, StreamSummary<Long>> summaries;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		keys = Keys.generate("zipf-1.0", KEYS, 42);
+		boxedKeys = Keys.boxed(keys);
+		keyTenants = new int[KEYS];
+		boxedTenants = new Integer[tenants];
+		Random random = new Random(42);
+		for (int i = 0; i < KEYS; i++)
+			keyTenants[i] = random.nextInt(tenants);
+		for (int tenant = 0; tenant < tenants; tenant++)
+			boxedTenants[tenant] = tenant;
+		registry = new SummaryRegistry<>(size, SummaryRegistry.memory(size, tenants));
+		summaries = new HashMap<>();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void registry() {
+		int index = this.index;
+		for (int i = 0; i < BATCH; i++, index++)
+			registry.add(boxedTenants[keyTenants[index & (KEYS - 1)]], boxedKeys[index & (KEYS - 1)]);
+		this.index = index;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void map() {
+		int index = this.index;
+		for (int i = 0; i < BATCH; i++, index++)
+			summaries.computeIfAbsent(boxedTenants[keyTenants[index & (KEYS - 1)]], tenant -> new SimpleStreamSummary<>(size))
+					.add(boxedKeys[index & (KEYS - 1)]);
+		this.index = index;
+	}
+}
@@ -0,0 +1,79 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.summary.ConcurrentStreamSummary;
+import com.akefirad.spacesaving.summary.SnapshotStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Cost of adding elements (per element) and latency of taking a consistent view of all
+ * the counters, while a writer and a reader run at the same time (the "query" group),
+ * and the cost of adding without any reader (the baseline).
+ * The snapshot summary copies the counters optimistically, the concurrent summary
+ * (with a single stripe) locks the writer out while copying them.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+	private static final int KEYS = 1 << 20;
+	private static final int BATCH = 1024;
+
+	@Param({"1000"})
+	private int size;
+
+	@Param({"snapshot", "concurrent"})
+	private String implementation;
+
+	private Long[] keys;
+	private int index;
+	private StreamSummary<Long> summary;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		keys = Keys.boxed(Keys.generate("zipf-1.0", KEYS, 42));
+		summary = implementation.equals("snapshot")
+				? new SnapshotStreamSummary<>(size)
+				: new ConcurrentStreamSummary<>(size, 1);
+		for (int i = 0; i < KEYS; i++)
+			summary.add(keys[i]);
+	}
+
+	@Benchmark
+	@Group("query")
+	@GroupThreads(1)
+	@OperationsPerInvocation(BATCH)
+	public void write() {
+		add();
+	}
+
+	@Benchmark
+	@Group("query")
+	@GroupThreads(1)
+	public Map<SummaryElement<Long>, Integer> read() {
+		return summary.frequencies();
+	}
+
+	@Benchmark
+	@Group("baseline")
+	@GroupThreads(1)
+	@OperationsPerInvocation(BATCH)
+	public void writeAlone() {
+		add();
+	}
+
+	private void add() {
+		int index = this.index;
+		for (int i = 0; i < BATCH; i++)
+			summary.add(keys[index++ & (KEYS - 1)]);
+		this.index = index;
+	}
+}
@@ -0,0 +1,81 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.stream.CharacterStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.CharacterStreamSummary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Time of tokenizing the bundled text, with the different streams.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamBenchmark {
+	private byte[] text;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		text = Texts.load(Texts.LONG_TEXT);
+	}
+
+	@Benchmark
+	public void stringStream(Blackhole blackhole) throws IOException {
+		try (StringStream stream = new StringStream(new InputStreamReader(new ByteArrayInputStream(text), UTF_8))) {
+			String token;
+			while ((token = stream.next()) != null)
+				blackhole.consume(token);
+		}
+	}
+
+	@Benchmark
+	public void characterStream(Blackhole blackhole) throws IOException {
+		try (CharacterStream stream = new CharacterStream(new InputStreamReader(new ByteArrayInputStream(text), UTF_8))) {
+			Character character;
+			while ((character = stream.next()) != null)
+				blackhole.consume(character);
+		}
+	}
+
+	@Benchmark
+	public CharacterStreamSummary characterHistogram() throws IOException {
+		CharacterStreamSummary summary = new CharacterStreamSummary(1000);
+		char[] chars = new char[8192];
+		try (CharacterStream stream = new CharacterStream(new InputStreamReader(new ByteArrayInputStream(text), UTF_8))) {
+			int read;
+			while ((read = stream.read(chars, 0, chars.length)) >= 0)
+				summary.add(chars, 0, read);
+		}
+		return summary;
+	}
+
+	@Benchmark
+	public void byteTokenStream(Blackhole blackhole) throws IOException {
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			String token;
+			while ((token = stream.next()) != null)
+				blackhole.consume(token);
+		}
+	}
+
+	@Benchmark
+	public void byteTokenStreamViews(Blackhole blackhole) throws IOException {
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			while (stream.advance())
+				blackhole.consume(stream.keyHash());
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.checkpoint.KeyCodec;
+import com.akefirad.spacesaving.summary.ConcurrentStreamSummary;
+import com.akefirad.spacesaving.summary.CountMinSketch;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.LongStreamSummary;
+import com.akefirad.spacesaving.summary.OffHeapStreamSummary;
+import com.akefirad.spacesaving.summary.SampledStreamSummary;
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Creates the summaries of the benchmarks by their names.
+ */
+final class Summaries {
+	private Summaries() {
+	}
+
+	static StreamSummary<Long> create(String implementation, int size) {
+		switch (implementation) {
+			case "simple":
+				return new SimpleStreamSummary<>(size);
+			case "linked":
+				return new LinkedStreamSummary<>(size);
+			case "admission":
+				return new LinkedStreamSummary<>(size, new CountMinSketch(size * 8, 4));
+			case "sampled":
+				// At most 10M (admitted) elements per second:
+				return new SampledStreamSummary<>(new LinkedStreamSummary<>(size), 10_000_000);
+			case "long":
+				return new LongStreamSummary(size);
+			case "offheap":
+				return new OffHeapStreamSummary<>(size, KeyCodec.longs());
+			case "concurrent":
+				return new ConcurrentStreamSummary<>(size);
+			default:
+				throw new IllegalArgumentException("unknown implementation " + implementation + "!");
+		}
+	}
+
+	/**
+	 * Releases the (native) resources of the given summary, if any.
+	 */
+	static void close(StreamSummary<?> summary) throws IOException {
+		if (summary instanceof Closeable)
+			((Closeable) summary).close();
+	}
+}
@@ -0,0 +1,64 @@
+package com.akefirad.spacesaving.benchmark;
+
+import com.akefirad.spacesaving.summary.LongStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of adding elements, for different summary sizes and key distributions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryBenchmark {
+	private static final int KEYS = 1 << 22;
+	private static final int BATCH = 1024;
+
+	@Param({"1000", "100000"})
+	private int size;
+
+	@Param({"uniform", "zipf-0.8", "zipf-1.0", "zipf-1.2", "churn"})
+	private String distribution;
+
+	@Param({"simple", "linked", "admission", "sampled", "long", "offheap"})
+	private String implementation;
+
+	private long[] keys;
+	private Long[] boxedKeys;
+	private StreamSummary<Long> summary;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		keys = Keys.generate(distribution, KEYS, 42);
+		boxedKeys = Keys.boxed(keys);
+		summary = Summaries.create(implementation, size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Summaries.close(summary);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void add() {
+		int index = this.index;
+		if (summary instanceof LongStreamSummary) {
+			LongStreamSummary primitive = (LongStreamSummary) summary;
+			for (int i = 0; i < BATCH; i++)
+				primitive.add(keys[index++ & (KEYS - 1)]);
+		} else {
+			for (int i = 0; i < BATCH; i++)
+				summary.add(boxedKeys[index++ & (KEYS - 1)]);
+		}
+		this.index = index;
+	}
+}
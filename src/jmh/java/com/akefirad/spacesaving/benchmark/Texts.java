@@ -0,0 +1,31 @@
+package com.akefirad.spacesaving.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Loads the (bundled) texts of the benchmarks.
+ */
+final class Texts {
+	static final String LONG_TEXT = "crime-and-punishment.txt";
+
+	private Texts() {
+	}
+
+	static byte[] load(String name) throws IOException {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		try (InputStream input = ofNullable(ccl.getResourceAsStream(name))
+				.orElseThrow(NullPointerException::new)) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) > 0)
+				output.write(buffer, 0, read);
+			return output.toByteArray();
+		}
+	}
+}
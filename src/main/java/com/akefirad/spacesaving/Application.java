@@ -1,14 +1,24 @@
 package com.akefirad.spacesaving;
 
-import com.akefirad.spacesaving.stream.Stream;
-import com.akefirad.spacesaving.stream.StringStream;
-import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.ingest.IngestionPipeline;
+import com.akefirad.spacesaving.ingest.MappedFileIngestion;
+import com.akefirad.spacesaving.server.SummaryServer;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.stream.FrequencyTracker;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
 import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.akefirad.spacesaving.Asserts.assertValidSize;
 import static java.lang.String.valueOf;
@@ -16,11 +26,23 @@ import static org.apache.commons.lang3.StringUtils.leftPad;
 import static org.apache.commons.lang3.StringUtils.rightPad;
 import static org.slf4j.LoggerFactory.getLogger;
 
+/**
+ * Summarizes the standard input (or a file), and reports the most frequent elements.
+ * The standard input is read, tokenized and counted in stages (see {@link IngestionPipeline}).
+ * The real frequencies are not tracked, unless the system property {@value #TRACKING}
+ * is set to "exact" or to a sampling ratio (e.g. 0.01), to evaluate the accuracy.
+ * With "serve" as the first argument, it runs a {@link SummaryServer} until it's killed.
+ */
 public class Application {
 	private static final Logger logger = getLogger(Application.class);
 
+	static final String TRACKING = "spacesaving.tracking";
 
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].trim().equals("serve")) {
+			serve(args);
+			return;
+		}
 		if (args.length < 2)
 			throw new IllegalArgumentException("Stream length and element count are needed!");
 
@@ -32,48 +54,138 @@ public class Application {
 		assertValidSize(length, "stream length");
 		assertValidSize(size, "element count");
 
-		logger.info("Going to read {} elements and store {} of them...", length, size);
-
-		StreamSummary<String> summary = new SimpleStreamSummary<>(size + 1);
-		try (Stream<String> stream = new StringStream(new InputStreamReader(System.in))) {
-			String string;
-			while (length-- > 0 && (string = stream.next()) != null) {
-				if (logger.isDebugEnabled())
-					System.out.print(string + " ");
-				summary.add(string);
+		try {
+			StreamSummary<String> summary;
+			if (args.length > 2) {
+				Path file = Paths.get(args[2].trim());
+				logger.info("Going to read file {} and store {} elements...", file, size);
+				summary = new MappedFileIngestion(size + 1).summarize(file);
+				logger.info("Read {} elements and store {} of them.", summary.total(), size);
+			} else {
+				logger.info("Going to read {} elements and store {} of them...", length, size);
+				summary = summarize(length, size);
 			}
+			report(summary);
+		} catch (IOException e) {
+			logger.error(e.getMessage(), e);
+		}
+	}
 
-			logger.info("Read {} elements and store {} of them.", length, size);
-
-			// Find longest element;
-			Integer maxLength = summary.frequencies().keySet().stream()
-					.map(element -> element.get().length())
-					.max(Comparator.naturalOrder())
-					.orElseThrow(AssertionError::new);
-
-			// Find number of digits of the maximum error;
-			Integer maxError = summary.frequencies().keySet().stream()
-					.map(element -> valueOf(element.error()).length())
-					.max(Comparator.naturalOrder())
-					.orElseThrow(AssertionError::new);
-
-			// Find number of digits of the maximum count;
-			Integer maxCount = summary.frequencies().values().stream()
-					.max(Comparator.naturalOrder())
-					.orElseThrow(AssertionError::new)
-					.toString().length();
-
-			// Log most frequent elements
-			StringBuilder sb = new StringBuilder();
-			summary.frequencies().entrySet().stream()
-					.sorted((o1, o2) -> o2.getValue().compareTo(o1.getValue()))
-					.forEach(entry -> sb.append("\telement: ").append(rightPad(entry.getKey().get(), maxLength))
-							.append(" count: ").append(leftPad(entry.getValue().toString(), maxCount))
-							.append(", error: ").append(leftPad(valueOf(entry.getKey().error()), maxError))
-							.append("\n"));
-			logger.info("Most frequent elements are:\n{}", sb);
+	private static void serve(String[] args) {
+		if (args.length < 2)
+			throw new IllegalArgumentException("Element count is needed!");
+		int size = Integer.parseInt(args[1].trim());
+		int ingestPort = args.length > 2 ? Integer.parseInt(args[2].trim()) : 7070;
+		int queryPort = args.length > 3 ? Integer.parseInt(args[3].trim()) : 7071;
+		assertValidSize(size, "element count");
+
+		try {
+			SummaryServer server = new SummaryServer(size + 1,
+					new InetSocketAddress(ingestPort), new InetSocketAddress(queryPort), 100, TimeUnit.MILLISECONDS);
+			CountDownLatch stopped = new CountDownLatch(1);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					server.close();
+					if (server.snapshot().total() > 0)
+						report(server.snapshot());
+				} catch (IOException e) {
+					logger.error(e.getMessage(), e);
+				} finally {
+					stopped.countDown();
+				}
+			}));
+			stopped.await();
 		} catch (IOException e) {
 			logger.error(e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
+
+	private static StreamSummary<String> summarize(int length, int size) throws IOException {
+		StreamSummary<String> summary = new LinkedStreamSummary<>(size + 1);
+		FrequencyTracker<String> tracker = tracker(System.getProperty(TRACKING, "none"));
+		boolean tracking = tracker != FrequencyTracker.<String>none();
+		if (!tracking && !logger.isDebugEnabled()) {
+			// Read, tokenize and count in stages:
+			IngestionPipeline pipeline = new IngestionPipeline(size + 1);
+			pipeline.summarize(Channels.newChannel(System.in), summary, length);
+			logger.info("Read {} elements and store {} of them.", summary.total(), size);
+			pipeline.stages().forEach(stage -> logger.info("Stage {}", stage));
+			return summary;
+		}
+
+		try (ByteTokenStream stream = new ByteTokenStream(System.in)) {
+			while (length-- > 0 && stream.advance()) {
+				if (logger.isDebugEnabled())
+					System.out.print(stream.materialize() + " ");
+				if (tracking)
+					tracker.track(stream.materialize());
+				summary.addView(stream);
+			}
+
+			logger.info("Read {} elements and store {} of them.", summary.total(), size);
+		}
+		if (tracking)
+			evaluate(summary, tracker.frequencies());
+		return summary;
+	}
+
+	static FrequencyTracker<String> tracker(String tracking) {
+		switch (tracking.trim()) {
+			case "none":
+				return FrequencyTracker.none();
+			case "exact":
+				return FrequencyTracker.exact();
+			default:
+				return FrequencyTracker.sampled(Double.parseDouble(tracking));
+		}
+	}
+
+	private static void evaluate(StreamSummary<String> summary, Map<String, Integer> real) {
+		long monitored = 0;
+		long overestimation = 0;
+		long violations = 0;
+		for (Map.Entry<SummaryElement<String>, Integer> entry : summary.frequencies().entrySet()) {
+			Integer count = real.get(entry.getKey().get());
+			if (count == null)
+				continue;
+			monitored++;
+			overestimation = Math.max(overestimation, entry.getValue() - count);
+			if (entry.getValue() < count || entry.getValue() - entry.getKey().error() > count)
+				violations++;
+		}
+		logger.info("Tracked {} elements, {} of them are monitored, with the maximum overestimation {} ({} violations).",
+				real.size(), monitored, overestimation, violations);
+	}
+
+	private static void report(StreamSummary<String> summary) {
+		// Find longest element;
+		Integer maxLength = summary.frequencies().keySet().stream()
+				.map(element -> element.get().length())
+				.max(Comparator.naturalOrder())
+				.orElseThrow(AssertionError::new);
+
+		// Find number of digits of the maximum error;
+		Integer maxError = summary.frequencies().keySet().stream()
+				.map(element -> valueOf(element.error()).length())
+				.max(Comparator.naturalOrder())
+				.orElseThrow(AssertionError::new);
+
+		// Find number of digits of the maximum count;
+		Integer maxCount = summary.frequencies().values().stream()
+				.max(Comparator.naturalOrder())
+				.orElseThrow(AssertionError::new)
+				.toString().length();
+
+		// Log most frequent elements
+		StringBuilder sb = new StringBuilder();
+		summary.frequencies().entrySet().stream()
+				.sorted((o1, o2) -> o2.getValue().compareTo(o1.getValue()))
+				.forEach(entry -> sb.append("\telement: ").append(rightPad(entry.getKey().get(), maxLength))
+						.append(" count: ").append(leftPad(entry.getValue().toString(), maxCount))
+						.append(", error: ").append(leftPad(valueOf(entry.getKey().error()), maxError))
+						.append("\n"));
+		logger.info("Most frequent elements are:\n{}", sb);
+	}
 }
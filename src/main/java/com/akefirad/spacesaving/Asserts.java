@@ -13,4 +13,14 @@ public final class Asserts {
 		if (size <= 0)
 			throw new IllegalArgumentException(name + " is non-positive!");
 	}
+
+	public static void assertValidWeight(long weight, String name) {
+		if (weight <= 0)
+			throw new IllegalArgumentException(name + " is non-positive!");
+	}
+
+	public static void assertValidRatio(double ratio, String name) {
+		if (!(ratio > 0 && ratio <= 1))
+			throw new IllegalArgumentException(name + " is not in (0, 1]!");
+	}
 }
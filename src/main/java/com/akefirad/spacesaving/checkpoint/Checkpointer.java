@@ -0,0 +1,108 @@
+package com.akefirad.spacesaving.checkpoint;
+
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Periodically writes checkpoints (see {@link SummaryCheckpoint}) of a summary, in
+ * the background. Notes:
+ * 1. The snapshots are taken (and written) on a single daemon thread; the adding
+ * threads are only blocked as long as the supplier needs to take a consistent copy,
+ * e.g. {@link com.akefirad.spacesaving.summary.ConcurrentStreamSummary#snapshot()}.
+ * 2. A failed checkpoint is logged, and retried in the next period.
+ * 3. Closing it writes a last checkpoint.
+ *
+ * @param <T> type of stream token
+ */
+public class Checkpointer<T> implements Closeable {
+	private static final Logger logger = getLogger(Checkpointer.class);
+
+	private final Supplier<? extends StreamSummary<T>> snapshots;
+	private final KeyCodec<T> codec;
+	private final Path file;
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * @param snapshots supplier of consistent copies of the summary, called on the checkpoint thread
+	 * @param codec     codec of the keys
+	 * @param file      the checkpoint file
+	 * @param period    period of the checkpoints
+	 * @param unit      unit of the period
+	 */
+	public Checkpointer(Supplier<? extends StreamSummary<T>> snapshots, KeyCodec<T> codec,
+	                    Path file, long period, TimeUnit unit) {
+		assertNotNull(snapshots, "snapshots");
+		assertNotNull(codec, "codec");
+		assertNotNull(file, "file");
+		assertNotNull(unit, "unit");
+		if (period <= 0)
+			throw new IllegalArgumentException("period is not positive!");
+		this.snapshots = snapshots;
+		this.codec = codec;
+		this.file = file;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "checkpointer-" + file.getFileName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::tryCheckpoint, period, period, unit);
+	}
+
+	/**
+	 * Writes a checkpoint now (on the checkpoint thread), and waits for it.
+	 */
+	public void checkpoint() throws IOException {
+		try {
+			executor.submit(() -> {
+				doCheckpoint();
+				return null;
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("checkpoint is interrupted!", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("checkpoint is failed!", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (executor.isShutdown())
+			return;
+		try {
+			checkpoint();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void tryCheckpoint() {
+		try {
+			doCheckpoint();
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Failed to write checkpoint {}!", file, e);
+		}
+	}
+
+	private void doCheckpoint() throws IOException {
+		long start = System.nanoTime();
+		StreamSummary<T> snapshot = snapshots.get();
+		SummaryCheckpoint.write(snapshot, codec, file);
+		logger.debug("Checkpoint {} has been written in {} ms.", file,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+}
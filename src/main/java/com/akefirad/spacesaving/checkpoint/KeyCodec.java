@@ -0,0 +1,63 @@
+package com.akefirad.spacesaving.checkpoint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes (and decodes) the elements (keys) of a summary in to bytes, for checkpoints.
+ *
+ * @param <T> type of stream token
+ */
+public interface KeyCodec<T> {
+	/**
+	 * Returns the bytes of the given key
+	 *
+	 * @param key key (element)
+	 * @return encoded key
+	 */
+	byte[] encode(T key);
+
+	/**
+	 * Encodes the given key in to the buffer (from its position), if there is enough
+	 * space; otherwise the buffer is left as it is. A codec should override it, so a
+	 * key can be encoded in to a reused buffer, without allocating any array.
+	 *
+	 * @param key    key (element)
+	 * @param buffer buffer of the encoded key
+	 * @return length of the encoded key, more than the remaining of the buffer if it didn't fit
+	 */
+	default int encode(T key, ByteBuffer buffer) {
+		byte[] bytes = encode(key);
+		if (bytes.length <= buffer.remaining())
+			buffer.put(bytes);
+		return bytes.length;
+	}
+
+	/**
+	 * Returns the key of the given bytes, from the position to the limit of the buffer
+	 *
+	 * @param bytes encoded key, might be (a slice of) a mapped file
+	 * @return decoded key
+	 */
+	T decode(ByteBuffer bytes);
+
+	/**
+	 * Codec of string keys, in UTF-8
+	 */
+	static KeyCodec<String> strings() {
+		return KeyCodecs.STRING;
+	}
+
+	/**
+	 * Codec of long keys, in 8 bytes (big-endian)
+	 */
+	static KeyCodec<Long> longs() {
+		return KeyCodecs.LONG;
+	}
+
+	/**
+	 * Codec of byte array keys, as they are
+	 */
+	static KeyCodec<byte[]> bytes() {
+		return KeyCodecs.BYTES;
+	}
+}
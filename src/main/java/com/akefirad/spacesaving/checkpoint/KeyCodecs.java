@@ -0,0 +1,118 @@
+package com.akefirad.spacesaving.checkpoint;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The built-in key codecs (see {@link KeyCodec}).
+ */
+final class KeyCodecs {
+	static final KeyCodec<String> STRING = new KeyCodec<String>() {
+		@Override
+		public byte[] encode(String key) {
+			return key.getBytes(UTF_8);
+		}
+
+		@Override
+		public int encode(String key, ByteBuffer bytes) {
+			int length = utf8Length(key);
+			if (length > bytes.remaining())
+				return length;
+			for (int idx = 0; idx < key.length(); idx++) {
+				char c = key.charAt(idx);
+				if (c < 0x80) {
+					bytes.put((byte) c);
+				} else if (c < 0x800) {
+					bytes.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+				} else if (!Character.isSurrogate(c)) {
+					bytes.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+				} else if (isPair(key, idx)) {
+					int code = key.codePointAt(idx++);
+					bytes.put((byte) (0xF0 | code >> 18)).put((byte) (0x80 | code >> 12 & 0x3F))
+							.put((byte) (0x80 | code >> 6 & 0x3F)).put((byte) (0x80 | code & 0x3F));
+				} else {
+					bytes.put((byte) '?'); // As String.getBytes does for a malformed surrogate
+				}
+			}
+			return length;
+		}
+
+		@Override
+		public String decode(ByteBuffer bytes) {
+			return UTF_8.decode(bytes).toString();
+		}
+	};
+
+	static final KeyCodec<Long> LONG = new KeyCodec<Long>() {
+		@Override
+		public byte[] encode(Long key) {
+			return ByteBuffer.allocate(Long.BYTES).putLong(key).array();
+		}
+
+		@Override
+		public int encode(Long key, ByteBuffer bytes) {
+			if (Long.BYTES <= bytes.remaining())
+				bytes.putLong(key);
+			return Long.BYTES;
+		}
+
+		@Override
+		public Long decode(ByteBuffer bytes) {
+			if (bytes.remaining() != Long.BYTES)
+				throw new IllegalArgumentException("length of long key is not valid!");
+			return bytes.getLong();
+		}
+	};
+
+	static final KeyCodec<byte[]> BYTES = new KeyCodec<byte[]>() {
+		@Override
+		public byte[] encode(byte[] key) {
+			return key;
+		}
+
+		@Override
+		public int encode(byte[] key, ByteBuffer bytes) {
+			if (key.length <= bytes.remaining())
+				bytes.put(key);
+			return key.length;
+		}
+
+		@Override
+		public byte[] decode(ByteBuffer bytes) {
+			byte[] key = new byte[bytes.remaining()];
+			bytes.get(key);
+			return key;
+		}
+	};
+
+	private KeyCodecs() {
+	}
+
+	/**
+	 * Returns the length of the given string in UTF-8, as String.getBytes encodes it.
+	 */
+	private static int utf8Length(String key) {
+		int length = 0;
+		for (int idx = 0; idx < key.length(); idx++) {
+			char c = key.charAt(idx);
+			if (c < 0x80)
+				length += 1;
+			else if (c < 0x800)
+				length += 2;
+			else if (!Character.isSurrogate(c))
+				length += 3;
+			else if (isPair(key, idx)) {
+				length += 4;
+				idx++;
+			} else
+				length += 1;
+		}
+		return length;
+	}
+
+	private static boolean isPair(String key, int idx) {
+		return Character.isHighSurrogate(key.charAt(idx)) && idx + 1 < key.length() &&
+				Character.isLowSurrogate(key.charAt(idx + 1));
+	}
+}
@@ -0,0 +1,245 @@
+package com.akefirad.spacesaving.checkpoint;
+
+import com.akefirad.spacesaving.summary.Counters;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import com.akefirad.spacesaving.summary.SummaryLoader;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Writes (and reads) summaries to (and from) binary checkpoint files.
+ * Notes:
+ * 1. The file has a header (magic, version, capacity, number of counters, total and
+ * a CRC32 of the counters), followed by the counters (count, error, length of the key
+ * and the encoded key), sorted by their counts (descending).
+ * 2. Both writing and reading map the file in to memory, so the counters are copied
+ * in bulk, instead of going through a stream object by object.
+ * 3. The file is written to a temporary file first, and then (atomically) moved, so a
+ * crash while writing never leaves a broken checkpoint behind.
+ * 4. A read checkpoint is restored straight from the mapped file in to an empty summary of
+ * the same capacity (see {@link SummaryLoader}), the keys are decoded as the counters are
+ * inserted; any other summary merges the counters (see {@link StreamSummary#merge(StreamSummary)}).
+ */
+public final class SummaryCheckpoint {
+	private static final int MAGIC = 0x53534350; // SSCP
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 4;
+	private static final int COUNTER_SIZE = 4 + 4 + 4;
+
+	private SummaryCheckpoint() {
+	}
+
+	/**
+	 * Writes the given summary to the file (replacing it). The summary should not be
+	 * changed while it's written (e.g. pass a snapshot of a concurrent summary).
+	 *
+	 * @param summary summary to write
+	 * @param codec   codec of the keys
+	 * @param file    the checkpoint file
+	 */
+	public static <T> void write(StreamSummary<T> summary, KeyCodec<T> codec, Path file) throws IOException {
+		assertNotNull(summary, "summary");
+		assertNotNull(codec, "codec");
+		assertNotNull(file, "file");
+
+		Map<SummaryElement<T>, Integer> counters = summary.sortedFrequencies();
+		List<byte[]> keys = new ArrayList<>(counters.size());
+		long size = HEADER_SIZE;
+		for (SummaryElement<T> element : counters.keySet()) {
+			byte[] key = codec.encode(element.get());
+			keys.add(key);
+			size += COUNTER_SIZE + key.length;
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("summary is too big for a checkpoint!");
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			MappedByteBuffer buffer = channel.map(READ_WRITE, 0, size);
+			((Buffer) buffer).position(HEADER_SIZE);
+			Iterator<byte[]> key = keys.iterator();
+			counters.forEach((element, count) -> {
+				byte[] bytes = key.next();
+				buffer.putInt(count).putInt(element.error()).putInt(bytes.length).put(bytes);
+			});
+
+			buffer.putInt(0, MAGIC)
+					.putInt(4, VERSION)
+					.putInt(8, summary.capacity())
+					.putInt(12, counters.size())
+					.putLong(16, summary.total())
+					.putInt(24, crc(buffer));
+			buffer.force();
+		}
+		Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a checkpoint in to a new summary.
+	 *
+	 * @param file  the checkpoint file
+	 * @param codec codec of the keys
+	 * @return a new (linked) summary, with the capacity, counters and total of the checkpoint
+	 */
+	public static <T> StreamSummary<T> read(Path file, KeyCodec<T> codec) throws IOException {
+		Checkpoint<T> checkpoint = load(file, codec);
+		StreamSummary<T> summary = new LinkedStreamSummary<>(checkpoint.capacity);
+		checkpoint.restore(summary);
+		return summary;
+	}
+
+	/**
+	 * Reads a checkpoint in to the given (usually empty) summary, of the same capacity.
+	 *
+	 * @param file    the checkpoint file
+	 * @param codec   codec of the keys
+	 * @param summary summary to restore
+	 */
+	public static <T> void restore(Path file, KeyCodec<T> codec, StreamSummary<T> summary) throws IOException {
+		assertNotNull(summary, "summary");
+		load(file, codec).restore(summary);
+	}
+
+	private static <T> Checkpoint<T> load(Path file, KeyCodec<T> codec) throws IOException {
+		assertNotNull(file, "file");
+		assertNotNull(codec, "codec");
+		try (FileChannel channel = FileChannel.open(file, READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("checkpoint size is not valid!");
+			// The mapping stays valid after the channel is closed:
+			ByteBuffer buffer = channel.map(READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC)
+				throw new IOException("file is not a checkpoint!");
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException("checkpoint version is not supported!");
+			if (buffer.getInt(24) != crc(buffer))
+				throw new IOException("checkpoint is corrupted!");
+
+			int capacity = buffer.getInt(8);
+			int length = buffer.getInt(12);
+			long total = buffer.getLong(16);
+			if (capacity <= 0 || length < 0 || length > capacity || total < 0)
+				throw new IOException("checkpoint header is not valid!");
+
+			// Only the positions of the counters are kept, the keys are decoded while restoring:
+			int[] positions = new int[length];
+			Set<ByteBuffer> keys = new HashSet<>();
+			int position = HEADER_SIZE;
+			int previous = Integer.MAX_VALUE;
+			for (int idx = 0; idx < length; idx++) {
+				if (COUNTER_SIZE > buffer.limit() - position)
+					throw new IOException("checkpoint counter is not valid!");
+				int count = buffer.getInt(position);
+				int error = buffer.getInt(position + 4);
+				int keyLength = buffer.getInt(position + 8);
+				if (count <= 0 || count > previous || error < 0 || error > count ||
+						keyLength < 0 || keyLength > buffer.limit() - position - COUNTER_SIZE)
+					throw new IOException("checkpoint counter is not valid!");
+				if (!keys.add(key(buffer, position)))
+					throw new IOException("checkpoint counters are not valid!");
+				positions[idx] = position;
+				position += COUNTER_SIZE + keyLength;
+				previous = count;
+			}
+			if (position != buffer.limit())
+				throw new IOException("checkpoint counters are not valid!");
+			return new Checkpoint<>(capacity, total, buffer, positions, codec);
+		}
+	}
+
+	/**
+	 * Returns the (encoded) key of the counter at the given position, a slice of the buffer.
+	 */
+	private static ByteBuffer key(ByteBuffer buffer, int position) {
+		ByteBuffer key = buffer.duplicate();
+		((Buffer) key).position(position + COUNTER_SIZE);
+		((Buffer) key).limit(position + COUNTER_SIZE + buffer.getInt(position + 8));
+		return key.slice();
+	}
+
+	/**
+	 * CRC32 of the counters (everything after the header)
+	 */
+	private static int crc(ByteBuffer buffer) {
+		ByteBuffer counters = buffer.duplicate();
+		((Buffer) counters).position(HEADER_SIZE);
+		((Buffer) counters).limit(counters.capacity());
+		CRC32 crc = new CRC32();
+		crc.update(counters);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * The (validated) counters of a mapped checkpoint, in ascending order of their counts.
+	 */
+	private static final class Checkpoint<T> implements Counters<T> {
+		private final int capacity;
+		private final long total;
+		private final ByteBuffer buffer;
+		private final int[] positions;
+		private final KeyCodec<T> codec;
+
+		private Checkpoint(int capacity, long total, ByteBuffer buffer, int[] positions, KeyCodec<T> codec) {
+			this.capacity = capacity;
+			this.total = total;
+			this.buffer = buffer;
+			this.positions = positions;
+			this.codec = codec;
+		}
+
+		private void restore(StreamSummary<T> summary) throws IOException {
+			if (summary.capacity() != capacity)
+				throw new IllegalArgumentException("capacity of summaries are not the same!");
+			try {
+				SummaryLoader.load(summary, capacity, total, this);
+			} catch (RuntimeException e) {
+				throw new IOException("checkpoint is not valid!", e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return positions.length;
+		}
+
+		@Override
+		public T element(int idx) {
+			return codec.decode(key(buffer, position(idx)));
+		}
+
+		@Override
+		public int count(int idx) {
+			return buffer.getInt(position(idx));
+		}
+
+		@Override
+		public int error(int idx) {
+			return buffer.getInt(position(idx) + 4);
+		}
+
+		/**
+		 * The counters are written in descending order of their counts.
+		 */
+		private int position(int idx) {
+			return positions[positions.length - 1 - idx];
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.akefirad.spacesaving.ingest;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.CharacterStreamSummary;
+import com.akefirad.spacesaving.summary.KeyView;
+import com.akefirad.spacesaving.summary.StreamSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static java.lang.Character.isLetterOrDigit;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Summarizes the words, the characters and the word n-grams of an input in one pass.
+ * Notes:
+ * 1. The input is tokenized once (see {@link ByteTokenStream}), and each token is fed
+ * to all the summaries: the words as they are, the (letter or digit) characters of
+ * the (lowercased) words in bulk, and the n-grams of the last n words, joined by a
+ * space, e.g. "of the" for n = 2.
+ * 2. The bytes of the last words are kept in a ring, and each n-gram is a view (see
+ * {@link KeyView}) over the ring, with a rolling hash (the same as the hash of its
+ * String): the oldest word is subtracted, and the new one is appended. So an n-gram
+ * is only materialized (as a String) when its summary needs a new counter.
+ * 3. The n-grams go over the lines, the input is a single sequence of words.
+ */
+public class FanOutIngestion {
+	private static final int[] POWERS = new int[1024];
+
+	static {
+		POWERS[0] = 1;
+		for (int idx = 1; idx < POWERS.length; idx++)
+			POWERS[idx] = POWERS[idx - 1] * 31;
+	}
+
+	private final StreamSummary<String> words;
+	private final CharacterStreamSummary characters;
+	private final NGram[] ngrams;
+	private final Word[] ring;
+	private final char[] chars = new char[8192];
+	private int charsLength;
+	private int head;
+	private long count;
+
+	/**
+	 * @param words      summary of the words, or null
+	 * @param characters summary of the characters, or null
+	 * @param ngrams     summaries of the n-grams by n (at least two), possibly empty
+	 */
+	public FanOutIngestion(StreamSummary<String> words, CharacterStreamSummary characters,
+	                       Map<Integer, ? extends StreamSummary<String>> ngrams) {
+		assertNotNull(ngrams, "ngrams");
+		this.words = words;
+		this.characters = characters;
+		this.ngrams = new NGram[ngrams.size()];
+		int idx = 0;
+		int maxN = 0;
+		for (Map.Entry<Integer, ? extends StreamSummary<String>> entry : new TreeMap<>(ngrams).entrySet()) {
+			if (entry.getKey() < 2)
+				throw new IllegalArgumentException("n of n-grams is less than two!");
+			assertNotNull(entry.getValue(), "summary of " + entry.getKey() + "-grams");
+			this.ngrams[idx++] = new NGram(entry.getKey(), entry.getValue());
+			maxN = Math.max(maxN, entry.getKey());
+		}
+		// One more word, the one leaving the longest n-gram:
+		this.ring = new Word[maxN == 0 ? 0 : maxN + 1];
+		for (int slot = 0; slot < ring.length; slot++)
+			ring[slot] = new Word();
+	}
+
+	public long summarize(InputStream input) throws IOException {
+		assertNotNull(input, "input");
+		return summarize(Channels.newChannel(input));
+	}
+
+	/**
+	 * Summarizes the given channel (up to its end), in to all the summaries.
+	 *
+	 * @return number of the words
+	 */
+	public long summarize(ReadableByteChannel channel) throws IOException {
+		assertNotNull(channel, "channel");
+		long start = count;
+		ByteTokenStream stream = new ByteTokenStream(channel);
+		while (stream.advance()) {
+			count++;
+			if (words != null)
+				words.addView(stream);
+			if (characters == null && ngrams.length == 0)
+				continue;
+
+			byte[] bytes = stream.array();
+			int offset = stream.offset();
+			int length = stream.length();
+			boolean ascii = true;
+			for (int idx = offset; idx < offset + length && ascii; idx++)
+				ascii = bytes[idx] >= 0;
+			if (characters != null)
+				characters(stream, ascii);
+			if (ngrams.length > 0) {
+				head = head + 1 == ring.length ? 0 : head + 1;
+				ring[head].set(stream, ascii);
+				for (NGram ngram : ngrams)
+					ngram.next();
+			}
+		}
+		flushCharacters();
+		return count - start;
+	}
+
+	private void characters(ByteTokenStream stream, boolean ascii) {
+		if (ascii) {
+			byte[] bytes = stream.array();
+			for (int idx = stream.offset(); idx < stream.offset() + stream.length(); idx++)
+				addCharacter((char) bytes[idx]);
+		} else {
+			String word = stream.materialize();
+			for (int idx = 0; idx < word.length(); idx++)
+				addCharacter(word.charAt(idx));
+		}
+	}
+
+	private void addCharacter(char c) {
+		if (!isLetterOrDigit(c))
+			return;
+		if (charsLength == chars.length)
+			flushCharacters();
+		chars[charsLength++] = c;
+	}
+
+	private void flushCharacters() {
+		if (characters != null && charsLength > 0)
+			characters.add(chars, 0, charsLength);
+		charsLength = 0;
+	}
+
+	/**
+	 * Returns the given word (by its age, zero for the current word) of the ring.
+	 */
+	private Word word(int age) {
+		int slot = head - age;
+		return ring[slot < 0 ? slot + ring.length : slot];
+	}
+
+	private static int power(int exponent) {
+		if (exponent < POWERS.length)
+			return POWERS[exponent];
+		int power = POWERS[POWERS.length - 1];
+		for (int idx = POWERS.length - 1; idx < exponent; idx++)
+			power *= 31;
+		return power;
+	}
+
+	/**
+	 * A word of the ring, its bytes if it's ASCII, otherwise its String.
+	 */
+	private static final class Word {
+		private byte[] bytes = new byte[32];
+		private int length;
+		private String string;
+		private int hash;
+
+		private void set(ByteTokenStream stream, boolean ascii) {
+			if (ascii) {
+				if (bytes.length < stream.length())
+					bytes = Arrays.copyOf(bytes, Integer.highestOneBit(stream.length()) << 1);
+				System.arraycopy(stream.array(), stream.offset(), bytes, 0, stream.length());
+				length = stream.length();
+				string = null;
+				hash = stream.keyHash();
+			} else {
+				string = stream.materialize();
+				length = string.length();
+				hash = string.hashCode();
+			}
+		}
+
+		private char charAt(int idx) {
+			return string != null ? string.charAt(idx) : (char) bytes[idx];
+		}
+
+		private void appendTo(StringBuilder sb) {
+			if (string != null)
+				sb.append(string);
+			else
+				for (int idx = 0; idx < length; idx++)
+					sb.append((char) bytes[idx]);
+		}
+	}
+
+	/**
+	 * The current n-gram (of the last n words), as a view over the ring.
+	 */
+	private final class NGram implements KeyView<String> {
+		private final int n;
+		private final StreamSummary<String> summary;
+		private int hash;
+		private int length;
+
+		private NGram(int n, StreamSummary<String> summary) {
+			this.n = n;
+			this.summary = summary;
+		}
+
+		private void next() {
+			Word word = word(0);
+			if (count == 1) {
+				hash = word.hash;
+				length = word.length;
+				return;
+			}
+			if (count > n) {
+				// Subtract the leaving word, and the space after it:
+				Word leaving = word(n);
+				int rest = length - leaving.length - 1;
+				hash -= leaving.hash * power(rest + 1) + ' ' * power(rest);
+				length = rest;
+			}
+			// Append a space, and the new word:
+			hash = hash * power(word.length + 1) + ' ' * power(word.length) + word.hash;
+			length += word.length + 1;
+			if (count >= n)
+				summary.addView(this);
+		}
+
+		@Override
+		public int keyHash() {
+			return hash;
+		}
+
+		@Override
+		public boolean matches(String element) {
+			if (element.length() != length)
+				return false;
+			int position = 0;
+			for (int age = n - 1; age >= 0; age--) {
+				Word word = word(age);
+				for (int idx = 0; idx < word.length; idx++)
+					if (element.charAt(position++) != word.charAt(idx))
+						return false;
+				if (age > 0 && element.charAt(position++) != ' ')
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public String materialize() {
+			// Copy the bytes of the ASCII words, as a String has them (compact):
+			byte[] bytes = new byte[length];
+			int position = 0;
+			for (int age = n - 1; age >= 0; age--) {
+				Word word = word(age);
+				if (word.string != null)
+					return join();
+				System.arraycopy(word.bytes, 0, bytes, position, word.length);
+				position += word.length;
+				if (age > 0)
+					bytes[position++] = ' ';
+			}
+			return new String(bytes, ISO_8859_1);
+		}
+
+		private String join() {
+			StringBuilder sb = new StringBuilder(length);
+			for (int age = n - 1; age >= 0; age--) {
+				word(age).appendTo(sb);
+				if (age > 0)
+					sb.append(' ');
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package com.akefirad.spacesaving.ingest;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.util.Collections.unmodifiableList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Summarizes a stream in stages, overlapping the I/O with the tokenizing and counting.
+ * Notes:
+ * 1. The reader stage fills (preallocated) chunks of bytes, each chunk ends right after a
+ * separator (whitespace), so no token is split between two chunks; the rest of the bytes
+ * are carried over to the next chunk.
+ * 2. The chunks are handed out to the tokenizer workers in turn, each worker tokenizes
+ * its chunks (see {@link ByteTokenStream}) in to batches of tokens.
+ * 3. The counting stage (the calling thread) consumes the batches of the workers in the
+ * same turn, so the summary is the same as summarizing the stream in one loop.
+ * 4. Every hand-off goes through a bounded single-producer, single-consumer ring buffer,
+ * and the chunks and batches are returned to their producer through another ring, so
+ * nothing is allocated per chunk or batch; a full ring (or no free chunk or batch) stalls
+ * the producer, which is the backpressure of the pipeline.
+ * 5. The throughput of the stages, of the current (or the last) run, is available
+ * through {@link #stages()}.
+ */
+public class IngestionPipeline {
+	private static final Logger logger = getLogger(IngestionPipeline.class);
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int BATCH_SIZE = 1024;
+	private static final int DEPTH = 4;
+	private static final int SPINS = 100;
+	private static final long PARK_NANOS = 10_000;
+
+	private final int size;
+	private final int workers;
+	private final int chunkSize;
+	private final int depth;
+	private volatile List<PipelineStage> stages = unmodifiableList(new ArrayList<>());
+
+	public IngestionPipeline(int size) {
+		this(size, Math.max(1, Runtime.getRuntime().availableProcessors() - 2), CHUNK_SIZE, DEPTH);
+	}
+
+	/**
+	 * @param size      size of the summary
+	 * @param workers   number of the tokenizer workers
+	 * @param chunkSize size of the chunks in bytes
+	 * @param depth     number of the chunks (and batches) in flight per worker
+	 */
+	public IngestionPipeline(int size, int workers, int chunkSize, int depth) {
+		assertValidSize(size, "size of stream summary");
+		assertValidSize(workers, "workers");
+		assertValidSize(chunkSize, "chunk size");
+		assertValidSize(depth, "depth");
+		this.size = size;
+		this.workers = workers;
+		this.chunkSize = chunkSize;
+		this.depth = depth;
+	}
+
+	public StreamSummary<String> summarize(InputStream input) throws IOException {
+		assertNotNull(input, "input");
+		return summarize(Channels.newChannel(input));
+	}
+
+	public StreamSummary<String> summarize(ReadableByteChannel channel) throws IOException {
+		StreamSummary<String> summary = new LinkedStreamSummary<>(size);
+		summarize(channel, summary, Long.MAX_VALUE);
+		return summary;
+	}
+
+	/**
+	 * Summarizes (at most) the given number of tokens of the channel in to the given summary.
+	 * If the limit is reached, the other stages are stopped, but the channel is not
+	 * closed (nor drained).
+	 *
+	 * @param channel channel to read
+	 * @param summary summary to add the tokens to
+	 * @param limit   maximum number of tokens
+	 * @return number of tokens added
+	 */
+	public long summarize(ReadableByteChannel channel, StreamSummary<String> summary, long limit) throws IOException {
+		assertNotNull(channel, "channel");
+		assertNotNull(summary, "summary");
+		if (limit <= 0)
+			throw new IllegalArgumentException("limit is not positive!");
+
+		Run run = new Run(channel);
+		stages = run.stages;
+		try {
+			return run.count(summary, limit);
+		} finally {
+			logger.debug("Stages of the pipeline: {}", run.stages);
+		}
+	}
+
+	/**
+	 * Returns the stages (reader, tokenizer and counter) of the current or the last run
+	 */
+	public List<PipelineStage> stages() {
+		return stages;
+	}
+
+	private static final class Chunk {
+		private byte[] bytes;
+		private ByteBuffer buffer;
+		private int length;
+
+		private Chunk(int size) {
+			this.bytes = new byte[size];
+			this.buffer = ByteBuffer.wrap(bytes);
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (bytes.length < capacity) {
+				bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+				buffer = ByteBuffer.wrap(bytes);
+			}
+		}
+	}
+
+	private static final class Batch {
+		private final String[] tokens = new String[BATCH_SIZE];
+		private int size;
+		private boolean last; // Last batch of a chunk
+		private boolean end; // End of the stream
+
+		private Batch reset() {
+			size = 0;
+			last = end = false;
+			return this;
+		}
+	}
+
+	/**
+	 * The state of one run of the pipeline.
+	 */
+	private final class Run {
+		private final Chunk end = new Chunk(0);
+		private final ReadableByteChannel channel;
+		private final List<RingBuffer<Chunk>> chunks = new ArrayList<>();
+		private final List<RingBuffer<Chunk>> freeChunks = new ArrayList<>();
+		private final List<RingBuffer<Batch>> batches = new ArrayList<>();
+		private final List<RingBuffer<Batch>> freeBatches = new ArrayList<>();
+		private final PipelineStage reader = new PipelineStage("reader", "bytes", 1);
+		private final PipelineStage tokenizer = new PipelineStage("tokenizer", "tokens", workers);
+		private final PipelineStage counter = new PipelineStage("counter", "tokens", 1);
+		private final List<PipelineStage> stages = unmodifiableList(Arrays.asList(reader, tokenizer, counter));
+		private final List<Thread> threads = new ArrayList<>();
+		private volatile Throwable failure;
+		private volatile boolean stopped;
+
+		private Run(ReadableByteChannel channel) {
+			this.channel = channel;
+			for (int idx = 0; idx < workers; idx++) {
+				// One more slot for the end of the stream:
+				chunks.add(new RingBuffer<>(depth + 1));
+				freeChunks.add(new RingBuffer<>(depth));
+				batches.add(new RingBuffer<>(depth));
+				freeBatches.add(new RingBuffer<>(depth));
+				for (int i = 0; i < depth; i++) {
+					freeChunks.get(idx).offer(new Chunk(chunkSize));
+					freeBatches.get(idx).offer(new Batch());
+				}
+			}
+
+			threads.add(thread("ingest-reader", this::read, reader));
+			for (int idx = 0; idx < workers; idx++) {
+				int worker = idx;
+				threads.add(thread("ingest-tokenizer-" + idx, () -> tokenize(worker), tokenizer));
+			}
+			threads.forEach(Thread::start);
+		}
+
+		private Thread thread(String name, Stage stage, PipelineStage metrics) {
+			Thread thread = new Thread(() -> {
+				try {
+					stage.run();
+				} catch (Throwable e) {
+					if (!stopped && failure == null)
+						failure = e;
+					stopped = true;
+				} finally {
+					metrics.finish();
+				}
+			}, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+
+		private void read() throws IOException {
+			byte[] carry = new byte[0];
+			int worker = 0;
+			Chunk chunk = take(freeChunks.get(worker), reader);
+			chunk.length = 0;
+			while (true) {
+				ByteBuffer buffer = chunk.buffer;
+				// Cast to Buffer, to run on Java 8 as well:
+				((Buffer) buffer).limit(chunk.bytes.length);
+				((Buffer) buffer).position(chunk.length);
+				int read;
+				do {
+					read = channel.read(buffer);
+				} while (read == 0);
+				if (read < 0)
+					break;
+				chunk.length += read;
+				reader.add(read);
+				if (chunk.length < chunk.bytes.length)
+					continue;
+
+				// Cut the chunk right after its last separator, and carry over the rest:
+				int cut = chunk.length;
+				while (cut > 0 && !ByteTokenStream.isSeparator(chunk.bytes[cut - 1]))
+					cut--;
+				if (cut == 0) {
+					// A token as big as the chunk:
+					chunk.ensureCapacity(chunk.length * 2);
+					continue;
+				}
+				int rest = chunk.length - cut;
+				if (carry.length < rest)
+					carry = new byte[Math.max(rest, carry.length * 2)];
+				System.arraycopy(chunk.bytes, cut, carry, 0, rest);
+				chunk.length = cut;
+				put(chunks.get(worker), chunk, reader);
+
+				worker = (worker + 1) % workers;
+				chunk = take(freeChunks.get(worker), reader);
+				chunk.ensureCapacity(rest);
+				System.arraycopy(carry, 0, chunk.bytes, 0, rest);
+				chunk.length = rest;
+			}
+
+			if (chunk.length > 0) {
+				put(chunks.get(worker), chunk, reader);
+				worker = (worker + 1) % workers;
+			}
+			for (int idx = 0; idx < workers; idx++)
+				put(chunks.get((worker + idx) % workers), end, reader);
+		}
+
+		private void tokenize(int worker) throws IOException {
+			RingBuffer<Chunk> chunks = this.chunks.get(worker);
+			RingBuffer<Chunk> freeChunks = this.freeChunks.get(worker);
+			RingBuffer<Batch> batches = this.batches.get(worker);
+			RingBuffer<Batch> freeBatches = this.freeBatches.get(worker);
+			ByteTokenStream stream = null;
+			while (true) {
+				Chunk chunk = take(chunks, tokenizer);
+				Batch batch = take(freeBatches, tokenizer).reset();
+				if (chunk == end) {
+					batch.end = true;
+					put(batches, batch, tokenizer);
+					return;
+				}
+
+				ByteBuffer buffer = chunk.buffer;
+				((Buffer) buffer).limit(chunk.length);
+				((Buffer) buffer).position(0);
+				if (stream == null)
+					stream = new ByteTokenStream(buffer);
+				else
+					stream.reset(buffer);
+				while (stream.advance()) {
+					if (batch.size == BATCH_SIZE) {
+						tokenizer.add(batch.size);
+						put(batches, batch, tokenizer);
+						batch = take(freeBatches, tokenizer).reset();
+					}
+					batch.tokens[batch.size++] = stream.materialize();
+				}
+				tokenizer.add(batch.size);
+				batch.last = true;
+				put(batches, batch, tokenizer);
+				put(freeChunks, chunk, tokenizer);
+			}
+		}
+
+		private long count(StreamSummary<String> summary, long limit) throws IOException {
+			long count = 0;
+			int worker = 0;
+			boolean ended = false;
+			try {
+				while (count < limit) {
+					Batch batch = take(batches.get(worker), counter);
+					if (ended = batch.end)
+						break;
+					int size = (int) Math.min(batch.size, limit - count);
+					for (int idx = 0; idx < size; idx++)
+						summary.add(batch.tokens[idx]);
+					count += size;
+					counter.add(size);
+
+					boolean last = batch.last;
+					Arrays.fill(batch.tokens, 0, batch.size, null);
+					put(freeBatches.get(worker), batch, counter);
+					if (last)
+						worker = (worker + 1) % workers;
+				}
+			} finally {
+				counter.finish();
+				stopped = true;
+			}
+
+			// Otherwise the reader may be blocked on the channel:
+			if (ended)
+				for (Thread thread : threads)
+					join(thread);
+			return count;
+		}
+
+		private void join(Thread thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private <E> E take(RingBuffer<E> ring, PipelineStage stage) throws IOException {
+			E element = ring.poll();
+			if (element != null)
+				return element;
+			long start = System.nanoTime();
+			for (int spins = 0; (element = ring.poll()) == null; spins++)
+				await(spins);
+			stage.stalled(System.nanoTime() - start);
+			return element;
+		}
+
+		private <E> void put(RingBuffer<E> ring, E element, PipelineStage stage) throws IOException {
+			if (ring.offer(element))
+				return;
+			long start = System.nanoTime();
+			for (int spins = 0; !ring.offer(element); spins++)
+				await(spins);
+			stage.stalled(System.nanoTime() - start);
+		}
+
+		private void await(int spins) throws IOException {
+			Throwable failure = this.failure;
+			if (failure != null) {
+				if (failure instanceof IOException)
+					throw new IOException(failure.getMessage(), failure);
+				if (failure instanceof UncheckedIOException)
+					throw new IOException(failure.getCause().getMessage(), failure.getCause());
+				throw new IllegalStateException("pipeline failed!", failure);
+			}
+			if (stopped)
+				throw new IllegalStateException("pipeline is stopped!");
+			if (spins < SPINS)
+				Thread.yield();
+			else
+				LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Stage {
+		void run() throws IOException;
+	}
+}
@@ -0,0 +1,150 @@
+package com.akefirad.spacesaving.ingest;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Summarizes a (big) file in parallel.
+ * Notes:
+ * 1. The file is split in to chunks, each chunk ends right before a separator
+ * (whitespace), so no token is split between two chunks.
+ * 2. Each chunk is memory mapped, tokenized (see {@link ByteTokenStream}) and
+ * summarized in to its own summary, on a fork-join pool.
+ * 3. The summaries of the chunks are merged (see {@link StreamSummary#merge(StreamSummary)})
+ * while joining the tasks.
+ */
+public class MappedFileIngestion {
+	private static final Logger logger = getLogger(MappedFileIngestion.class);
+
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+	private final int size;
+	private final long chunkSize;
+	private final ForkJoinPool pool;
+
+	public MappedFileIngestion(int size) {
+		this(size, 0, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param size      size of the summary
+	 * @param chunkSize size of the chunks in bytes, zero to choose it based on the file size
+	 * @param pool      pool to run the tasks
+	 */
+	public MappedFileIngestion(int size, long chunkSize, ForkJoinPool pool) {
+		assertValidSize(size, "size of stream summary");
+		assertNotNull(pool, "pool");
+		if (chunkSize < 0 || chunkSize > MAX_CHUNK_SIZE)
+			throw new IllegalArgumentException("chunk size is not valid!");
+		this.size = size;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	public StreamSummary<String> summarize(Path file) throws IOException {
+		assertNotNull(file, "file");
+		try (FileChannel channel = FileChannel.open(file, READ)) {
+			List<Long> boundaries = boundaries(channel);
+			logger.info("Summarizing {} bytes in {} chunks...", channel.size(), boundaries.size() - 1);
+			return pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.size() - 1));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the positions where chunks start, plus the size of the file.
+	 */
+	private List<Long> boundaries(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		long chunk = chunkSize > 0 ? chunkSize : Math.max(MIN_CHUNK_SIZE,
+				Math.min(MAX_CHUNK_SIZE, fileSize / (pool.getParallelism() * 4L)));
+
+		List<Long> boundaries = new ArrayList<>();
+		boundaries.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		long position = chunk;
+		while (position < fileSize) {
+			// Move the boundary forward, to the next separator:
+			position = separator(channel, position, buffer);
+			if (position >= fileSize)
+				break;
+			if (position - boundaries.get(boundaries.size() - 1) > Integer.MAX_VALUE)
+				throw new IOException("token is too long at " + position + "!");
+			boundaries.add(position);
+			position += chunk;
+		}
+		boundaries.add(fileSize);
+		return boundaries;
+	}
+
+	private static long separator(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+		while (true) {
+			((Buffer) buffer).clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0)
+				return channel.size();
+			for (int idx = 0; idx < read; idx++)
+				if (ByteTokenStream.isSeparator(buffer.get(idx)))
+					return position + idx;
+			position += read;
+		}
+	}
+
+	private final class ChunkTask extends RecursiveTask<StreamSummary<String>> {
+		private final FileChannel channel;
+		private final List<Long> boundaries;
+		private final int from;
+		private final int to;
+
+		private ChunkTask(FileChannel channel, List<Long> boundaries, int from, int to) {
+			this.channel = channel;
+			this.boundaries = boundaries;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected StreamSummary<String> compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ChunkTask right = new ChunkTask(channel, boundaries, middle, to);
+				right.fork();
+				StreamSummary<String> summary = new ChunkTask(channel, boundaries, from, middle).compute();
+				summary.merge(right.join());
+				return summary;
+			}
+
+			StreamSummary<String> summary = new LinkedStreamSummary<>(size);
+			long start = boundaries.get(from);
+			long end = boundaries.get(to);
+			try (ByteTokenStream stream = new ByteTokenStream(channel.map(READ_ONLY, start, end - start))) {
+				while (stream.advance())
+					summary.addView(stream);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return summary;
+		}
+	}
+}
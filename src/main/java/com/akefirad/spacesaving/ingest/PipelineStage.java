@@ -0,0 +1,92 @@
+package com.akefirad.spacesaving.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of a stage of an {@link IngestionPipeline}: the number of items (bytes or
+ * tokens) processed by the stage, and the time the stage has been stalled, either
+ * waiting for its input or blocked by the backpressure of the next stage.
+ */
+public final class PipelineStage {
+	private final String name;
+	private final String unit;
+	private final int threads;
+	private final LongAdder items = new LongAdder();
+	private final LongAdder stalled = new LongAdder();
+	private final long start = System.nanoTime();
+	private final AtomicLong end = new AtomicLong();
+
+	PipelineStage(String name, String unit, int threads) {
+		this.name = name;
+		this.unit = unit;
+		this.threads = threads;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Returns the unit of the items, e.g. bytes or tokens
+	 */
+	public String unit() {
+		return unit;
+	}
+
+	/**
+	 * Returns the number of threads running the stage
+	 */
+	public int threads() {
+		return threads;
+	}
+
+	/**
+	 * Returns the number of items processed so far
+	 */
+	public long items() {
+		return items.sum();
+	}
+
+	/**
+	 * Returns the time (in nanoseconds) the stage has been stalled, summed over its threads
+	 */
+	public long stalledNanos() {
+		return stalled.sum();
+	}
+
+	/**
+	 * Returns the time (in nanoseconds) the stage has been running (or ran)
+	 */
+	public long elapsedNanos() {
+		long end = this.end.get();
+		return (end == 0 ? System.nanoTime() : end) - start;
+	}
+
+	/**
+	 * Returns the number of items per second
+	 */
+	public double throughput() {
+		long elapsed = elapsedNanos();
+		return elapsed <= 0 ? 0 : items() * 1e9 / elapsed;
+	}
+
+	void add(long items) {
+		this.items.add(items);
+	}
+
+	void stalled(long nanos) {
+		stalled.add(nanos);
+	}
+
+	void finish() {
+		end.accumulateAndGet(System.nanoTime(), Math::max);
+	}
+
+	@Override
+	public String toString() {
+		long elapsed = elapsedNanos();
+		return String.format("%s: %d %s, %.0f %s/s, stalled %.0f%%", name, items(), unit, throughput(), unit,
+				elapsed <= 0 ? 0 : 100.0 * stalledNanos() / elapsed / threads);
+	}
+}
@@ -0,0 +1,62 @@
+package com.akefirad.spacesaving.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded (preallocated) single-producer, single-consumer ring buffer.
+ * Notes:
+ * 1. Only one thread offers and only one (other) thread polls.
+ * 2. The indexes only grow; the slot of an index is the index masked by the capacity
+ * (a power of two).
+ * 3. The indexes are published with lazy sets, which is enough for a single producer
+ * and a single consumer.
+ *
+ * @param <E> type of element
+ */
+final class RingBuffer<E> {
+	private final Object[] elements;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(); // Next index to poll
+	private final AtomicLong tail = new AtomicLong(); // Next index to offer
+
+	RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.elements = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Adds the given element (by the producer)
+	 *
+	 * @return false if the buffer is full
+	 */
+	boolean offer(E element) {
+		long tail = this.tail.get();
+		if (tail - head.get() == elements.length)
+			return false;
+		elements[(int) tail & mask] = element;
+		this.tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the oldest element (by the consumer)
+	 *
+	 * @return the element, or null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	E poll() {
+		long head = this.head.get();
+		if (head == tail.get())
+			return null;
+		int index = (int) head & mask;
+		E element = (E) elements[index];
+		elements[index] = null;
+		this.head.lazySet(head + 1);
+		return element;
+	}
+
+	int capacity() {
+		return elements.length;
+	}
+}
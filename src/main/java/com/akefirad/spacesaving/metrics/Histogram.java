@@ -0,0 +1,66 @@
+package com.akefirad.spacesaving.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+
+/**
+ * A thread-safe histogram of non-negative values, in power of two buckets:
+ * the bucket i (but zero) counts the values in [2^(i-1), 2^i), and the bucket
+ * zero counts the zeros. So recording is a single (contended-friendly) increment,
+ * and percentiles are reported as the upper bound of their buckets (within 2x).
+ */
+public class Histogram {
+	private static final int BUCKETS = 65;
+
+	private final LongAdder[] counts;
+
+	public Histogram() {
+		this.counts = new LongAdder[BUCKETS];
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+			counts[bucket] = new LongAdder();
+	}
+
+	/**
+	 * Records the given value, negatives are recorded as zero
+	 */
+	public void record(long value) {
+		counts[value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value)].increment();
+	}
+
+	/**
+	 * Returns the number of the recorded values
+	 */
+	public long count() {
+		long count = 0;
+		for (LongAdder bucket : counts)
+			count += bucket.sum();
+		return count;
+	}
+
+	/**
+	 * Returns the (upper bound of the) given percentile, or zero if there is no value
+	 *
+	 * @param ratio percentile as a ratio, e.g. 0.99
+	 */
+	public long percentile(double ratio) {
+		assertValidRatio(ratio, "ratio");
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+			total += snapshot[bucket] = counts[bucket].sum();
+		long rank = (long) Math.ceil(ratio * total);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += snapshot[bucket];
+			if (seen >= rank && seen > 0)
+				return bucket == 0 ? 0 : bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+		}
+		return 0;
+	}
+
+	public void reset() {
+		for (LongAdder bucket : counts)
+			bucket.reset();
+	}
+}
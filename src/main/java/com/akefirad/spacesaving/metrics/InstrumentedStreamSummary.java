@@ -0,0 +1,132 @@
+package com.akefirad.spacesaving.metrics;
+
+import com.akefirad.spacesaving.summary.*;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+
+/**
+ * A summary recording the latency of the queries of another summary, in to
+ * {@link SummaryMetrics}. Adds are passed through as they are; the (hot path)
+ * events of the summary are recorded by listening to it, which is done here for
+ * the summaries supporting it (simple, linked and concurrent).
+ * Without instrumentation (neither this nor a listener) nothing is recorded,
+ * and there is no cost at all.
+ *
+ * @param <T> type of stream token
+ */
+public class InstrumentedStreamSummary<T> implements StreamSummary<T> {
+	private final StreamSummary<T> summary;
+	private final SummaryMetrics metrics;
+
+	public InstrumentedStreamSummary(StreamSummary<T> summary, SummaryMetrics metrics) {
+		assertNotNull(summary, "summary");
+		assertNotNull(metrics, "metrics");
+		this.summary = summary;
+		this.metrics = metrics;
+		if (summary instanceof SimpleStreamSummary)
+			((SimpleStreamSummary<T>) summary).setListener(metrics);
+		else if (summary instanceof LinkedStreamSummary)
+			((LinkedStreamSummary<T>) summary).setListener(metrics);
+		else if (summary instanceof ConcurrentStreamSummary)
+			((ConcurrentStreamSummary<T>) summary).setListener(metrics);
+	}
+
+	/**
+	 * Returns the instrumented summary
+	 */
+	public StreamSummary<T> summary() {
+		return summary;
+	}
+
+	public SummaryMetrics metrics() {
+		return metrics;
+	}
+
+	@Override
+	public void add(T element) {
+		summary.add(element);
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		summary.add(element, weight);
+	}
+
+	@Override
+	public void addView(KeyView<T> view) {
+		summary.addView(view);
+	}
+
+	@Override
+	public void addAll(Iterable<? extends T> elements) {
+		summary.addAll(elements);
+	}
+
+	@Override
+	public void addAll(T[] elements, long[] weights) {
+		summary.addAll(elements, weights);
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		summary.merge(other instanceof InstrumentedStreamSummary ?
+				((InstrumentedStreamSummary<T>) other).summary : other);
+	}
+
+	@Override
+	public int capacity() {
+		return summary.capacity();
+	}
+
+	@Override
+	public long total() {
+		return summary.total();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return timed(summary::frequencies);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return timed(summary::sortedFrequencies);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		return timed(summary::mostFrequents);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		return timed(() -> summary.topK(k));
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		return timed(() -> summary.heavyHitters(phi));
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		return timed(() -> summary.estimate(element));
+	}
+
+	private <R> R timed(Supplier<R> query) {
+		long start = System.nanoTime();
+		try {
+			return query.get();
+		} finally {
+			metrics.onQuery(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return summary.toString();
+	}
+}
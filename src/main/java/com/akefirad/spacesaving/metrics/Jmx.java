@@ -0,0 +1,42 @@
+package com.akefirad.spacesaving.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+
+/**
+ * Registers the metrics as MBeans, in the platform MBean server.
+ */
+final class Jmx {
+	static final String DOMAIN = "com.akefirad.spacesaving";
+
+	private Jmx() {
+	}
+
+	static ObjectName register(Object mbean, String type, String name) {
+		assertNotNull(name, "name");
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(mbean, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("failed to register " + name + "!", e);
+		}
+	}
+
+	static void unregister(ObjectName objectName) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException("failed to unregister " + objectName + "!", e);
+		}
+	}
+}
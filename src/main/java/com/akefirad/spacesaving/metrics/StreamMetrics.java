@@ -0,0 +1,74 @@
+package com.akefirad.spacesaving.metrics;
+
+import com.akefirad.spacesaving.stream.StreamListener;
+
+import javax.management.ObjectName;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Metrics of (the ingestion of) streams: number of tokens and the rate of them,
+ * since the creation (or the last reset). It can be shared by streams read in parallel.
+ */
+public class StreamMetrics implements StreamListener, StreamMetricsMBean {
+	private static final String TYPE = "StreamMetrics";
+
+	private final LongAdder tokens = new LongAdder();
+	private volatile long start = System.nanoTime();
+
+	@Override
+	public void onToken() {
+		tokens.increment();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	@Override
+	public double getTokensPerSecond() {
+		long elapsed = System.nanoTime() - start;
+		return elapsed <= 0 ? 0 : tokens.sum() * 1e9 / elapsed;
+	}
+
+	@Override
+	public void reset() {
+		tokens.reset();
+		start = System.nanoTime();
+	}
+
+	/**
+	 * Returns the current values of the metrics, by their names
+	 *
+	 * @return metrics in a (sorted) map
+	 */
+	public Map<String, Number> snapshot() {
+		Map<String, Number> map = new LinkedHashMap<>();
+		map.put("tokens", getTokens());
+		map.put("tokensPerSecond", getTokensPerSecond());
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Registers the metrics as an MBean (replacing any with the same name)
+	 *
+	 * @param name name of the stream(s)
+	 * @return name of the MBean
+	 */
+	public ObjectName register(String name) {
+		return Jmx.register(this, TYPE, name);
+	}
+
+	public void unregister(ObjectName name) {
+		Jmx.unregister(name);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
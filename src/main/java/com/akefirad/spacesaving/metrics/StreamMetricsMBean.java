@@ -0,0 +1,12 @@
+package com.akefirad.spacesaving.metrics;
+
+/**
+ * JMX view of {@link StreamMetrics}
+ */
+public interface StreamMetricsMBean {
+	long getTokens();
+
+	double getTokensPerSecond();
+
+	void reset();
+}
@@ -0,0 +1,212 @@
+package com.akefirad.spacesaving.metrics;
+
+import com.akefirad.spacesaving.summary.SummaryListener;
+
+import javax.management.ObjectName;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Metrics of a summary: adds (hits, inserts and rejections), evictions and the evicted
+ * (minimum) counts, bucket churn, and latency of the queries.
+ * Notes:
+ * 1. The events are counted by {@link LongAdder}s, so it can be shared by
+ * threads (e.g. the stripes of a concurrent summary) with little contention.
+ * 2. The internal events come from a summary it listens to (see the setListener
+ * of the summaries), and the queries from an {@link InstrumentedStreamSummary}.
+ * 3. It can be pulled by {@link #snapshot()}, or registered as an MBean.
+ */
+public class SummaryMetrics implements SummaryListener, SummaryMetricsMBean {
+	private static final String TYPE = "SummaryMetrics";
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+	private final LongAdder weight = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder bucketsCreated = new LongAdder();
+	private final LongAdder bucketsRemoved = new LongAdder();
+	private final Histogram evictedCounts = new Histogram();
+	private final Histogram queryLatencies = new Histogram();
+
+	@Override
+	public void onHit(long weight) {
+		hits.increment();
+		this.weight.add(weight);
+	}
+
+	@Override
+	public void onInsert(long weight) {
+		inserts.increment();
+		this.weight.add(weight);
+	}
+
+	@Override
+	public void onReject(long weight) {
+		rejections.increment();
+		this.weight.add(weight);
+	}
+
+	@Override
+	public void onEvict(int count) {
+		evictions.increment();
+		evictedCounts.record(count);
+	}
+
+	@Override
+	public void onBucketCreated() {
+		bucketsCreated.increment();
+	}
+
+	@Override
+	public void onBucketRemoved() {
+		bucketsRemoved.increment();
+	}
+
+	/**
+	 * Records the latency of a query
+	 *
+	 * @param nanos latency in nanoseconds
+	 */
+	public void onQuery(long nanos) {
+		queryLatencies.record(nanos);
+	}
+
+	@Override
+	public long getAdds() {
+		return hits.sum() + inserts.sum() + rejections.sum();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getInserts() {
+		return inserts.sum();
+	}
+
+	@Override
+	public long getRejections() {
+		return rejections.sum();
+	}
+
+	@Override
+	public long getWeight() {
+		return weight.sum();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public long getEvictedCountMedian() {
+		return evictedCounts.percentile(0.5);
+	}
+
+	@Override
+	public long getEvictedCountP99() {
+		return evictedCounts.percentile(0.99);
+	}
+
+	@Override
+	public long getBucketsCreated() {
+		return bucketsCreated.sum();
+	}
+
+	@Override
+	public long getBucketsRemoved() {
+		return bucketsRemoved.sum();
+	}
+
+	@Override
+	public long getQueries() {
+		return queryLatencies.count();
+	}
+
+	@Override
+	public long getQueryLatencyMedianMicros() {
+		return NANOSECONDS.toMicros(queryLatencies.percentile(0.5));
+	}
+
+	@Override
+	public long getQueryLatencyP99Micros() {
+		return NANOSECONDS.toMicros(queryLatencies.percentile(0.99));
+	}
+
+	/**
+	 * Returns the evicted (minimum) counts
+	 */
+	public Histogram evictedCounts() {
+		return evictedCounts;
+	}
+
+	/**
+	 * Returns the latencies of the queries, in nanoseconds
+	 */
+	public Histogram queryLatencies() {
+		return queryLatencies;
+	}
+
+	@Override
+	public void reset() {
+		hits.reset();
+		inserts.reset();
+		rejections.reset();
+		weight.reset();
+		evictions.reset();
+		bucketsCreated.reset();
+		bucketsRemoved.reset();
+		evictedCounts.reset();
+		queryLatencies.reset();
+	}
+
+	/**
+	 * Returns the current values of the metrics, by their names
+	 *
+	 * @return metrics in a (sorted) map
+	 */
+	public Map<String, Long> snapshot() {
+		Map<String, Long> map = new LinkedHashMap<>();
+		map.put("adds", getAdds());
+		map.put("hits", getHits());
+		map.put("inserts", getInserts());
+		map.put("rejections", getRejections());
+		map.put("weight", getWeight());
+		map.put("evictions", getEvictions());
+		map.put("evictedCountMedian", getEvictedCountMedian());
+		map.put("evictedCountP99", getEvictedCountP99());
+		map.put("bucketsCreated", getBucketsCreated());
+		map.put("bucketsRemoved", getBucketsRemoved());
+		map.put("queries", getQueries());
+		map.put("queryLatencyMedianMicros", getQueryLatencyMedianMicros());
+		map.put("queryLatencyP99Micros", getQueryLatencyP99Micros());
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Registers the metrics as an MBean (replacing any with the same name)
+	 *
+	 * @param name name of the summary
+	 * @return name of the MBean
+	 */
+	public ObjectName register(String name) {
+		return Jmx.register(this, TYPE, name);
+	}
+
+	public void unregister(ObjectName name) {
+		Jmx.unregister(name);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
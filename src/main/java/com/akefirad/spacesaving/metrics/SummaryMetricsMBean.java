@@ -0,0 +1,34 @@
+package com.akefirad.spacesaving.metrics;
+
+/**
+ * JMX view of {@link SummaryMetrics}
+ */
+public interface SummaryMetricsMBean {
+	long getAdds();
+
+	long getHits();
+
+	long getInserts();
+
+	long getRejections();
+
+	long getWeight();
+
+	long getEvictions();
+
+	long getEvictedCountMedian();
+
+	long getEvictedCountP99();
+
+	long getBucketsCreated();
+
+	long getBucketsRemoved();
+
+	long getQueries();
+
+	long getQueryLatencyMedianMicros();
+
+	long getQueryLatencyP99Micros();
+
+	void reset();
+}
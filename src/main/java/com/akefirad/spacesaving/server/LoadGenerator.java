@@ -0,0 +1,126 @@
+package com.akefirad.spacesaving.server;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A client sending tokens to the ingest port of a {@link SummaryServer}, from a number
+ * of concurrent producers (connections), one token per line.
+ * The tokens ("t0", "t1", ...) are drawn from a skewed (Zipf like) distribution, so
+ * the smaller tokens are the most frequent ones; a producer is deterministic by its seed.
+ */
+public class LoadGenerator {
+	private static final Logger logger = getLogger(LoadGenerator.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InetSocketAddress address;
+	private final int producers;
+	private final long tokens;
+	private final int distinct;
+	private final long seed;
+
+	/**
+	 * @param address   address of the ingest port
+	 * @param producers number of the producers (connections)
+	 * @param tokens    number of the tokens per producer
+	 * @param distinct  number of the distinct tokens
+	 * @param seed      seed of the first producer (the next ones are seed + 1, ...)
+	 */
+	public LoadGenerator(InetSocketAddress address, int producers, long tokens, int distinct, long seed) {
+		assertNotNull(address, "address");
+		assertValidSize(producers, "producers");
+		assertValidSize(distinct, "distinct tokens");
+		if (tokens < 0)
+			throw new IllegalArgumentException("tokens is negative!");
+		this.address = address;
+		this.producers = producers;
+		this.tokens = tokens;
+		this.distinct = distinct;
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4)
+			throw new IllegalArgumentException("Host, port, producers and tokens (per producer) are needed!");
+		InetSocketAddress address = new InetSocketAddress(args[0].trim(), Integer.parseInt(args[1].trim()));
+		int producers = Integer.parseInt(args[2].trim());
+		long tokens = Long.parseLong(args[3].trim());
+		int distinct = args.length > 4 ? Integer.parseInt(args[4].trim()) : 100_000;
+		new LoadGenerator(address, producers, tokens, distinct, 0).run();
+	}
+
+	/**
+	 * Sends the tokens, and waits for all the producers.
+	 *
+	 * @return total number of the sent tokens
+	 */
+	public long run() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try {
+			long start = System.nanoTime();
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int producer = 0; producer < producers; producer++) {
+				long producerSeed = seed + producer;
+				futures.add(executor.submit(() -> produce(producerSeed)));
+			}
+			long sent = 0;
+			for (Future<Long> future : futures)
+				sent += future.get();
+			long elapsed = Math.max(1, System.nanoTime() - start);
+			logger.info("Sent {} tokens from {} producers, {} tokens/s.",
+					sent, producers, sent * TimeUnit.SECONDS.toNanos(1) / elapsed);
+			return sent;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted!", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException
+					? (IOException) e.getCause() : new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String token(Random random, int distinct) {
+		// Log-uniform rank, i.e. P(rank) ~ 1 / rank:
+		int rank = (int) Math.pow(distinct + 1, random.nextDouble()) - 1;
+		return "t" + Math.min(rank, distinct - 1);
+	}
+
+	private long produce(long seed) throws IOException {
+		Random random = new Random(seed);
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try (SocketChannel channel = SocketChannel.open(address)) {
+			for (long sent = 0; sent < tokens; sent++) {
+				byte[] token = token(random, distinct).getBytes(US_ASCII);
+				if (buffer.remaining() < token.length + 1)
+					flush(channel, buffer);
+				buffer.put(token).put((byte) '\n');
+			}
+			flush(channel, buffer);
+		}
+		return tokens;
+	}
+
+	private static void flush(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		((Buffer) buffer).flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,433 @@
+package com.akefirad.spacesaving.server;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.Estimate;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A long running server, summarizing the tokens sent to its ingest port, and answering
+ * queries on its query port.
+ * Notes:
+ * 1. The ingest port accepts any number of producers, each sending (UTF-8) tokens
+ * separated by whitespaces, e.g. one token per line. The connections are read by a
+ * single (non-blocking) selector thread, which owns the summary; a token is never
+ * split between two reads (the rest of a read is carried over to the next one). A
+ * token longer than the buffer of a connection (64 KiB) is dropped, up to the next
+ * separator, so a producer can't grow the memory of the server.
+ * 2. The ingest thread publishes a snapshot (a copy) of the summary periodically, so
+ * the queries never lock (nor stall) the ingestion; the answers are at most one
+ * period old.
+ * 3. The query port accepts line based requests, each answered by zero or more lines
+ * followed by an empty line:
+ * <pre>
+ * TOPK k            element count error (per line), the k most frequent elements
+ * ESTIMATE element  count error monitored
+ * SNAPSHOT          total n, then element count error (per line) of all the counters
+ * </pre>
+ * A client isn't read while its last answer is pending, so pipelined requests wait
+ * (in the socket) for the answers to be read, and can't grow the memory of the server.
+ * 4. Both ports are served by their own threads; {@link #close()} stops them.
+ */
+public class SummaryServer implements Closeable {
+	private static final Logger logger = getLogger(SummaryServer.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_REQUEST = 8 * 1024;
+
+	private final int size;
+	private final long refreshNanos;
+	private final LinkedStreamSummary<String> summary;
+	private final ServerSocketChannel ingest;
+	private final ServerSocketChannel query;
+	private final Selector ingestSelector;
+	private final Selector querySelector;
+	private final Thread ingestThread;
+	private final Thread queryThread;
+	private volatile StreamSummary<String> snapshot;
+	private volatile boolean closed;
+
+	/**
+	 * @param size      size of the summary
+	 * @param ingest    address of the ingest port (zero port for any free port)
+	 * @param query     address of the query port (zero port for any free port)
+	 * @param refresh   period of the snapshots
+	 * @param unit      unit of the period
+	 */
+	public SummaryServer(int size, InetSocketAddress ingest, InetSocketAddress query,
+	                     long refresh, TimeUnit unit) throws IOException {
+		assertValidSize(size, "size of stream summary");
+		assertNotNull(ingest, "ingest address");
+		assertNotNull(query, "query address");
+		assertNotNull(unit, "unit");
+		if (refresh <= 0)
+			throw new IllegalArgumentException("refresh is not positive!");
+		this.size = size;
+		this.refreshNanos = unit.toNanos(refresh);
+		this.summary = new LinkedStreamSummary<>(size);
+		this.snapshot = new LinkedStreamSummary<>(size);
+
+		this.ingestSelector = Selector.open();
+		this.querySelector = Selector.open();
+		this.ingest = bind(ingest, ingestSelector);
+		this.query = bind(query, querySelector);
+
+		this.ingestThread = new Thread(this::runIngest, "summary-ingest");
+		this.queryThread = new Thread(this::runQuery, "summary-query");
+		ingestThread.setDaemon(true);
+		queryThread.setDaemon(true);
+		ingestThread.start();
+		queryThread.start();
+		logger.info("Ingesting on {} and answering queries on {}...", ingestAddress(), queryAddress());
+	}
+
+	public InetSocketAddress ingestAddress() throws IOException {
+		return (InetSocketAddress) ingest.getLocalAddress();
+	}
+
+	public InetSocketAddress queryAddress() throws IOException {
+		return (InetSocketAddress) query.getLocalAddress();
+	}
+
+	/**
+	 * Returns the last published snapshot of the summary
+	 */
+	public StreamSummary<String> snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Stops the server, closing all the connections
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		ingestSelector.wakeup();
+		querySelector.wakeup();
+		try {
+			ingestThread.join();
+			queryThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.info("Server is closed.");
+	}
+
+	private static ServerSocketChannel bind(InetSocketAddress address, Selector selector) throws IOException {
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		channel.bind(address);
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_ACCEPT);
+		return channel;
+	}
+
+	private void runIngest() {
+		ByteTokenStream stream = null;
+		long published = System.nanoTime();
+		long lastTotal = 0;
+		try {
+			while (!closed) {
+				ingestSelector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(refreshNanos)));
+				Iterator<SelectionKey> keys = ingestSelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isAcceptable()) {
+						accept(ingest, ingestSelector, new Producer());
+					} else if (key.isReadable()) {
+						Producer producer = (Producer) key.attachment();
+						if (stream == null)
+							stream = new ByteTokenStream(producer.view);
+						ingest(key, producer, stream);
+					}
+				}
+
+				long now = System.nanoTime();
+				if (now - published >= refreshNanos && summary.total() != lastTotal) {
+					publish();
+					published = now;
+					lastTotal = summary.total();
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Ingestion failed: " + e.getMessage(), e);
+		} finally {
+			publish();
+			closeAll(ingestSelector, ingest);
+		}
+	}
+
+	private void ingest(SelectionKey key, Producer producer, ByteTokenStream stream) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		ByteBuffer input = producer.input;
+		int read;
+		try {
+			read = channel.read(input);
+		} catch (IOException e) {
+			logger.debug("Producer failed: {}", e.getMessage());
+			read = -1;
+		}
+		int length = input.position();
+		if (producer.dropping)
+			length = drop(producer, length);
+		if (read < 0) {
+			// Summarize the rest, and close the connection:
+			summarize(producer, length, stream);
+			key.cancel();
+			channel.close();
+			return;
+		}
+
+		// Cut right after the last separator, and carry over the rest:
+		int cut = length;
+		while (cut > 0 && !ByteTokenStream.isSeparator(producer.bytes[cut - 1]))
+			cut--;
+		if (cut == 0) {
+			if (length == producer.bytes.length) {
+				// A token can't be that long, drop it (up to the next separator):
+				logger.debug("Dropping a token longer than {} bytes...", length);
+				producer.dropping = true;
+				((Buffer) input).position(0);
+			}
+			return;
+		}
+		summarize(producer, cut, stream);
+		System.arraycopy(producer.bytes, cut, producer.bytes, 0, length - cut);
+		((Buffer) input).position(length - cut);
+	}
+
+	/**
+	 * Drops the (read) rest of a dropped token, up to the next separator, and returns the length left
+	 */
+	private static int drop(Producer producer, int length) {
+		int start = 0;
+		while (start < length && !ByteTokenStream.isSeparator(producer.bytes[start]))
+			start++;
+		producer.dropping = start == length;
+		System.arraycopy(producer.bytes, start, producer.bytes, 0, length - start);
+		((Buffer) producer.input).position(length - start);
+		return length - start;
+	}
+
+	private void summarize(Producer producer, int length, ByteTokenStream stream) throws IOException {
+		ByteBuffer view = producer.view;
+		((Buffer) view).limit(length);
+		((Buffer) view).position(0);
+		stream.reset(view);
+		while (stream.advance())
+			summary.addView(stream);
+	}
+
+	private void publish() {
+		LinkedStreamSummary<String> copy = new LinkedStreamSummary<>(size);
+		copy.merge(summary);
+		snapshot = copy;
+	}
+
+	private void runQuery() {
+		try {
+			while (!closed) {
+				querySelector.select();
+				Iterator<SelectionKey> keys = querySelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept(query, querySelector, new Client());
+						continue;
+					}
+					if (key.isReadable())
+						read(key);
+					if (key.isValid() && key.isWritable())
+						write(key);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Query failed: " + e.getMessage(), e);
+		} finally {
+			closeAll(querySelector, query);
+		}
+	}
+
+	private void read(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Client client = (Client) key.attachment();
+		int read;
+		try {
+			read = channel.read(client.input);
+		} catch (IOException e) {
+			read = -1;
+		}
+		if (read < 0) {
+			key.cancel();
+			channel.close();
+			return;
+		}
+		serve(key);
+	}
+
+	private void write(SelectionKey key) throws IOException {
+		serve(key);
+	}
+
+	/**
+	 * Writes the pending answer, and answers the next (read) requests once it's written.
+	 * The client isn't read while an answer is pending, so a client which doesn't read
+	 * its answers (e.g. pipelines requests) holds at most one answer in the server.
+	 */
+	private void serve(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Client client = (Client) key.attachment();
+		while (true) {
+			if (client.output != null) {
+				channel.write(client.output);
+				if (client.output.hasRemaining()) {
+					key.interestOps(SelectionKey.OP_WRITE);
+					return;
+				}
+				client.output = null;
+			}
+			String request = client.request();
+			if (request == null)
+				break;
+			if (!request.isEmpty()) {
+				StringBuilder response = new StringBuilder();
+				answer(request, response);
+				client.output = ByteBuffer.wrap(response.toString().getBytes(UTF_8));
+			}
+		}
+		if (!client.input.hasRemaining()) {
+			// A request can't be that long:
+			key.cancel();
+			channel.close();
+			return;
+		}
+		key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Answers a request, from the last snapshot
+	 */
+	void answer(String request, StringBuilder response) {
+		StreamSummary<String> snapshot = this.snapshot;
+		String[] parts = request.split("\\s+", 2);
+		switch (parts[0].toUpperCase()) {
+			case "TOPK":
+				try {
+					append(snapshot.topK(parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 10), response);
+				} catch (NumberFormatException e) {
+					response.append("ERROR k is not a number!\n");
+				}
+				break;
+			case "ESTIMATE":
+				if (parts.length < 2) {
+					response.append("ERROR element is missing!\n");
+					break;
+				}
+				Estimate estimate = snapshot.estimate(lowerAscii(parts[1].trim()));
+				response.append(estimate.count()).append(' ').append(estimate.error())
+						.append(' ').append(estimate.monitored()).append('\n');
+				break;
+			case "SNAPSHOT":
+				response.append("total ").append(snapshot.total()).append('\n');
+				append(snapshot.sortedFrequencies(), response);
+				break;
+			default:
+				response.append("ERROR unknown request ").append(parts[0]).append("!\n");
+		}
+		response.append('\n');
+	}
+
+	private static void append(Map<SummaryElement<String>, Integer> frequencies, StringBuilder response) {
+		frequencies.forEach((element, count) -> response.append(element.get())
+				.append(' ').append(count)
+				.append(' ').append(element.error())
+				.append('\n'));
+	}
+
+	private static String lowerAscii(String element) {
+		// The same as the tokens, only ASCII letters are lowercased:
+		char[] chars = element.toCharArray();
+		for (int idx = 0; idx < chars.length; idx++)
+			if (chars[idx] >= 'A' && chars[idx] <= 'Z')
+				chars[idx] += 'a' - 'A';
+		return new String(chars);
+	}
+
+	private static void accept(ServerSocketChannel server, Selector selector, Object attachment) throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, attachment);
+	}
+
+	private static void closeAll(Selector selector, ServerSocketChannel server) {
+		try {
+			for (SelectionKey key : selector.keys())
+				key.channel().close();
+			selector.close();
+			server.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close the server: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * State of an ingest connection
+	 */
+	private static final class Producer {
+		private final byte[] bytes = new byte[BUFFER_SIZE];
+		private final ByteBuffer input = ByteBuffer.wrap(bytes);
+		private final ByteBuffer view = ByteBuffer.wrap(bytes);
+		private boolean dropping;
+	}
+
+	/**
+	 * State of a query connection
+	 */
+	private static final class Client {
+		private final ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST);
+		private ByteBuffer output;
+
+		/**
+		 * Takes the next (complete) request of the input, or null if there is none.
+		 */
+		private String request() {
+			for (int idx = 0; idx < input.position(); idx++) {
+				if (input.get(idx) != '\n')
+					continue;
+				String line = new String(input.array(), 0, idx, UTF_8).trim();
+				((Buffer) input).flip();
+				((Buffer) input).position(idx + 1);
+				input.compact();
+				return line;
+			}
+			return null;
+		}
+	}
+}
@@ -1,35 +1,43 @@
 package com.akefirad.spacesaving.stream;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.toMap;
 
 /**
  * Base class for streams, implementing general functionality.
+ * The (real) frequencies of the elements are tracked by a {@link FrequencyTracker},
+ * all of them by default; it can be turned off (or sampled) for large streams.
  *
  * @param <T> type of element (token)
  */
 public abstract class AbstractSimpleStream<T> implements SimpleStream<T> {
-	private final Map<T, Integer> frequencies;
+	private final FrequencyTracker<T> tracker;
+	private StreamListener listener = StreamListener.NONE;
 
 	public AbstractSimpleStream() {
-		this.frequencies = new HashMap<>();
+		this(FrequencyTracker.exact());
+	}
+
+	public AbstractSimpleStream(FrequencyTracker<T> tracker) {
+		assertNotNull(tracker, "tracker");
+		this.tracker = tracker;
 	}
 
 	@Override
 	public Map<T, Integer> frequencies() {
-		return unmodifiableMap(frequencies);
+		return unmodifiableMap(tracker.frequencies());
 	}
 
 	@Override
 	public Map<T, Integer> sortedFrequencies() {
-		return unmodifiableMap(frequencies.entrySet().stream()
+		return unmodifiableMap(tracker.frequencies().entrySet().stream()
 				.sorted(Map.Entry.<T, Integer>comparingByValue().reversed())
 				.collect(toMap(Map.Entry::getKey, Map.Entry::getValue,
 						(e1, e2) -> e1, LinkedHashMap::new)));
@@ -37,7 +45,7 @@ public abstract class AbstractSimpleStream<T> implements SimpleStream<T> {
 
 	@Override
 	public Map<T, Integer> frequencies(Set<T> alphabets) {
-		return unmodifiableMap(frequencies.entrySet().stream()
+		return unmodifiableMap(tracker.frequencies().entrySet().stream()
 				.filter(map -> alphabets.contains(map.getKey()))
 				.collect(toMap(Entry::getKey, Entry::getValue)));
 	}
@@ -46,12 +54,22 @@ public abstract class AbstractSimpleStream<T> implements SimpleStream<T> {
 	public T next() throws IOException {
 		T next = doNext();
 		if (next != null) {
-			Integer count = frequencies.get(next);
-			frequencies.put(next, count == null ? 1 : count + 1);
+			listener.onToken();
+			tracker.track(next);
 		}
 		return next;
 	}
 
+	/**
+	 * Sets the listener of the tokens of the stream (e.g. for metrics)
+	 *
+	 * @param listener listener, or {@link StreamListener#NONE}
+	 */
+	public void setListener(StreamListener listener) {
+		assertNotNull(listener, "listener");
+		this.listener = listener;
+	}
+
 	protected abstract T doNext() throws IOException;
 }
 
@@ -0,0 +1,249 @@
+package com.akefirad.spacesaving.stream;
+
+import com.akefirad.spacesaving.summary.KeyView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A stream with non-empty lowercase string tokens, tokenizing (UTF-8) bytes directly
+ * over a window, instead of reading lines and splitting them.
+ * Notes:
+ * 1. Tokens are separated by (ASCII) whitespaces, and ASCII letters are lowercased
+ * in place; other (non ASCII) characters are kept as they are.
+ * 2. After {@link #advance()}, the stream itself is a {@link KeyView} of the current
+ * token, so a summary can look it up (hashing the bytes) without creating a String.
+ * 3. {@link #next()} materializes the token, so it works as any other stream.
+ * 4. The input is either a channel (or input stream) or a (e.g. mapped) byte buffer,
+ * which is copied to the window in bulk; a stream over a buffer can be {@link #reset(ByteBuffer)}
+ * to another buffer, reusing the window.
+ */
+public class ByteTokenStream implements Stream<String>, KeyView<String> {
+	private static final int WINDOW_SIZE = 64 * 1024;
+
+	private final ReadableByteChannel channel;
+	private ByteBuffer source;
+	private byte[] window;
+	private ByteBuffer windowBuffer;
+
+	private int start;
+	private int position;
+	private int limit;
+
+	private int offset;
+	private int length;
+	private int hash;
+	private boolean ascii;
+	private String token;
+	private StreamListener listener = StreamListener.NONE;
+
+	public ByteTokenStream(InputStream input) {
+		this(Channels.newChannel(input));
+	}
+
+	public ByteTokenStream(ReadableByteChannel channel) {
+		this(channel, null, WINDOW_SIZE);
+	}
+
+	public ByteTokenStream(ByteBuffer source) {
+		this(null, source, WINDOW_SIZE);
+	}
+
+	private ByteTokenStream(ReadableByteChannel channel, ByteBuffer source, int windowSize) {
+		assertNotNull(channel == null ? source : channel, "input");
+		assertValidSize(windowSize, "window size");
+		this.channel = channel;
+		this.source = source;
+		this.window = new byte[windowSize];
+		this.windowBuffer = ByteBuffer.wrap(window);
+	}
+
+	/**
+	 * Moves to the next token.
+	 *
+	 * @return false if there is no more token
+	 */
+	public boolean advance() throws IOException {
+		token = null;
+
+		// Skip the separators:
+		while (true) {
+			while (position < limit && isSeparator(window[position]))
+				position++;
+			if (position < limit)
+				break;
+			start = position;
+			if (!fill())
+				return false;
+		}
+
+		// Read (and lowercase) the token:
+		start = position;
+		int hash = 0;
+		boolean ascii = true;
+		while (true) {
+			byte[] window = this.window;
+			int position = this.position;
+			int limit = this.limit;
+			while (position < limit) {
+				byte b = window[position];
+				if (isSeparator(b))
+					break;
+				if (b >= 'A' && b <= 'Z')
+					window[position] = b += 'a' - 'A';
+				ascii &= b >= 0;
+				hash = 31 * hash + b;
+				position++;
+			}
+			this.position = position;
+			if (position < limit || !fill())
+				break;
+		}
+
+		this.offset = start;
+		this.length = position - start;
+		this.hash = hash;
+		this.ascii = ascii;
+		listener.onToken();
+		return true;
+	}
+
+	/**
+	 * Restarts the stream over the given buffer, reusing the window.
+	 *
+	 * @param source buffer to tokenize (from its position to its limit)
+	 */
+	public void reset(ByteBuffer source) {
+		assertNotNull(source, "source");
+		if (channel != null)
+			throw new IllegalStateException("stream is reading a channel!");
+		this.source = source;
+		this.start = this.position = this.limit = 0;
+		this.offset = this.length = 0;
+		this.token = null;
+	}
+
+	@Override
+	public String next() throws IOException {
+		return advance() ? materialize() : null;
+	}
+
+	/**
+	 * Sets the listener of the tokens of the stream (e.g. for metrics)
+	 *
+	 * @param listener listener, or {@link StreamListener#NONE}
+	 */
+	public void setListener(StreamListener listener) {
+		assertNotNull(listener, "listener");
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the window containing the current token
+	 */
+	public byte[] array() {
+		return window;
+	}
+
+	/**
+	 * Returns the offset of the current token in the window
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the length (in bytes) of the current token
+	 */
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public int keyHash() {
+		// The hash of the bytes is the same as the hash of the string only for ASCII:
+		return ascii ? hash : materialize().hashCode();
+	}
+
+	@Override
+	public boolean matches(String element) {
+		if (!ascii)
+			return materialize().equals(element);
+		if (element.length() != length)
+			return false;
+		for (int idx = 0; idx < length; idx++)
+			if (element.charAt(idx) != window[offset + idx])
+				return false;
+		return true;
+	}
+
+	@Override
+	public String materialize() {
+		if (token == null)
+			token = new String(window, offset, length, ascii ? ISO_8859_1 : UTF_8);
+		return token;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null)
+			channel.close();
+	}
+
+	/**
+	 * Returns whether the given byte separates tokens
+	 */
+	public static boolean isSeparator(byte b) {
+		// Same as Character.isWhitespace for ASCII:
+		return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+	}
+
+	/**
+	 * Reads more bytes in to the window, keeping the bytes from the start (of the current token).
+	 *
+	 * @return false if there is no more byte
+	 */
+	private boolean fill() throws IOException {
+		if (start > 0) {
+			System.arraycopy(window, start, window, 0, limit - start);
+			limit -= start;
+			position -= start;
+			start = 0;
+		}
+		if (limit == window.length) {
+			// A token as big as the window:
+			byte[] bigger = new byte[window.length * 2];
+			System.arraycopy(window, 0, bigger, 0, limit);
+			window = bigger;
+			windowBuffer = ByteBuffer.wrap(window);
+		}
+
+		int read;
+		if (source != null) {
+			read = Math.min(source.remaining(), window.length - limit);
+			if (read == 0)
+				return false;
+			source.get(window, limit, read);
+		} else {
+			// Cast to Buffer, to run on Java 8 as well:
+			((Buffer) windowBuffer).limit(window.length);
+			((Buffer) windowBuffer).position(limit);
+			do {
+				read = channel.read(windowBuffer);
+			} while (read == 0);
+			if (read < 0)
+				return false;
+		}
+		limit += read;
+		return true;
+	}
+}
@@ -7,25 +7,79 @@ import java.io.Reader;
 import static java.lang.Character.isLetterOrDigit;
 
 /**
- * This stream gives only letters or digits characters
+ * This stream gives only letters or digits characters.
+ * The reader is read in bulk, in to a buffer; the characters can also be read in
+ * bulk by {@link #read(char[], int, int)}, e.g. to be counted by a
+ * {@link com.akefirad.spacesaving.summary.CharacterStreamSummary} without boxing
+ * them; the characters read in bulk are not tracked (see {@link FrequencyTracker}).
  */
 public class CharacterStream extends AbstractSimpleStream<Character> {
+	private static final int BUFFER_SIZE = 8192;
+
 	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
 
 	public CharacterStream(Reader reader) {
+		this(reader, FrequencyTracker.exact());
+	}
+
+	public CharacterStream(Reader reader, FrequencyTracker<Character> tracker) {
+		super(tracker);
 		this.reader = reader;
 	}
 
 	@Override
 	protected Character doNext() throws IOException {
-		int c = reader.read();
-		while (c != -1 && !isLetterOrDigit((char) c))
-			c = reader.read();
-		return (c == -1) ? null : (char) c;
+		while (true) {
+			while (position < limit) {
+				char c = buffer[position++];
+				if (isLetterOrDigit(c))
+					return c;
+			}
+			if (!fill())
+				return null;
+		}
+	}
+
+	/**
+	 * Reads the next letters or digits in to the given array.
+	 *
+	 * @return number of the characters read, or -1 if there is no more character
+	 */
+	public int read(char[] chars, int offset, int length) throws IOException {
+		int count = 0;
+		while (count < length) {
+			char[] buffer = this.buffer;
+			int position = this.position;
+			int limit = Math.min(this.limit, position + length - count);
+			while (position < limit) {
+				char c = buffer[position++];
+				if (isLetterOrDigit(c))
+					chars[offset + count++] = c;
+			}
+			this.position = position;
+			if (count > 0 && position == this.limit)
+				break;
+			if (position == this.limit && !fill())
+				break;
+		}
+		return count == 0 && length > 0 ? -1 : count;
 	}
 
 	@Override
 	public void close() throws IOException {
 		reader.close();
 	}
+
+	private boolean fill() throws IOException {
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		position = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
 }
@@ -0,0 +1,58 @@
+package com.akefirad.spacesaving.stream;
+
+import java.util.Map;
+
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+
+/**
+ * Tracks the exact (real) frequencies of the elements of a stream, e.g. to
+ * evaluate the accuracy of a summary. Tracking every element takes memory
+ * proportional to the distinct elements of the stream, so it can be turned off
+ * ({@link #none()}) or limited to a sample of the elements ({@link #sampled(double)}).
+ *
+ * @param <T> type of element (token)
+ */
+public interface FrequencyTracker<T> {
+	/**
+	 * Tracks an occurrence of the given element
+	 *
+	 * @param element element (token)
+	 */
+	void track(T element);
+
+	/**
+	 * Returns the tracked frequencies (a copy)
+	 *
+	 * @return frequencies in a map containing element, counter
+	 */
+	Map<T, Integer> frequencies();
+
+	/**
+	 * A tracker tracking nothing, with no cost (and no frequencies)
+	 */
+	static <T> FrequencyTracker<T> none() {
+		return FrequencyTrackers.none();
+	}
+
+	/**
+	 * A tracker tracking all the elements, with a mutable (primitive) counter
+	 * per element, so an occurrence is a single lookup without boxing.
+	 */
+	static <T> FrequencyTracker<T> exact() {
+		return new FrequencyTrackers.Exact<>(element -> true);
+	}
+
+	/**
+	 * A tracker tracking the exact frequencies of a (consistent) sample of the
+	 * elements, chosen by their hash codes; every occurrence of a sampled element
+	 * is tracked, so the frequencies of the sample are exact.
+	 *
+	 * @param ratio ratio of the (distinct) elements to track
+	 */
+	static <T> FrequencyTracker<T> sampled(double ratio) {
+		assertValidRatio(ratio, "ratio");
+		// Compare the (mixed) hash codes with a threshold, in 24 bits:
+		int threshold = (int) Math.ceil(ratio * (1 << 24));
+		return new FrequencyTrackers.Exact<>(element -> FrequencyTrackers.sample(element) < threshold);
+	}
+}
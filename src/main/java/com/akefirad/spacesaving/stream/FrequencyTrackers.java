@@ -0,0 +1,64 @@
+package com.akefirad.spacesaving.stream;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The built-in frequency trackers (see {@link FrequencyTracker}).
+ */
+final class FrequencyTrackers {
+	private static final FrequencyTracker<Object> NONE = new FrequencyTracker<Object>() {
+		@Override
+		public void track(Object element) {
+		}
+
+		@Override
+		public Map<Object, Integer> frequencies() {
+			return Collections.emptyMap();
+		}
+	};
+
+	private FrequencyTrackers() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> FrequencyTracker<T> none() {
+		return (FrequencyTracker<T>) NONE;
+	}
+
+	/**
+	 * Returns the (mixed) hash code of the given element, in 24 bits
+	 */
+	static int sample(Object element) {
+		int hash = element.hashCode() * 0x9E3779B9;
+		return hash >>> 8;
+	}
+
+	static final class Exact<T> implements FrequencyTracker<T> {
+		private final Predicate<T> filter;
+		private final Map<T, int[]> counts;
+
+		Exact(Predicate<T> filter) {
+			this.filter = filter;
+			this.counts = new HashMap<>();
+		}
+
+		@Override
+		public void track(T element) {
+			int[] count = counts.get(element);
+			if (count != null)
+				count[0]++;
+			else if (filter.test(element))
+				counts.put(element, new int[]{1});
+		}
+
+		@Override
+		public Map<T, Integer> frequencies() {
+			Map<T, Integer> map = new HashMap<>(counts.size() * 2);
+			counts.forEach((element, count) -> map.put(element, count[0]));
+			return map;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.akefirad.spacesaving.stream;
+
+/**
+ * Listener of the tokens of a stream, e.g. for metrics.
+ * The methods are called on the reading thread, so they must be cheap;
+ * the default (no-op) listener costs nothing once inlined.
+ */
+public interface StreamListener {
+	/**
+	 * A listener doing nothing, the default one
+	 */
+	StreamListener NONE = new StreamListener() {
+	};
+
+	/**
+	 * A token is read
+	 */
+	default void onToken() {
+	}
+}
@@ -22,6 +22,11 @@ public class StringStream extends AbstractSimpleStream<String> {
 	private Iterator<String> elements;
 
 	public StringStream(Reader reader) {
+		this(reader, FrequencyTracker.exact());
+	}
+
+	public StringStream(Reader reader, FrequencyTracker<String> tracker) {
+		super(tracker);
 		this.reader = new BufferedReader(reader);
 		this.elements = emptyIterator();
 	}
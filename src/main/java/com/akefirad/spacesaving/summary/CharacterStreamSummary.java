@@ -0,0 +1,243 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Summary of (BMP) characters, exact as long as the alphabet is small.
+ * Notes:
+ * 1. Characters are counted in a dense histogram of long counters, indexed by
+ * the character, in pages of 256 characters which are only allocated when used.
+ * So counting a character is an array increment, and counting a bulk of characters
+ * (see {@link #add(char[], int, int)}) is a tight loop over the array.
+ * 2. The counts are exact (without any error) while there are at most size distinct
+ * characters; once the alphabet overflows, the histogram is merged in to a
+ * {@link LinkedStreamSummary} of the same size, and the rest of the stream is
+ * summarized by Space Saving algorithm.
+ */
+public class CharacterStreamSummary implements StreamSummary<Character> {
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private final int size;
+	private final long[][] pages = new long[(Character.MAX_VALUE + 1) >>> PAGE_BITS][];
+	private int distinct;
+	private long total;
+	private LinkedStreamSummary<Character> fallback;
+
+	public CharacterStreamSummary(int size) {
+		assertValidSize(size, "size of stream summary");
+		this.size = size;
+	}
+
+	@Override
+	public void add(Character element) {
+		assertNotNull(element, "value");
+		add(element.charValue(), 1);
+	}
+
+	@Override
+	public void add(Character element, long weight) {
+		assertNotNull(element, "value");
+		add(element.charValue(), weight);
+	}
+
+	/**
+	 * Add (monitor) a character in to the summary
+	 *
+	 * @param element character
+	 */
+	public void add(char element) {
+		add(element, 1);
+	}
+
+	/**
+	 * Add (monitor) a character in to the summary, as if it's added weight times
+	 *
+	 * @param element character
+	 * @param weight  number of occurrences, positive
+	 */
+	public void add(char element, long weight) {
+		assertValidWeight(weight, "weight");
+		if (fallback == null) {
+			long[] page = page(element);
+			int idx = element & PAGE_MASK;
+			if (page[idx] > 0 || distinct < size) {
+				if (page[idx] == 0)
+					distinct++;
+				page[idx] += weight;
+				total += weight;
+				return;
+			}
+			// The alphabet overflows:
+			overflow();
+		}
+		fallback.add(element, weight);
+	}
+
+	/**
+	 * Add (monitor) the given characters in to the summary
+	 *
+	 * @param chars  array containing the characters
+	 * @param offset offset of the characters in the array
+	 * @param length number of the characters
+	 */
+	public void add(char[] chars, int offset, int length) {
+		assertNotNull(chars, "chars");
+		int end = offset + length;
+		for (int idx = offset; idx < end; idx++) {
+			if (fallback != null) {
+				fallback.add(chars[idx]);
+				continue;
+			}
+			char c = chars[idx];
+			long[] page = pages[c >>> PAGE_BITS];
+			if (page == null || page[c & PAGE_MASK] == 0) {
+				// A new character, add it one by one:
+				add(c, 1);
+				continue;
+			}
+			page[c & PAGE_MASK]++;
+			total++;
+		}
+	}
+
+	/**
+	 * Returns whether the counts are exact (the alphabet has not overflowed)
+	 */
+	public boolean exact() {
+		return fallback == null;
+	}
+
+	/**
+	 * Returns the (exact) count of the given character while the summary is exact,
+	 * otherwise its (overestimated) count, or zero if it's not monitored.
+	 */
+	public long count(char element) {
+		if (fallback != null) {
+			Estimate estimate = fallback.estimate(element);
+			return estimate.monitored() ? estimate.count() : 0;
+		}
+		long[] page = pages[element >>> PAGE_BITS];
+		return page == null ? 0 : page[element & PAGE_MASK];
+	}
+
+	@Override
+	public void merge(StreamSummary<Character> other) {
+		assertNotNull(other, "other");
+		if (fallback == null && other instanceof CharacterStreamSummary && ((CharacterStreamSummary) other).exact()) {
+			// Both are exact, add the counts (it might overflow):
+			((CharacterStreamSummary) other).forEach(this::add);
+			return;
+		}
+		overflow();
+		fallback.merge(other);
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return fallback != null ? fallback.total() : total;
+	}
+
+	@Override
+	public Map<SummaryElement<Character>, Integer> frequencies() {
+		if (fallback != null)
+			return fallback.frequencies();
+		Map<SummaryElement<Character>, Integer> map = new HashMap<>();
+		forEach((c, count) -> map.put(new SummaryElement<>(c), count));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<Character>, Integer> sortedFrequencies() {
+		if (fallback != null)
+			return fallback.sortedFrequencies();
+		List<Map.Entry<SummaryElement<Character>, Integer>> entries = new ArrayList<>();
+		forEach((c, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(new SummaryElement<>(c), count)));
+		entries.sort(Map.Entry.<SummaryElement<Character>, Integer>comparingByValue().reversed());
+		Map<SummaryElement<Character>, Integer> map = new LinkedHashMap<>();
+		entries.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<Character>, Integer> mostFrequents() {
+		if (fallback != null)
+			return fallback.mostFrequents();
+		// Exact counts, every character is more frequent than the next one (if not equal):
+		Map<SummaryElement<Character>, Integer> map = new LinkedHashMap<>();
+		List<Map.Entry<SummaryElement<Character>, Integer>> entries = new ArrayList<>(sortedFrequencies().entrySet());
+		for (int idx = 0; idx < entries.size() - 1; idx++)
+			if (entries.get(idx).getValue() > entries.get(idx + 1).getValue())
+				map.put(entries.get(idx).getKey(), entries.get(idx).getValue());
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(Character element) {
+		assertNotNull(element, "value");
+		if (fallback != null)
+			return fallback.estimate(element);
+		long count = count(element);
+		return new Estimate(Math.toIntExact(count), 0, count > 0);
+	}
+
+	@Override
+	public String toString() {
+		if (fallback != null)
+			return fallback.toString();
+		StringBuilder sb = new StringBuilder("{");
+		forEach((c, count) -> sb.append(c).append(":").append(count).append(":0, "));
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private long[] page(char element) {
+		long[] page = pages[element >>> PAGE_BITS];
+		if (page == null)
+			pages[element >>> PAGE_BITS] = page = new long[PAGE_SIZE];
+		return page;
+	}
+
+	private void forEach(CharacterCount action) {
+		for (int p = 0; p < pages.length; p++) {
+			long[] page = pages[p];
+			if (page == null)
+				continue;
+			for (int idx = 0; idx < PAGE_SIZE; idx++)
+				if (page[idx] > 0)
+					action.accept((char) (p << PAGE_BITS | idx), Math.toIntExact(page[idx]));
+		}
+	}
+
+	/**
+	 * Moves the (exact) counts in to a Space Saving summary.
+	 */
+	private void overflow() {
+		if (fallback != null)
+			return;
+		LinkedStreamSummary<Character> summary = new LinkedStreamSummary<>(size);
+		// Insert in ascending order of the counts, so the summary keeps the biggest ones:
+		List<Map.Entry<SummaryElement<Character>, Integer>> entries = new ArrayList<>();
+		forEach((c, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(new SummaryElement<>(c), count)));
+		entries.sort(Map.Entry.comparingByValue());
+		entries.forEach(entry -> summary.add(entry.getKey().get(), entry.getValue()));
+		fallback = summary;
+		Arrays.fill(pages, null);
+	}
+
+	@FunctionalInterface
+	private interface CharacterCount {
+		void accept(char c, int count);
+	}
+}
@@ -0,0 +1,242 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.lang.Thread.currentThread;
+
+/**
+ * Thread-safe implementation of Space Saving algorithm.
+ * Notes:
+ * 1. Elements are added to one of the (striped) sub-summaries, each one of them
+ * guarded by its own lock. A thread always starts with the same stripe, and
+ * only if it's locked by another thread, it tries the other stripes.
+ * 2. Each stripe summarizes a disjoint part of the stream, so the stripes are
+ * merged (see {@link StreamSummary#merge(StreamSummary)}) when queried.
+ * 3. To get a consistent snapshot, all the stripes are locked while their
+ * counters are being copied; the merge is done after releasing the locks.
+ *
+ * @param <T> type of stream token
+ */
+public class ConcurrentStreamSummary<T> implements StreamSummary<T> {
+	private final int size;
+	private final List<LinkedStreamSummary<T>> stripes;
+	private final ReentrantLock[] locks;
+
+	public ConcurrentStreamSummary(int size) {
+		this(size, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ConcurrentStreamSummary(int size, int stripes) {
+		assertValidSize(size, "size of stream summary");
+		assertValidSize(stripes, "number of stripes");
+		this.size = size;
+		this.stripes = new ArrayList<>(stripes);
+		this.locks = new ReentrantLock[stripes];
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			this.stripes.add(new LinkedStreamSummary<>(size));
+			this.locks[stripe] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	public void add(T element) {
+		add(element, 1);
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		assertNotNull(element, "value");
+		int stripe = lock();
+		try {
+			stripes.get(stripe).add(element, weight);
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	@Override
+	public void addView(KeyView<T> view) {
+		assertNotNull(view, "view");
+		int stripe = lock();
+		try {
+			stripes.get(stripe).addView(view);
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	@Override
+	public void addAll(Iterable<? extends T> elements) {
+		assertNotNull(elements, "elements");
+		addAll(WeightedBatch.aggregate(elements));
+	}
+
+	@Override
+	public void addAll(T[] elements, long[] weights) {
+		assertNotNull(elements, "elements");
+		assertNotNull(weights, "weights");
+		addAll(WeightedBatch.aggregate(elements, weights));
+	}
+
+	private void addAll(Map<T, long[]> batch) {
+		// The batch is aggregated before locking, and added to one stripe:
+		int stripe = lock();
+		try {
+			StreamSummary<T> summary = stripes.get(stripe);
+			batch.forEach((element, weight) -> summary.add(element, weight[0]));
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	/**
+	 * Locks a stripe, starting from the home stripe of the current thread.
+	 *
+	 * @return the locked stripe
+	 */
+	private int lock() {
+		int home = (int) (currentThread().getId() % locks.length);
+		int stripe = home;
+		do {
+			if (locks[stripe].tryLock())
+				return stripe;
+			stripe = (stripe + 1) % locks.length;
+		} while (stripe != home);
+
+		// All the stripes are busy, wait for the home one:
+		locks[home].lock();
+		return home;
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		assertNotNull(other, "summary");
+		StreamSummary<T> copy = other == this ? snapshot() : other;
+		int stripe = lock();
+		try {
+			stripes.get(stripe).merge(copy);
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	/**
+	 * Sets the listener of the events of all the stripes, it must be thread-safe
+	 *
+	 * @param listener listener, or {@link SummaryListener#NONE}
+	 */
+	public void setListener(SummaryListener listener) {
+		assertNotNull(listener, "listener");
+		for (int stripe = 0; stripe < locks.length; stripe++) {
+			locks[stripe].lock();
+			try {
+				stripes.get(stripe).setListener(listener);
+			} finally {
+				locks[stripe].unlock();
+			}
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	/**
+	 * Returns a consistent (point in time) copy of the summary, merged from all the stripes.
+	 *
+	 * @return a new (non thread-safe) summary
+	 */
+	public StreamSummary<T> snapshot() {
+		List<StreamSummary<T>> copies = new ArrayList<>(stripes.size());
+		for (ReentrantLock lock : locks)
+			lock.lock();
+		try {
+			for (StreamSummary<T> stripe : stripes) {
+				StreamSummary<T> copy = new LinkedStreamSummary<>(size);
+				copy.merge(stripe);
+				copies.add(copy);
+			}
+		} finally {
+			for (ReentrantLock lock : locks)
+				lock.unlock();
+		}
+
+		StreamSummary<T> snapshot = copies.get(0);
+		copies.subList(1, copies.size()).forEach(snapshot::merge);
+		return snapshot;
+	}
+
+	@Override
+	public long total() {
+		long total = 0;
+		for (ReentrantLock lock : locks)
+			lock.lock();
+		try {
+			for (StreamSummary<T> stripe : stripes)
+				total += stripe.total();
+		} finally {
+			for (ReentrantLock lock : locks)
+				lock.unlock();
+		}
+		return total;
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		assertNotNull(element, "value");
+		// Same as merging the estimates of the stripes:
+		int count = 0;
+		int error = 0;
+		boolean monitored = false;
+		for (ReentrantLock lock : locks)
+			lock.lock();
+		try {
+			for (StreamSummary<T> stripe : stripes) {
+				Estimate estimate = stripe.estimate(element);
+				count = Math.addExact(count, estimate.count());
+				error += estimate.error();
+				monitored |= estimate.monitored();
+			}
+		} finally {
+			for (ReentrantLock lock : locks)
+				lock.unlock();
+		}
+		return new Estimate(count, error, monitored);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		return snapshot().topK(k);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		return snapshot().heavyHitters(phi);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return snapshot().frequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return snapshot().sortedFrequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		return snapshot().mostFrequents();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
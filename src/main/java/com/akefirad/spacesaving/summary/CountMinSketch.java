@@ -0,0 +1,107 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.Arrays;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+
+/**
+ * A Count-Min sketch with conservative update, used as the admission filter of
+ * a summary: a new element only replaces the minimum counter once its sketched
+ * frequency passes the minimum count.
+ * Notes:
+ * 1. The sketch is a matrix of int cells (depth rows, width columns), an element
+ * is mapped to a cell per row, by (double) hashing its (spread) hash code.
+ * 2. Its estimate is the minimum of its cells, which never underestimates the
+ * occurrences added to it; a conservative update only raises the cells below
+ * the new estimate, which keeps the estimates as tight as possible.
+ * 3. An evicted counter is {@link #raise(int, int) raised} in to the sketch, so the
+ * estimate of an element not monitored by the summary is always an upper bound
+ * of its (real) frequency.
+ * 4. A sketch belongs to a single summary.
+ */
+public class CountMinSketch {
+	private final int[] cells;
+	private final int width;
+	private final int depth;
+	private final int mask;
+
+	/**
+	 * @param width number of the cells per row (rounded up to a power of two), e.g.
+	 *              eight times the size of the summary
+	 * @param depth number of the rows, e.g. four
+	 */
+	public CountMinSketch(int width, int depth) {
+		assertValidSize(width, "width");
+		assertValidSize(depth, "depth");
+		this.width = Integer.highestOneBit(Math.max(width, 2) - 1) << 1;
+		this.depth = depth;
+		this.mask = this.width - 1;
+		this.cells = new int[Math.multiplyExact(this.width, depth)];
+	}
+
+	/**
+	 * Adds the occurrences of the element with the given hash (conservative update)
+	 *
+	 * @param hash   (spread) hash code of the element
+	 * @param weight number of occurrences
+	 * @return the new estimate of the element
+	 */
+	public int add(int hash, long weight) {
+		assertValidWeight(weight, "weight");
+		int estimate = Math.toIntExact(estimate(hash) + weight);
+		raise(hash, estimate);
+		return estimate;
+	}
+
+	/**
+	 * Raises the estimate of the element with the given hash to (at least) the given count
+	 *
+	 * @param hash  (spread) hash code of the element
+	 * @param count count of the element
+	 */
+	public void raise(int hash, int count) {
+		int step = step(hash);
+		for (int row = 0, offset = 0; row < depth; row++, offset += width) {
+			int index = offset + ((hash + row * step) & mask);
+			if (cells[index] < count)
+				cells[index] = count;
+		}
+	}
+
+	/**
+	 * Returns the estimate of the element with the given hash
+	 *
+	 * @param hash (spread) hash code of the element
+	 * @return the minimum of the cells of the element
+	 */
+	public int estimate(int hash) {
+		int step = step(hash);
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0, offset = 0; row < depth; row++, offset += width)
+			estimate = Math.min(estimate, cells[offset + ((hash + row * step) & mask)]);
+		return estimate;
+	}
+
+	/**
+	 * Sets all the cells to the given count, e.g. zero to clear the sketch, or the
+	 * minimum count of a merged summary, which bounds every element not monitored.
+	 */
+	public void fill(int count) {
+		Arrays.fill(cells, count);
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int depth() {
+		return depth;
+	}
+
+	private static int step(int hash) {
+		// An odd step, from the high bits, so the rows are (almost) independent:
+		int step = hash * 0x85EBCA6B;
+		return (step ^ (step >>> 16)) | 1;
+	}
+}
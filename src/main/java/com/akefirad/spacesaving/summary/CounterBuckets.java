@@ -0,0 +1,91 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * Array based Stream-Summary (count buckets) over a fixed number of counter slots.
+ * Notes:
+ * 1. A slot is identified by its index (0 to size - 1), the owner keeps the
+ * elements (and errors) of the slots in its own (parallel) arrays.
+ * 2. It's the single region case of {@link SlabBuckets}, see its notes.
+ */
+final class CounterBuckets {
+	static final int NONE = SlabBuckets.NONE;
+
+	private final SlabBuckets buckets;
+
+	CounterBuckets(int size) {
+		this.buckets = new SlabBuckets(size, 1);
+	}
+
+	/**
+	 * Removes all the slots, in O(size).
+	 */
+	void clear() {
+		buckets.clear(0);
+	}
+
+	/**
+	 * Copies the slots and the buckets of the given buckets (of the same size).
+	 */
+	void copyFrom(CounterBuckets other) {
+		buckets.copyFrom(other.buckets);
+	}
+
+	/**
+	 * Returns the smallest count, or zero if there is no slot.
+	 */
+	int min() {
+		return buckets.min(0);
+	}
+
+	/**
+	 * Returns the oldest slot with the smallest count, or NONE if there is no slot.
+	 */
+	int minSlot() {
+		return buckets.minSlot(0);
+	}
+
+	/**
+	 * Throws (an ArithmeticException) if the smallest count can't be increased by the
+	 * given delta, so the owner can check it before the minimum slot is reused.
+	 */
+	void checkMinIncrement(long delta) {
+		buckets.checkMinIncrement(0, delta);
+	}
+
+	int count(int slot) {
+		return buckets.count(slot);
+	}
+
+	boolean contains(int slot) {
+		return buckets.contains(slot);
+	}
+
+	/**
+	 * Adds the given (unused) slot with the given count, see {@link SlabBuckets#insert(int, int, int)}.
+	 */
+	void insert(int slot, int count) {
+		buckets.insert(0, slot, count);
+	}
+
+	/**
+	 * Increases the count of the given slot, see {@link SlabBuckets#increment(int, int, long)}.
+	 */
+	void increment(int slot, long delta) {
+		buckets.increment(0, slot, delta);
+	}
+
+	/**
+	 * Removes the given slot.
+	 */
+	void remove(int slot) {
+		buckets.remove(0, slot);
+	}
+
+	/**
+	 * Visits the slots from the biggest count down (the oldest slot first among
+	 * the same counts), until the visitor stops.
+	 */
+	void descend(SlotVisitor visitor) {
+		buckets.descend(0, visitor);
+	}
+}
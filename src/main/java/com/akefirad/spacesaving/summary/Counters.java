@@ -0,0 +1,20 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * Counters of a summary, in ascending order of their counts (e.g. of a merge, or
+ * of a checkpoint), to be loaded in bulk, see {@link SummaryLoader}.
+ *
+ * @param <T> type of stream token
+ */
+public interface Counters<T> {
+	/**
+	 * Returns the number of the counters
+	 */
+	int size();
+
+	T element(int idx);
+
+	int count(int idx);
+
+	int error(int idx);
+}
@@ -0,0 +1,402 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Implementation of Space Saving algorithm with exponentially time-decayed counts,
+ * using forward decay (Cormode et al.): an occurrence at time t weighs
+ * exp(rate * (t - landmark)), and the counts are divided by exp(rate * (now - landmark))
+ * when they are queried. So the recent occurrences weigh more, and the old heavy
+ * hitters fade, without touching the counters as the time passes.
+ * Notes:
+ * 1. Counts are (forward decayed) doubles. Since every count is divided by the same
+ * factor, the order of the counters never changes because of the time; the counters
+ * are kept in an (indexed) min-heap, so increment and eviction are O(log(capacity)).
+ * 2. Before the weights get too big (and overflow), the landmark is moved forward to
+ * the latest timestamp, and all the counters are scaled down once (renormalization).
+ * 3. Timestamps are in milliseconds, given by the clock or to {@link #addAt(Object, long, long)}.
+ * Queries are answered at the latest timestamp of the stream, and the counts are
+ * reported as integers: the count is rounded up and the guaranteed count
+ * (count - error) rounded down, so they remain upper and lower bounds.
+ * 4. Timestamps don't need to be in order; an older occurrence simply weighs less.
+ *
+ * @param <T> type of stream token
+ */
+public class DecayedStreamSummary<T> implements StreamSummary<T> {
+	// Renormalize long before exp(exponent) overflows (at about 709):
+	private static final double MAX_EXPONENT = 256;
+
+	private final int size;
+	private final double rate;
+	private final LongSupplier clock;
+	private final Map<T, Counter<T>> counters;
+	private final Counter<T>[] heap;
+	private int length;
+
+	private long landmark;
+	private long time;
+	private double total;
+
+	/**
+	 * @param size     size of stream summary
+	 * @param halfLife time that the weight of an occurrence takes to become half
+	 * @param unit     unit of the half-life, at least a millisecond
+	 */
+	public DecayedStreamSummary(int size, long halfLife, TimeUnit unit) {
+		this(size, halfLife, unit, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param size     size of stream summary
+	 * @param halfLife time that the weight of an occurrence takes to become half
+	 * @param unit     unit of the half-life, at least a millisecond
+	 * @param clock    clock in milliseconds, for the elements added without a timestamp
+	 */
+	public DecayedStreamSummary(int size, long halfLife, TimeUnit unit, LongSupplier clock) {
+		assertValidSize(size, "size of stream summary");
+		assertNotNull(unit, "unit");
+		assertNotNull(clock, "clock");
+		assertValidWeight(unit.toMillis(halfLife), "half-life (in milliseconds)");
+		this.size = size;
+		this.rate = Math.log(2) / unit.toMillis(halfLife);
+		this.clock = clock;
+		this.counters = new HashMap<>();
+		@SuppressWarnings("unchecked")
+		Counter<T>[] heap = new Counter[size];
+		this.heap = heap;
+		this.landmark = this.time = clock.getAsLong();
+	}
+
+	@Override
+	public void add(T element) {
+		addAt(element, 1, clock.getAsLong());
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		addAt(element, weight, clock.getAsLong());
+	}
+
+	/**
+	 * Add (monitor) an element (token) occurred at the given time
+	 *
+	 * @param element   element (token)
+	 * @param timestamp time of the occurrence, in milliseconds
+	 */
+	public void addAt(T element, long timestamp) {
+		addAt(element, 1, timestamp);
+	}
+
+	/**
+	 * Add (monitor) an element (token) occurred (weight times) at the given time
+	 *
+	 * @param element   element (token)
+	 * @param weight    number of occurrences, positive
+	 * @param timestamp time of the occurrence, in milliseconds
+	 */
+	public void addAt(T element, long weight, long timestamp) {
+		assertNotNull(element, "value");
+		assertValidWeight(weight, "weight");
+		if (timestamp > time) {
+			time = timestamp;
+			if (rate * (time - landmark) > MAX_EXPONENT)
+				renormalize(time);
+		}
+
+		double decayed = weight * Math.exp(rate * (timestamp - landmark));
+		total += decayed;
+		Counter<T> counter = counters.get(element);
+		if (counter != null) {
+			counter.count += decayed;
+			down(counter.index);
+		} else if (length < size) {
+			counter = new Counter<>(element, decayed, 0, length);
+			counters.put(element, counter);
+			heap[length++] = counter;
+			up(counter.index);
+		} else {
+			// Replace the minimum counter (the root):
+			counter = heap[0];
+			counters.remove(counter.element);
+			counter.element = element;
+			counter.error = counter.count;
+			counter.count += decayed;
+			counters.put(element, counter);
+			down(0);
+		}
+	}
+
+	/**
+	 * Merges another decayed summary, of the same capacity and rate, in to this summary.
+	 * Both are decayed to the latest timestamp of the two, before being merged.
+	 *
+	 * @param other the summary to merge, it's not modified
+	 */
+	@Override
+	public void merge(StreamSummary<T> other) {
+		assertNotNull(other, "summary");
+		if (!(other instanceof DecayedStreamSummary) || other.capacity() != size ||
+				((DecayedStreamSummary<?>) other).rate != rate)
+			throw new IllegalArgumentException("summary is not a decayed summary of the same capacity and rate!");
+		DecayedStreamSummary<T> summary = (DecayedStreamSummary<T>) other;
+		long time = Math.max(this.time, summary.time);
+		double scale = Math.exp(rate * (landmark - time));
+		double otherScale = Math.exp(rate * (summary.landmark - time));
+		double min = length < size ? 0 : heap[0].count * scale;
+		double otherMin = summary.length < size ? 0 : summary.heap[0].count * otherScale;
+
+		Map<T, Counter<T>> merged = new HashMap<>();
+		for (int idx = 0; idx < length; idx++) {
+			Counter<T> counter = heap[idx];
+			merged.put(counter.element, new Counter<>(counter.element,
+					counter.count * scale + otherMin, counter.error * scale + otherMin, 0));
+		}
+		for (int idx = 0; idx < summary.length; idx++) {
+			Counter<T> counter = summary.heap[idx];
+			Counter<T> existing = merged.get(counter.element);
+			if (existing == null) {
+				merged.put(counter.element, new Counter<>(counter.element,
+						counter.count * otherScale + min, counter.error * otherScale + min, 0));
+			} else {
+				// Replace the assumed minimum of the other summary with the real counter:
+				existing.count += counter.count * otherScale - otherMin;
+				existing.error += counter.error * otherScale - otherMin;
+			}
+		}
+
+		List<Counter<T>> kept = new ArrayList<>(merged.values());
+		kept.sort(Comparator.comparingDouble((Counter<T> counter) -> counter.count).reversed());
+		kept = kept.subList(0, Math.min(size, kept.size()));
+		Collections.reverse(kept);
+
+		// Counters sorted ascending are already a (min) heap:
+		counters.clear();
+		Arrays.fill(heap, null);
+		length = 0;
+		for (Counter<T> counter : kept) {
+			counter.index = length;
+			heap[length++] = counter;
+			counters.put(counter.element, counter);
+		}
+		total = total * scale + summary.total * otherScale;
+		this.landmark = this.time = time;
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	/**
+	 * Returns the (decayed) total weight of the elements, rounded
+	 *
+	 * @return decayed length of the summarized stream
+	 */
+	@Override
+	public long total() {
+		return Math.round(decayedTotal());
+	}
+
+	/**
+	 * Returns the (decayed) total weight of the elements, at the latest timestamp
+	 *
+	 * @return decayed length of the summarized stream
+	 */
+	public double decayedTotal() {
+		return total * scale();
+	}
+
+	/**
+	 * Returns the (decayed) count of the given element, at the latest timestamp
+	 *
+	 * @param element element (token)
+	 * @return decayed count (overestimation), zero if it's not monitored
+	 */
+	public double decayedCount(T element) {
+		assertNotNull(element, "value");
+		Counter<T> counter = counters.get(element);
+		return counter == null ? 0 : counter.count * scale();
+	}
+
+	/**
+	 * Returns the latest timestamp of the stream, where the counts are decayed to
+	 *
+	 * @return time in milliseconds
+	 */
+	public long time() {
+		return time;
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		Map<SummaryElement<T>, Integer> map = new HashMap<>();
+		double scale = scale();
+		for (int idx = 0; idx < length; idx++)
+			put(map, heap[idx], scale);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return topK(length);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		List<Counter<T>> sorted = sorted();
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		double scale = scale();
+		for (int idx = 0; idx < sorted.size() - 1; idx++) {
+			Counter<T> counter = sorted.get(idx);
+			if (counter.count - counter.error > sorted.get(idx + 1).count)
+				put(map, counter, scale);
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		double scale = scale();
+		for (Counter<T> counter : sorted()) {
+			if (map.size() >= k)
+				break;
+			put(map, counter, scale);
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		// Compare the (undecayed) weights, they are all scaled the same:
+		double threshold = phi * total;
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		double scale = scale();
+		for (Counter<T> counter : sorted()) {
+			if (counter.count <= threshold)
+				break;
+			put(map, counter, scale);
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		assertNotNull(element, "value");
+		Counter<T> counter = counters.get(element);
+		double scale = scale();
+		if (counter != null)
+			return new Estimate(upper(counter.count, scale),
+					upper(counter.count, scale) - lower(counter.count - counter.error, scale), true);
+		int min = length < size ? 0 : upper(heap[0].count, scale);
+		return new Estimate(min, min, false);
+	}
+
+	/**
+	 * Divides the weights by the factor of the given (new) landmark.
+	 */
+	private void renormalize(long landmark) {
+		double scale = Math.exp(rate * (this.landmark - landmark));
+		for (int idx = 0; idx < length; idx++) {
+			heap[idx].count *= scale;
+			heap[idx].error *= scale;
+		}
+		total *= scale;
+		this.landmark = landmark;
+	}
+
+	/**
+	 * The factor to decay the weights to the latest timestamp
+	 */
+	private double scale() {
+		return Math.exp(rate * (landmark - time));
+	}
+
+	private List<Counter<T>> sorted() {
+		List<Counter<T>> sorted = new ArrayList<>(Arrays.asList(heap).subList(0, length));
+		sorted.sort(Comparator.comparingDouble((Counter<T> counter) -> counter.count).reversed());
+		return sorted;
+	}
+
+	private static <T> void put(Map<SummaryElement<T>, Integer> map, Counter<T> counter, double scale) {
+		int count = upper(counter.count, scale);
+		int error = count - lower(counter.count - counter.error, scale);
+		map.put(new SummaryElement<>(counter.element, error), count);
+	}
+
+	private static int upper(double weight, double scale) {
+		return Math.toIntExact((long) Math.ceil(weight * scale));
+	}
+
+	private static int lower(double weight, double scale) {
+		return Math.toIntExact((long) Math.floor(weight * scale));
+	}
+
+	private void up(int idx) {
+		Counter<T> counter = heap[idx];
+		while (idx > 0) {
+			int parent = (idx - 1) >>> 1;
+			if (heap[parent].count <= counter.count)
+				break;
+			heap[idx] = heap[parent];
+			heap[idx].index = idx;
+			idx = parent;
+		}
+		heap[idx] = counter;
+		counter.index = idx;
+	}
+
+	private void down(int idx) {
+		Counter<T> counter = heap[idx];
+		while (true) {
+			int child = 2 * idx + 1;
+			if (child >= length)
+				break;
+			if (child + 1 < length && heap[child + 1].count < heap[child].count)
+				child++;
+			if (counter.count <= heap[child].count)
+				break;
+			heap[idx] = heap[child];
+			heap[idx].index = idx;
+			idx = child;
+		}
+		heap[idx] = counter;
+		counter.index = idx;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		double scale = scale();
+		for (int idx = 0; idx < length; idx++)
+			sb.append(heap[idx].element)
+					.append(":").append(heap[idx].count * scale)
+					.append(":").append(heap[idx].error * scale)
+					.append(", ");
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private static final class Counter<T> {
+		private T element;
+		private double count;
+		private double error;
+		private int index;
+
+		private Counter(T element, double count, double error, int index) {
+			this.element = element;
+			this.count = count;
+			this.error = error;
+			this.index = index;
+		}
+	}
+}
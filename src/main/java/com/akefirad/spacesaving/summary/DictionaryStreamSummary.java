@@ -0,0 +1,198 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static com.akefirad.spacesaving.summary.CounterBuckets.NONE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Implementation of Space Saving algorithm for string elements, with the elements
+ * dictionary encoded (see {@link KeyDictionary}).
+ * Notes:
+ * 1. The id of an element in the dictionary is its slot in the array based
+ * Stream-Summary ({@link CounterBuckets}), so the summary only counts ids.
+ * 2. The key of an evicted element is removed from the dictionary, and its bytes
+ * are reclaimed; the new element takes the same id.
+ * 3. Elements can be added by their (UTF-8) bytes, e.g. a token of a byte window,
+ * which are only copied in to the dictionary when a new counter is needed; adding
+ * a monitored element never allocates, nor does evicting a counter once the arena
+ * of the dictionary is big enough for the live keys (it's compacted in place).
+ * 4. The String of an element is only created when the summary is queried through
+ * the {@link StreamSummary} methods.
+ */
+public class DictionaryStreamSummary implements StreamSummary<String>, Loadable<String> {
+	private final int size;
+	private final KeyDictionary keys;
+	private final int[] errors;
+	private final CounterBuckets buckets;
+	private long total;
+
+	public DictionaryStreamSummary(int size) {
+		assertValidSize(size, "size of stream summary");
+		this.size = size;
+		this.keys = new KeyDictionary(size);
+		this.errors = new int[size];
+		this.buckets = new CounterBuckets(size);
+	}
+
+	@Override
+	public void add(String element) {
+		add(element, 1);
+	}
+
+	@Override
+	public void add(String element, long weight) {
+		assertNotNull(element, "value");
+		byte[] bytes = element.getBytes(UTF_8);
+		add(bytes, 0, bytes.length, weight);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary, by its (UTF-8) bytes
+	 *
+	 * @param bytes  array containing the element
+	 * @param offset offset of the element in the array
+	 * @param length length of the element in bytes
+	 */
+	public void add(byte[] bytes, int offset, int length) {
+		add(bytes, offset, length, 1);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary, by its (UTF-8) bytes,
+	 * as if it's added weight times
+	 *
+	 * @param bytes  array containing the element
+	 * @param offset offset of the element in the array
+	 * @param length length of the element in bytes
+	 * @param weight number of occurrences, positive
+	 */
+	public void add(byte[] bytes, int offset, int length, long weight) {
+		assertNotNull(bytes, "bytes");
+		assertValidWeight(weight, "weight");
+
+		int hash = SlotTable.hash(bytes, offset, length);
+		int id = keys.find(bytes, offset, length, hash);
+		// If it's not a new element (an overflow throws before any change):
+		if (id != NONE) {
+			buckets.increment(id, weight);
+		}
+		// If it's a new element, and no space is available:
+		else if (keys.size() == size) {
+			buckets.checkMinIncrement(weight);
+			// Reuse the oldest slot with the minimum count:
+			int slot = buckets.minSlot();
+			keys.remove(slot);
+			id = keys.add(bytes, offset, length, hash);
+			assert id == slot : "Expecting the id of the evicted element!";
+			errors[id] = buckets.min();
+			buckets.increment(id, weight);
+		}
+		// If it's a new element, and some space is available:
+		else {
+			int count = Math.toIntExact(weight);
+			id = keys.add(bytes, offset, length, hash);
+			errors[id] = 0;
+			buckets.insert(id, count);
+		}
+		total += weight;
+	}
+
+	@Override
+	public void merge(StreamSummary<String> other) {
+		Counters<String> merged = SummaryMerger.merge(this, other);
+		load(total + other.total(), merged);
+	}
+
+	@Override
+	public void load(long total, Counters<? extends String> counters) {
+		this.total = total;
+		keys.clear();
+		buckets.clear();
+		for (int idx = 0; idx < counters.size(); idx++) {
+			int id = keys.intern(counters.element(idx));
+			errors[id] = counters.error(idx);
+			buckets.insert(id, counters.count(idx));
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Returns the (heap) memory of the summary in bytes, roughly.
+	 */
+	public long memory() {
+		// The errors, and the slots and buckets (eight ints per counter):
+		return keys.memory() + 4L * size * 9;
+	}
+
+	/**
+	 * Returns the (overestimated) count of the given element, or zero if it's not monitored.
+	 */
+	public int count(byte[] bytes, int offset, int length) {
+		int id = keys.find(bytes, offset, length);
+		return id == NONE ? 0 : buckets.count(id);
+	}
+
+	@Override
+	public Map<SummaryElement<String>, Integer> topK(int k) {
+		return SlotQueries.topK(buckets::descend, k, this::element);
+	}
+
+	@Override
+	public Map<SummaryElement<String>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		return SlotQueries.heavyHitters(buckets::descend, phi * total, this::element);
+	}
+
+	@Override
+	public Estimate estimate(String element) {
+		assertNotNull(element, "value");
+		int id = keys.find(element);
+		if (id != NONE)
+			return new Estimate(buckets.count(id), errors[id], true);
+		int min = keys.size() < size ? 0 : buckets.min();
+		return new Estimate(min, min, false);
+	}
+
+	@Override
+	public Map<SummaryElement<String>, Integer> frequencies() {
+		Map<SummaryElement<String>, Integer> map = new HashMap<>();
+		for (int slot = 0; slot < size; slot++)
+			if (keys.contains(slot))
+				map.put(element(slot), buckets.count(slot));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<String>, Integer> sortedFrequencies() {
+		return topK(size);
+	}
+
+	@Override
+	public Map<SummaryElement<String>, Integer> mostFrequents() {
+		return SlotQueries.mostFrequents(buckets::descend, this::element);
+	}
+
+	private SummaryElement<String> element(int slot) {
+		return new SummaryElement<>(keys.key(slot), errors[slot]);
+	}
+
+	@Override
+	public String toString() {
+		return SlotQueries.toString(buckets::descend, this::element);
+	}
+}
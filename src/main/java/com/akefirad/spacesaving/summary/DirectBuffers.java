@@ -0,0 +1,61 @@
+package com.akefirad.spacesaving.summary;
+
+import org.slf4j.Logger;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Releases the native memory of direct buffers, without waiting for the GC.
+ * It uses Unsafe.invokeCleaner on Java 9+, and the cleaner of the buffer on Java 8;
+ * if neither is available, the memory is left to the GC.
+ */
+final class DirectBuffers {
+	private static final Logger logger = getLogger(DirectBuffers.class);
+
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> type = Class.forName("sun.misc.Unsafe");
+			Field field = type.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.debug("Unsafe.invokeCleaner is not available.", e);
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private DirectBuffers() {
+	}
+
+	/**
+	 * Releases the given (direct, not sliced) buffer; it must not be used after that.
+	 */
+	static void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect())
+			return;
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} else {
+				Method cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object clean = cleaner.invoke(buffer);
+				if (clean != null)
+					clean.getClass().getMethod("clean").invoke(clean);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.debug("Failed to release a direct buffer, leaving it to the GC.", e);
+		}
+	}
+}
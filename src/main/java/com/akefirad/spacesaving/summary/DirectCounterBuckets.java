@@ -0,0 +1,320 @@
+package com.akefirad.spacesaving.summary;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.ByteOrder.nativeOrder;
+
+/**
+ * Same as {@link CounterBuckets}, but the links are kept in direct (off-heap) buffers,
+ * for very large summaries. Notes:
+ * 1. There is one record per slot (bucket, prev, next) and one record per bucket
+ * (count, first, last, prev, next), so a counter takes 32 bytes of native memory.
+ * 2. It's a separate class (and not a storage of the array based one), so the
+ * array based one stays as fast as possible.
+ * 3. The buffers are released by {@link #release()}; it must not be used after that.
+ */
+final class DirectCounterBuckets {
+	static final int NONE = CounterBuckets.NONE;
+
+	static final int SLOT_INTS = 3;
+	static final int BUCKET_INTS = 5;
+
+	private static final int SLOT_BUCKET = 0;
+	private static final int SLOT_PREV = 1;
+	private static final int SLOT_NEXT = 2;
+
+	private static final int COUNT = 0;
+	private static final int FIRST = 1;
+	private static final int LAST = 2;
+	private static final int PREV = 3;
+	private static final int NEXT = 4;
+
+	private final int size;
+	private final ByteBuffer slotMemory;
+	private final ByteBuffer bucketMemory;
+	private final IntBuffer slots;
+	private final IntBuffer buckets;
+
+	private int min;
+	private int max;
+	private int free;
+
+	DirectCounterBuckets(int size) {
+		assertValidSize(size, "number of slots");
+		if (size > Integer.MAX_VALUE / (BUCKET_INTS * Integer.BYTES))
+			throw new IllegalArgumentException("number of slots is too big!");
+		this.size = size;
+		this.slotMemory = ByteBuffer.allocateDirect(size * SLOT_INTS * Integer.BYTES).order(nativeOrder());
+		this.bucketMemory = ByteBuffer.allocateDirect(size * BUCKET_INTS * Integer.BYTES).order(nativeOrder());
+		this.slots = slotMemory.asIntBuffer();
+		this.buckets = bucketMemory.asIntBuffer();
+		clear();
+	}
+
+	/**
+	 * Releases the native memory of the buffers.
+	 */
+	void release() {
+		DirectBuffers.release(slotMemory);
+		DirectBuffers.release(bucketMemory);
+	}
+
+	/**
+	 * Removes all the slots, in O(size).
+	 */
+	void clear() {
+		for (int slot = 0; slot < size; slot++)
+			slotBucket(slot, NONE);
+		for (int bucket = 0; bucket < size; bucket++)
+			next(bucket, bucket + 1 < size ? bucket + 1 : NONE);
+		min = max = NONE;
+		free = 0;
+	}
+
+	/**
+	 * Returns the smallest count, or zero if there is no slot.
+	 */
+	int min() {
+		return min == NONE ? 0 : counts(min);
+	}
+
+	/**
+	 * Returns the oldest slot with the smallest count, or NONE if there is no slot.
+	 */
+	int minSlot() {
+		return min == NONE ? NONE : first(min);
+	}
+
+	/**
+	 * Throws (an ArithmeticException) if the smallest count can't be increased by the
+	 * given delta, so the owner can check it before the minimum slot is reused.
+	 */
+	void checkMinIncrement(long delta) {
+		Math.toIntExact(min() + delta);
+	}
+
+	int count(int slot) {
+		return counts(slotBucket(slot));
+	}
+
+	boolean contains(int slot) {
+		return slotBucket(slot) != NONE;
+	}
+
+	/**
+	 * Adds the given (unused) slot with the given count. It's O(1) for counts
+	 * not bigger than the minimum, and it's O(1) when slots are inserted in
+	 * ascending order of their counts.
+	 */
+	void insert(int slot, int count) {
+		assert count > 0 && slotBucket(slot) == NONE;
+
+		int after;
+		if (min == NONE || count <= counts(min)) {
+			after = NONE;
+		} else {
+			after = max;
+			while (counts(after) > count)
+				after = prev(after);
+		}
+
+		int bucket = after == NONE ? min : after;
+		if (bucket == NONE || counts(bucket) != count) {
+			bucket = allocate(count);
+			linkAfter(bucket, after);
+		}
+		attach(slot, bucket);
+	}
+
+	/**
+	 * Increases the count of the given slot. It's O(1) for a delta of one,
+	 * otherwise it's linear in the number of buckets passed.
+	 */
+	void increment(int slot, long delta) {
+		assert delta > 0 && slotBucket(slot) != NONE;
+
+		int bucket = slotBucket(slot);
+		int count = Math.toIntExact(counts(bucket) + delta);
+		boolean alone = first(bucket) == slot && slotNext(slot) == NONE;
+
+		int after = bucket;
+		int following = next(bucket);
+		while (following != NONE && counts(following) < count) {
+			after = following;
+			following = next(following);
+		}
+
+		if (following != NONE && counts(following) == count) {
+			detach(slot);
+			attach(slot, following);
+			if (alone)
+				unlink(bucket);
+		} else if (alone && after == bucket) {
+			// The only slot of its bucket; the bucket can be reused in place:
+			counts(bucket, count);
+		} else {
+			detach(slot);
+			if (alone)
+				unlink(bucket);
+			int target = allocate(count);
+			linkAfter(target, after);
+			attach(slot, target);
+		}
+	}
+
+	/**
+	 * Removes the given slot.
+	 */
+	void remove(int slot) {
+		int bucket = slotBucket(slot);
+		assert bucket != NONE;
+		detach(slot);
+		if (first(bucket) == NONE)
+			unlink(bucket);
+	}
+
+	/**
+	 * Visits the slots from the biggest count down, see {@link CounterBuckets#descend(SlotVisitor)}.
+	 */
+	void descend(SlotVisitor visitor) {
+		int rank = 0;
+		for (int bucket = max; bucket != NONE; bucket = prev(bucket))
+			for (int slot = first(bucket); slot != NONE; slot = slotNext(slot))
+				if (!visitor.visit(rank++, slot, counts(bucket)))
+					return;
+	}
+
+	private void attach(int slot, int bucket) {
+		slotBucket(slot, bucket);
+		slotPrev(slot, last(bucket));
+		slotNext(slot, NONE);
+		if (last(bucket) == NONE)
+			first(bucket, slot);
+		else
+			slotNext(last(bucket), slot);
+		last(bucket, slot);
+	}
+
+	private void detach(int slot) {
+		int bucket = slotBucket(slot);
+		if (slotPrev(slot) == NONE)
+			first(bucket, slotNext(slot));
+		else
+			slotNext(slotPrev(slot), slotNext(slot));
+		if (slotNext(slot) == NONE)
+			last(bucket, slotPrev(slot));
+		else
+			slotPrev(slotNext(slot), slotPrev(slot));
+		slotBucket(slot, NONE);
+	}
+
+	/**
+	 * Links the given (detached) bucket right after the given bucket,
+	 * or at the beginning of the list if the given bucket is NONE.
+	 */
+	private void linkAfter(int bucket, int after) {
+		int before = after == NONE ? min : next(after);
+		prev(bucket, after);
+		next(bucket, before);
+		if (after == NONE)
+			min = bucket;
+		else
+			next(after, bucket);
+		if (before == NONE)
+			max = bucket;
+		else
+			prev(before, bucket);
+	}
+
+	private void unlink(int bucket) {
+		assert first(bucket) == NONE : "Expecting an empty bucket!";
+		if (prev(bucket) == NONE)
+			min = next(bucket);
+		else
+			next(prev(bucket), next(bucket));
+		if (next(bucket) == NONE)
+			max = prev(bucket);
+		else
+			prev(next(bucket), prev(bucket));
+
+		// Recycle the bucket:
+		next(bucket, free);
+		free = bucket;
+	}
+
+	private int allocate(int count) {
+		int bucket = free;
+		assert bucket != NONE : "Expecting a free bucket!";
+		free = next(bucket);
+		counts(bucket, count);
+		first(bucket, NONE);
+		last(bucket, NONE);
+		return bucket;
+	}
+
+	private int slotBucket(int slot) {
+		return slots.get(slot * SLOT_INTS + SLOT_BUCKET);
+	}
+
+	private void slotBucket(int slot, int bucket) {
+		slots.put(slot * SLOT_INTS + SLOT_BUCKET, bucket);
+	}
+
+	private int slotPrev(int slot) {
+		return slots.get(slot * SLOT_INTS + SLOT_PREV);
+	}
+
+	private void slotPrev(int slot, int prev) {
+		slots.put(slot * SLOT_INTS + SLOT_PREV, prev);
+	}
+
+	private int slotNext(int slot) {
+		return slots.get(slot * SLOT_INTS + SLOT_NEXT);
+	}
+
+	private void slotNext(int slot, int next) {
+		slots.put(slot * SLOT_INTS + SLOT_NEXT, next);
+	}
+
+	private int counts(int bucket) {
+		return buckets.get(bucket * BUCKET_INTS + COUNT);
+	}
+
+	private void counts(int bucket, int count) {
+		buckets.put(bucket * BUCKET_INTS + COUNT, count);
+	}
+
+	private int first(int bucket) {
+		return buckets.get(bucket * BUCKET_INTS + FIRST);
+	}
+
+	private void first(int bucket, int slot) {
+		buckets.put(bucket * BUCKET_INTS + FIRST, slot);
+	}
+
+	private int last(int bucket) {
+		return buckets.get(bucket * BUCKET_INTS + LAST);
+	}
+
+	private void last(int bucket, int slot) {
+		buckets.put(bucket * BUCKET_INTS + LAST, slot);
+	}
+
+	private int prev(int bucket) {
+		return buckets.get(bucket * BUCKET_INTS + PREV);
+	}
+
+	private void prev(int bucket, int prev) {
+		buckets.put(bucket * BUCKET_INTS + PREV, prev);
+	}
+
+	private int next(int bucket) {
+		return buckets.get(bucket * BUCKET_INTS + NEXT);
+	}
+
+	private void next(int bucket, int next) {
+		buckets.put(bucket * BUCKET_INTS + NEXT, next);
+	}
+}
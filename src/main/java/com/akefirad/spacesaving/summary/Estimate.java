@@ -0,0 +1,62 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * Point estimate of the frequency of an element: count (overestimation) and error,
+ * so the real frequency is between count - error and count.
+ */
+public final class Estimate {
+	private final int count;
+	private final int error;
+	private final boolean monitored;
+
+	public Estimate(int count, int error, boolean monitored) {
+		this.count = count;
+		this.error = error;
+		this.monitored = monitored;
+	}
+
+	/**
+	 * Returns the upper bound of the frequency
+	 */
+	public int count() {
+		return count;
+	}
+
+	public int error() {
+		return error;
+	}
+
+	/**
+	 * Returns the lower bound of the frequency
+	 */
+	public int guaranteed() {
+		return count - error;
+	}
+
+	/**
+	 * Returns whether the element has a counter in the summary
+	 */
+	public boolean monitored() {
+		return monitored;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		Estimate estimate = (Estimate) o;
+		return count == estimate.count && error == estimate.error && monitored == estimate.monitored;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * count + error) + (monitored ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return count + ":" + error;
+	}
+}
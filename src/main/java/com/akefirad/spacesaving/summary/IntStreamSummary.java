@@ -0,0 +1,212 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static com.akefirad.spacesaving.summary.CounterBuckets.NONE;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Implementation of Space Saving algorithm specialized for primitive int elements.
+ * Notes:
+ * 1. Elements and errors are kept in parallel primitive arrays (slots), and
+ * counts and their order in an array based Stream-Summary ({@link CounterBuckets}).
+ * 2. Slots are indexed by an open addressing (linear probing) table of slot
+ * numbers ({@link SlotTable}), so there is no boxing and no object per counter.
+ * 3. Adding an element never allocates, the boxed element is only created
+ * when the summary is queried through the {@link StreamSummary} methods.
+ */
+public class IntStreamSummary implements StreamSummary<Integer>, Loadable<Integer> {
+	private final int size;
+	private final SlotTable slots;
+	private final int[] elements;
+	private final int[] errors;
+	private final CounterBuckets buckets;
+	private int length;
+	private long total;
+
+	public IntStreamSummary(int size) {
+		assertValidSize(size, "size of stream summary");
+		this.size = size;
+		this.slots = new SlotTable(size);
+		this.elements = new int[size];
+		this.errors = new int[size];
+		this.buckets = new CounterBuckets(size);
+	}
+
+	@Override
+	public void add(Integer element) {
+		assertNotNull(element, "value");
+		add(element.intValue());
+	}
+
+	@Override
+	public void add(Integer element, long weight) {
+		assertNotNull(element, "value");
+		add(element.intValue(), weight);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary
+	 *
+	 * @param element element (token)
+	 */
+	public void add(int element) {
+		add(element, 1);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary, as if it's added weight times
+	 *
+	 * @param element element (token)
+	 * @param weight  number of occurrences, positive
+	 */
+	public void add(int element, long weight) {
+		assertValidWeight(weight, "weight");
+		int slot = find(element);
+		// If it's not a new element (an overflow throws before any change):
+		if (slot != NONE) {
+			buckets.increment(slot, weight);
+		}
+		// If it's a new element, and no space is available:
+		else if (length == size) {
+			buckets.checkMinIncrement(weight);
+			// Reuse the oldest slot with the minimum count:
+			slot = buckets.minSlot();
+			slots.unindex(slot);
+			elements[slot] = element;
+			errors[slot] = buckets.min();
+			slots.index(slot, SlotTable.spread(element));
+			buckets.increment(slot, weight);
+		}
+		// If it's a new element, and some space is available:
+		else {
+			int count = Math.toIntExact(weight);
+			slot = length++;
+			elements[slot] = element;
+			errors[slot] = 0;
+			slots.index(slot, SlotTable.spread(element));
+			buckets.insert(slot, count);
+		}
+		total += weight;
+	}
+
+	@Override
+	public void merge(StreamSummary<Integer> other) {
+		Counters<Integer> merged = SummaryMerger.merge(this, other);
+		load(total + other.total(), merged);
+	}
+
+	@Override
+	public void load(long total, Counters<? extends Integer> counters) {
+		this.total = total;
+		slots.clear();
+		buckets.clear();
+		length = 0;
+		for (int idx = 0; idx < counters.size(); idx++) {
+			int slot = length++;
+			elements[slot] = counters.element(idx);
+			errors[slot] = counters.error(idx);
+			slots.index(slot, SlotTable.spread(elements[slot]));
+			buckets.insert(slot, counters.count(idx));
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Returns the (overestimated) count of the given element, or zero if it's not monitored.
+	 */
+	public int count(int element) {
+		int slot = find(element);
+		return slot == NONE ? 0 : buckets.count(slot);
+	}
+
+	/**
+	 * Returns the error (overestimation) of the given element, or zero if it's not monitored.
+	 */
+	public int error(int element) {
+		int slot = find(element);
+		return slot == NONE ? 0 : errors[slot];
+	}
+
+	/**
+	 * Returns (at most) k elements with the biggest counts, sorted by their counts.
+	 */
+	public int[] topKeys(int k) {
+		int[] keys = new int[Math.min(Math.max(k, 0), length)];
+		if (keys.length > 0)
+			buckets.descend((rank, slot, count) -> {
+				keys[rank] = elements[slot];
+				return rank + 1 < keys.length;
+			});
+		return keys;
+	}
+
+	@Override
+	public Map<SummaryElement<Integer>, Integer> topK(int k) {
+		return SlotQueries.topK(buckets::descend, k, this::element);
+	}
+
+	@Override
+	public Map<SummaryElement<Integer>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		return SlotQueries.heavyHitters(buckets::descend, phi * total, this::element);
+	}
+
+	@Override
+	public Estimate estimate(Integer element) {
+		assertNotNull(element, "value");
+		int slot = find(element);
+		if (slot != NONE)
+			return new Estimate(buckets.count(slot), errors[slot], true);
+		int min = length < size ? 0 : buckets.min();
+		return new Estimate(min, min, false);
+	}
+
+	@Override
+	public Map<SummaryElement<Integer>, Integer> frequencies() {
+		Map<SummaryElement<Integer>, Integer> map = new HashMap<>();
+		for (int slot = 0; slot < length; slot++)
+			map.put(element(slot), buckets.count(slot));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<Integer>, Integer> sortedFrequencies() {
+		return topK(length);
+	}
+
+	@Override
+	public Map<SummaryElement<Integer>, Integer> mostFrequents() {
+		return SlotQueries.mostFrequents(buckets::descend, this::element);
+	}
+
+	private SummaryElement<Integer> element(int slot) {
+		return new SummaryElement<>(elements[slot], errors[slot]);
+	}
+
+	private int find(int element) {
+		for (int idx = slots.probe(SlotTable.spread(element)); ; idx = slots.next(idx)) {
+			int slot = slots.slot(idx);
+			if (slot == NONE || elements[slot] == element)
+				return slot;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return SlotQueries.toString(buckets::descend, this::element);
+	}
+}
@@ -0,0 +1,134 @@
+package com.akefirad.spacesaving.summary;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+
+/**
+ * An append-only arena of (encoded) keys in direct (off-heap) chunks.
+ * Notes:
+ * 1. A key is stored as its length followed by its bytes, and referenced by its
+ * (long) position in the arena; a key never spans two chunks.
+ * 2. Freed keys are only accounted for; the owner compacts the arena (copies
+ * the live keys to a new arena) when there is too much garbage.
+ * 3. The chunks are released by {@link #release()}; it must not be used after that.
+ */
+final class KeyArena {
+	private final int chunkSize;
+	private final int chunkShift;
+	private final List<ByteBuffer> chunks;
+	private ByteBuffer current;
+	private long used;
+	private long live;
+
+	/**
+	 * @param chunkSize size of the chunks in bytes, a power of two
+	 */
+	KeyArena(int chunkSize) {
+		assertValidSize(chunkSize, "chunk size");
+		if (Integer.bitCount(chunkSize) != 1)
+			throw new IllegalArgumentException("chunk size is not a power of two!");
+		this.chunkSize = chunkSize;
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunks = new ArrayList<>();
+	}
+
+	/**
+	 * Stores the given key (the first length bytes of the array), and returns its reference.
+	 */
+	long allocate(byte[] key, int length) {
+		long reference = reserve(length);
+		current.putInt(length).put(key, 0, length);
+		return reference;
+	}
+
+	/**
+	 * Stores a key of another arena, and returns its reference.
+	 */
+	long copy(KeyArena arena, long reference) {
+		ByteBuffer key = arena.key(reference);
+		long copy = reserve(key.remaining());
+		current.putInt(key.remaining()).put(key);
+		return copy;
+	}
+
+	boolean matches(long reference, byte[] key, int length) {
+		ByteBuffer chunk = chunks.get((int) (reference >>> chunkShift));
+		int offset = (int) reference & (chunkSize - 1);
+		if (chunk.getInt(offset) != length)
+			return false;
+		offset += Integer.BYTES;
+		for (int idx = 0; idx < length; idx++)
+			if (chunk.get(offset + idx) != key[idx])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns a (read-only) view of the bytes of the given key.
+	 */
+	ByteBuffer key(long reference) {
+		ByteBuffer chunk = chunks.get((int) (reference >>> chunkShift)).asReadOnlyBuffer();
+		int offset = (int) reference & (chunkSize - 1);
+		// Cast to Buffer, to run on Java 8 as well:
+		((Buffer) chunk).limit(offset + Integer.BYTES + chunk.getInt(offset));
+		((Buffer) chunk).position(offset + Integer.BYTES);
+		return chunk.slice();
+	}
+
+	void free(long reference) {
+		ByteBuffer chunk = chunks.get((int) (reference >>> chunkShift));
+		live -= Integer.BYTES + chunk.getInt((int) reference & (chunkSize - 1));
+	}
+
+	/**
+	 * Returns whether the garbage is more than the live keys (and a chunk).
+	 */
+	boolean wasteful() {
+		return used - live > Math.max(live, chunkSize);
+	}
+
+	/**
+	 * Returns the (native) memory of the arena in bytes.
+	 */
+	long memory() {
+		return (long) chunks.size() * chunkSize;
+	}
+
+	void release() {
+		chunks.forEach(DirectBuffers::release);
+		chunks.clear();
+		current = null;
+		used = live = 0;
+	}
+
+	/**
+	 * Throws if a key of the given length doesn't fit in a chunk, so the owner can
+	 * check a key before changing anything.
+	 */
+	void checkLength(int keyLength) {
+		if (!fits(keyLength))
+			throw new IllegalArgumentException("key is too long!");
+	}
+
+	boolean fits(int keyLength) {
+		return keyLength <= chunkSize - Integer.BYTES;
+	}
+
+	private long reserve(int keyLength) {
+		checkLength(keyLength);
+		int length = Integer.BYTES + keyLength;
+		if (current == null || current.remaining() < length) {
+			if (current != null)
+				used += current.remaining(); // The rest of the chunk is wasted
+			current = ByteBuffer.allocateDirect(chunkSize);
+			chunks.add(current);
+		}
+		used += length;
+		live += length;
+		return ((long) (chunks.size() - 1) << chunkShift) + current.position();
+	}
+}
@@ -0,0 +1,243 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.Arrays;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A dictionary of (UTF-8) keys, interned in to a compact byte arena with int ids.
+ * Notes:
+ * 1. There are at most capacity keys, with ids from 0 to capacity - 1; an id is
+ * reused once its key is removed (the last removed id is the first reused).
+ * 2. The bytes of the keys are appended to a single byte array, so a key costs its
+ * bytes plus a few ints (offset, length and hash), and no object.
+ * 3. Keys are indexed by an open addressing (linear probing) table on the hash of
+ * their bytes ({@link SlotTable}), and looked up by comparing the bytes in place; no
+ * key (String) is created to look it up.
+ * 4. The bytes of the removed keys are reclaimed by compacting the arena in place
+ * once it's full: the keys are linked in the order of their offsets, so each one is
+ * moved down over the garbage. The arena only grows (is reallocated) if more than
+ * half of it is still live keys, so removing and adding keys never allocates once
+ * the arena is big enough for the live keys.
+ */
+public class KeyDictionary {
+	private static final int NONE = -1;
+	private static final int MIN_ARENA = 1024;
+
+	private final int capacity;
+	private final SlotTable table;
+	private final int[] offsets;
+	private final int[] lengths;
+	private final int[] previous;
+	private final int[] next;
+	private final int[] free;
+	private int freeLength;
+	private int size;
+	private int first;
+	private int last;
+
+	private byte[] arena;
+	private int used;
+	private int garbage;
+
+	public KeyDictionary(int capacity) {
+		assertValidSize(capacity, "capacity of dictionary");
+		this.capacity = capacity;
+		this.table = new SlotTable(capacity);
+		this.offsets = new int[capacity];
+		this.lengths = new int[capacity];
+		this.previous = new int[capacity];
+		this.next = new int[capacity];
+		this.free = new int[capacity];
+		this.arena = new byte[MIN_ARENA];
+		clear();
+	}
+
+	/**
+	 * Returns the id of the given key, or -1 if it's not in the dictionary.
+	 */
+	public int find(byte[] bytes, int offset, int length) {
+		return find(bytes, offset, length, SlotTable.hash(bytes, offset, length));
+	}
+
+	/**
+	 * Returns the id of the given key, adding it if it's not in the dictionary.
+	 *
+	 * @return id of the key, or -1 if it's not in the dictionary and the dictionary is full
+	 */
+	public int intern(byte[] bytes, int offset, int length) {
+		int hash = SlotTable.hash(bytes, offset, length);
+		int id = find(bytes, offset, length, hash);
+		return id != NONE ? id : add(bytes, offset, length, hash);
+	}
+
+	/**
+	 * Returns the id of the given key, or -1 if it's not in the dictionary.
+	 */
+	public int find(String key) {
+		byte[] bytes = key.getBytes(UTF_8);
+		return find(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Returns the id of the given key, adding it if it's not in the dictionary.
+	 *
+	 * @return id of the key, or -1 if it's not in the dictionary and the dictionary is full
+	 */
+	public int intern(String key) {
+		byte[] bytes = key.getBytes(UTF_8);
+		return intern(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Adds the given key, which must not be in the dictionary.
+	 *
+	 * @return id of the key, or -1 if the dictionary is full
+	 */
+	int add(byte[] bytes, int offset, int length, int hash) {
+		if (size == capacity)
+			return NONE;
+		// Before the id is taken, it might throw (the arena can't grow any more):
+		ensureCapacity(length);
+		int id = free[--freeLength];
+		size++;
+		System.arraycopy(bytes, offset, arena, used, length);
+		offsets[id] = used;
+		lengths[id] = length;
+		used += length;
+		table.index(id, hash);
+		link(id);
+		return id;
+	}
+
+	/**
+	 * Removes the key with the given id, its bytes are reclaimed later.
+	 */
+	public void remove(int id) {
+		if (lengths[id] < 0)
+			throw new IllegalArgumentException("id " + id + " is not in the dictionary!");
+		table.unindex(id);
+		unlink(id);
+		garbage += lengths[id];
+		lengths[id] = NONE;
+		free[freeLength++] = id;
+		size--;
+	}
+
+	/**
+	 * Returns the key with the given id.
+	 */
+	public String key(int id) {
+		if (lengths[id] < 0)
+			throw new IllegalArgumentException("id " + id + " is not in the dictionary!");
+		return new String(arena, offsets[id], lengths[id], UTF_8);
+	}
+
+	/**
+	 * Returns whether the given id has a key.
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < capacity && lengths[id] >= 0;
+	}
+
+	/**
+	 * Removes all the keys.
+	 */
+	public void clear() {
+		table.clear();
+		Arrays.fill(lengths, NONE);
+		// So the ids are taken in order, from zero:
+		for (int id = 0; id < capacity; id++)
+			free[id] = capacity - 1 - id;
+		freeLength = capacity;
+		size = 0;
+		first = last = NONE;
+		used = garbage = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the (heap) memory of the dictionary in bytes, roughly.
+	 */
+	public long memory() {
+		return arena.length + table.memory() + 4L * 5 * capacity;
+	}
+
+	/**
+	 * Returns the id of the given key with the given hash (see {@link SlotTable#hash(byte[], int, int)}),
+	 * or -1 if it's not in the dictionary.
+	 */
+	int find(byte[] bytes, int offset, int length, int hash) {
+		for (int idx = table.probe(hash); ; idx = table.next(idx)) {
+			int id = table.slot(idx);
+			if (id == NONE || (table.hash(id) == hash && matches(id, bytes, offset, length)))
+				return id;
+		}
+	}
+
+	private boolean matches(int id, byte[] bytes, int offset, int length) {
+		if (lengths[id] != length)
+			return false;
+		int start = offsets[id];
+		for (int idx = 0; idx < length; idx++)
+			if (arena[start + idx] != bytes[offset + idx])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Links the given (new) key at the end of the keys, in the order of the offsets.
+	 */
+	private void link(int id) {
+		previous[id] = last;
+		next[id] = NONE;
+		if (last == NONE)
+			first = id;
+		else
+			next[last] = id;
+		last = id;
+	}
+
+	private void unlink(int id) {
+		if (previous[id] == NONE)
+			first = next[id];
+		else
+			next[previous[id]] = next[id];
+		if (next[id] == NONE)
+			last = previous[id];
+		else
+			previous[next[id]] = previous[id];
+	}
+
+	/**
+	 * Makes room for a key of the given length, compacting (or growing) the arena.
+	 */
+	private void ensureCapacity(int length) {
+		if (used + length <= arena.length)
+			return;
+		int live = used - garbage;
+		// Compact the arena in place, only grow it if more than half is live:
+		int arenaSize = arena.length;
+		while (live + length > arenaSize / 2)
+			arenaSize = Math.multiplyExact(arenaSize, 2);
+		byte[] compacted = arenaSize == arena.length ? arena : new byte[arenaSize];
+		int position = 0;
+		// In the order of the offsets, a key is never moved over a live one:
+		for (int id = first; id != NONE; id = next[id]) {
+			System.arraycopy(arena, offsets[id], compacted, position, lengths[id]);
+			offsets[id] = position;
+			position += lengths[id];
+		}
+		arena = compacted;
+		used = position;
+		garbage = 0;
+	}
+}
@@ -0,0 +1,25 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * A transient view of an element (token) that is not materialized (as an object) yet,
+ * e.g. a slice of a byte buffer. It lets a summary look up an existing element without
+ * creating the element object; the object is only created when a new counter is needed.
+ *
+ * @param <T> type of stream token
+ */
+public interface KeyView<T> {
+	/**
+	 * Returns the same value as hashCode() of the materialized element
+	 */
+	int keyHash();
+
+	/**
+	 * Returns whether the given element equals to the materialized element
+	 */
+	boolean matches(T element);
+
+	/**
+	 * Creates (or returns) the element object
+	 */
+	T materialize();
+}
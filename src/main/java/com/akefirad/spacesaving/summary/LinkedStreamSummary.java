@@ -0,0 +1,486 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Implementation of Space Saving algorithm using the Stream-Summary data
+ * structure of the original paper (Metwally et al.).
+ * Notes:
+ * 1. Counters with the same count are kept in a bucket (a doubly linked list).
+ * 2. Buckets are kept in a doubly linked list, sorted by their count (ascending).
+ * 3. An incremented counter only ever moves to the next bucket, or to a new
+ * bucket right after its current one, so increment, eviction and finding the
+ * minimum are all O(1). A weighted increment walks over the buckets in between.
+ * 4. A bucket left by its only counter is reused in place, and emptied buckets
+ * are recycled, so increasing a counter does not allocate.
+ * 5. Counters of a bucket are kept in insertion order and the oldest counter of
+ * the minimum bucket is the one evicted.
+ * 6. Counters are indexed by an open addressing (linear probing) table on the
+ * raw element, and an evicted counter is reused for the new element. Once the
+ * summary is full, adding an element does not allocate at all. Elements can
+ * also be looked up by a {@link KeyView}, so they are only materialized when
+ * a new counter is needed.
+ * 7. Optionally, a {@link CountMinSketch} filters the new elements once the summary
+ * is full: a new element replaces the minimum counter only if its sketched frequency
+ * passes the minimum count, and it starts with that (sketched) count. So one-hit
+ * elements of a long tail do not churn the counters, and an element not monitored
+ * still occurs at most as many times as the minimum count.
+ *
+ * @param <T> type of stream token
+ */
+public class LinkedStreamSummary<T> implements StreamSummary<T>, Loadable<T> {
+	private final int size;
+	private final int mask;
+	private final Counter<T>[] table;
+	private int length;
+	private long total;
+
+	private Bucket<T> min;
+	private Bucket<T> max;
+	private Bucket<T> free;
+	private final CountMinSketch admission;
+	private SummaryListener listener = SummaryListener.NONE;
+
+	public LinkedStreamSummary(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * @param size      size of the summary
+	 * @param admission admission filter of the new elements, or null
+	 */
+	public LinkedStreamSummary(int size, CountMinSketch admission) {
+		assertValidSize(size, "size of stream summary");
+		this.size = size;
+		this.admission = admission;
+		int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+		this.mask = capacity - 1;
+		@SuppressWarnings("unchecked")
+		Counter<T>[] table = new Counter[capacity];
+		this.table = table;
+	}
+
+	@Override
+	public void add(T object) {
+		add(object, 1);
+	}
+
+	@Override
+	public void add(T object, long weight) {
+		assertNotNull(object, "value");
+		assertValidWeight(weight, "weight");
+
+		int hash = hash(object);
+		Counter<T> counter = find(object, hash);
+		// If it's not a new element (an overflow throws before any change):
+		if (counter != null) {
+			increment(counter, weight);
+			listener.onHit(weight);
+		} else {
+			long count = admit(hash, weight);
+			if (count > 0)
+				addNew(object, hash, weight, count);
+		}
+		total += weight;
+	}
+
+	@Override
+	public void addView(KeyView<T> view) {
+		assertNotNull(view, "view");
+
+		int hash = SlotTable.spread(view.keyHash());
+		Counter<T> counter = find(view, hash);
+		// If it's not a new element (an overflow throws before any change):
+		if (counter != null) {
+			increment(counter, 1);
+			listener.onHit(1);
+		} else {
+			// Only materialize the element if it's admitted:
+			long count = admit(hash, 1);
+			if (count > 0) {
+				T object = view.materialize();
+				assertNotNull(object, "value");
+				addNew(object, hash, 1, count);
+			}
+		}
+		total++;
+	}
+
+	/**
+	 * Returns the count of a new element, or zero if it's not admitted. The count is
+	 * checked here, before any change, so an overflow leaves the summary as it is.
+	 */
+	private long admit(int hash, long weight) {
+		if (length < size)
+			return Math.toIntExact(weight);
+		if (admission == null)
+			return Math.toIntExact(min.count + weight);
+		int estimate = admission.add(hash, weight);
+		// An unmonitored element occurs at most as many times as the minimum, so a
+		// (colliding) sketched estimate above that is capped:
+		if (estimate > min.count)
+			return Math.min(estimate, min.count + weight);
+		listener.onReject(weight);
+		return 0;
+	}
+
+	private void addNew(T object, int hash, long weight, long count) {
+		listener.onInsert(weight);
+		Counter<T> counter;
+		// If it's a new element, and no space is available:
+		if (length == size) {
+			// Reuse the oldest counter of the minimum bucket:
+			int minCount = min.count;
+			listener.onEvict(minCount);
+			counter = min.first;
+			unindex(counter);
+			if (admission != null)
+				admission.raise(counter.hash, minCount);
+
+			counter.element = object;
+			counter.hash = hash;
+			counter.error = Math.toIntExact(count - weight);
+			index(counter);
+			increment(counter, count - minCount);
+		}
+		// If it's a new element, and some space is available:
+		else {
+			counter = new Counter<>(object, hash);
+			index(counter);
+			length++;
+			insert(counter, Math.toIntExact(weight));
+		}
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		Counters<T> merged = SummaryMerger.merge(this, other);
+		load(total + other.total(), merged);
+	}
+
+	@Override
+	public void load(long total, Counters<? extends T> counters) {
+		clear();
+		this.total = total;
+		for (int idx = 0; idx < counters.size(); idx++) {
+			T element = counters.element(idx);
+			Counter<T> counter = new Counter<>(element, hash(element));
+			counter.error = counters.error(idx);
+			index(counter);
+			length++;
+			insert(counter, counters.count(idx));
+		}
+		// Every element not monitored occurs at most as many times as the minimum:
+		if (admission != null)
+			admission.fill(length < size ? 0 : min.count);
+	}
+
+	/**
+	 * Sets the listener of the events of the summary (e.g. for metrics)
+	 *
+	 * @param listener listener, or {@link SummaryListener#NONE}
+	 */
+	public void setListener(SummaryListener listener) {
+		assertNotNull(listener, "listener");
+		this.listener = listener;
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		Map<SummaryElement<T>, Integer> map = new HashMap<>();
+		for (Bucket<T> bucket = max; bucket != null; bucket = bucket.prev)
+			for (Counter<T> counter = bucket.first; counter != null; counter = counter.next)
+				map.put(new SummaryElement<>(counter.element, counter.error), bucket.count);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		// Buckets are already sorted, there is no need to sort the counters:
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Bucket<T> bucket = max; bucket != null; bucket = bucket.prev)
+			for (Counter<T> counter = bucket.first; counter != null; counter = counter.next)
+				map.put(new SummaryElement<>(counter.element, counter.error), bucket.count);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		Counter<T> previous = null;
+		int previousCount = 0;
+		for (Bucket<T> bucket = max; bucket != null; bucket = bucket.prev) {
+			for (Counter<T> counter = bucket.first; counter != null; counter = counter.next) {
+				if (previous != null && previousCount - previous.error > bucket.count)
+					map.put(new SummaryElement<>(previous.element, previous.error), previousCount);
+				previous = counter;
+				previousCount = bucket.count;
+			}
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		// Walk down from the biggest count, and stop after k counters:
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Bucket<T> bucket = max; bucket != null && map.size() < k; bucket = bucket.prev)
+			for (Counter<T> counter = bucket.first; counter != null && map.size() < k; counter = counter.next)
+				map.put(new SummaryElement<>(counter.element, counter.error), bucket.count);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		double threshold = phi * total;
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Bucket<T> bucket = max; bucket != null && bucket.count > threshold; bucket = bucket.prev)
+			for (Counter<T> counter = bucket.first; counter != null; counter = counter.next)
+				map.put(new SummaryElement<>(counter.element, counter.error), bucket.count);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(T object) {
+		assertNotNull(object, "value");
+		Counter<T> counter = find(object, hash(object));
+		if (counter != null)
+			return new Estimate(counter.bucket.count, counter.error, true);
+		int min = length < size ? 0 : this.min.count;
+		return new Estimate(min, min, false);
+	}
+
+	void clear() {
+		Arrays.fill(table, null);
+		length = 0;
+		min = max = free = null;
+		total = 0;
+		if (admission != null)
+			admission.fill(0);
+	}
+
+	private static int hash(Object object) {
+		return SlotTable.spread(object.hashCode());
+	}
+
+	private Counter<T> find(KeyView<T> view, int hash) {
+		for (int idx = hash & mask; ; idx = (idx + 1) & mask) {
+			Counter<T> counter = table[idx];
+			if (counter == null || (counter.hash == hash && view.matches(counter.element)))
+				return counter;
+		}
+	}
+
+	private Counter<T> find(T object, int hash) {
+		for (int idx = hash & mask; ; idx = (idx + 1) & mask) {
+			Counter<T> counter = table[idx];
+			if (counter == null || (counter.hash == hash && counter.element.equals(object)))
+				return counter;
+		}
+	}
+
+	private void index(Counter<T> counter) {
+		int idx = counter.hash & mask;
+		while (table[idx] != null)
+			idx = (idx + 1) & mask;
+		table[idx] = counter;
+	}
+
+	private void unindex(Counter<T> counter) {
+		int gap = counter.hash & mask;
+		while (table[gap] != counter)
+			gap = (gap + 1) & mask;
+
+		// Shift back the following counters of the cluster, instead of leaving a tombstone:
+		for (int idx = (gap + 1) & mask; table[idx] != null; idx = (idx + 1) & mask) {
+			int home = table[idx].hash & mask;
+			if (((idx - home) & mask) >= ((idx - gap) & mask)) {
+				table[gap] = table[idx];
+				gap = idx;
+			}
+		}
+		table[gap] = null;
+	}
+
+	/**
+	 * Adds the given (detached) counter with the given count. It's O(1) for counts
+	 * not bigger than the minimum, and when counters are inserted in ascending order.
+	 */
+	private void insert(Counter<T> counter, int count) {
+		Bucket<T> before;
+		if (min == null || count <= min.count) {
+			before = min;
+		} else {
+			Bucket<T> after = max;
+			while (after.count > count)
+				after = after.prev;
+			if (after.count == count) {
+				attach(counter, after);
+				return;
+			}
+			before = after.next;
+		}
+
+		if (before == null || before.count != count) {
+			Bucket<T> bucket = newBucket(count);
+			linkBefore(bucket, before);
+			before = bucket;
+		}
+		attach(counter, before);
+	}
+
+	private void increment(Counter<T> counter, long delta) {
+		Bucket<T> bucket = counter.bucket;
+		int count = Math.toIntExact(bucket.count + delta);
+		boolean alone = bucket.first == counter && counter.next == null;
+
+		Bucket<T> after = bucket;
+		Bucket<T> next = bucket.next;
+		while (next != null && next.count < count) {
+			after = next;
+			next = next.next;
+		}
+
+		if (next != null && next.count == count) {
+			detach(counter);
+			attach(counter, next);
+			if (alone)
+				unlink(bucket);
+		} else if (alone && after == bucket) {
+			// The only counter of its bucket; the bucket can be reused in place:
+			bucket.count = count;
+		} else {
+			detach(counter);
+			if (alone)
+				unlink(bucket);
+			Bucket<T> target = newBucket(count);
+			linkBefore(target, after.next);
+			attach(counter, target);
+		}
+	}
+
+	private void attach(Counter<T> counter, Bucket<T> bucket) {
+		counter.bucket = bucket;
+		counter.prev = bucket.last;
+		counter.next = null;
+		if (bucket.last == null)
+			bucket.first = counter;
+		else
+			bucket.last.next = counter;
+		bucket.last = counter;
+	}
+
+	private void detach(Counter<T> counter) {
+		Bucket<T> bucket = counter.bucket;
+		if (counter.prev == null)
+			bucket.first = counter.next;
+		else
+			counter.prev.next = counter.next;
+		if (counter.next == null)
+			bucket.last = counter.prev;
+		else
+			counter.next.prev = counter.prev;
+		counter.bucket = null;
+		counter.prev = counter.next = null;
+	}
+
+	/**
+	 * Links the given (detached) bucket right before the given bucket,
+	 * or at the end of the list if the given bucket is null.
+	 */
+	private void linkBefore(Bucket<T> bucket, Bucket<T> next) {
+		Bucket<T> prev = next == null ? max : next.prev;
+		bucket.prev = prev;
+		bucket.next = next;
+		if (prev == null)
+			min = bucket;
+		else
+			prev.next = bucket;
+		if (next == null)
+			max = bucket;
+		else
+			next.prev = bucket;
+	}
+
+	private void unlink(Bucket<T> bucket) {
+		assert bucket.first == null : "Expecting an empty bucket!";
+		if (bucket.prev == null)
+			min = bucket.next;
+		else
+			bucket.prev.next = bucket.next;
+		if (bucket.next == null)
+			max = bucket.prev;
+		else
+			bucket.next.prev = bucket.prev;
+
+		// Recycle the bucket:
+		listener.onBucketRemoved();
+		bucket.prev = null;
+		bucket.next = free;
+		free = bucket;
+	}
+
+	private Bucket<T> newBucket(int count) {
+		listener.onBucketCreated();
+		Bucket<T> bucket = free;
+		if (bucket == null)
+			bucket = new Bucket<>();
+		else
+			free = bucket.next;
+		bucket.count = count;
+		bucket.next = null;
+		return bucket;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (Bucket<T> bucket = max; bucket != null; bucket = bucket.prev)
+			for (Counter<T> counter = bucket.first; counter != null; counter = counter.next)
+				sb.append(counter.element)
+						.append(":").append(bucket.count)
+						.append(":").append(counter.error)
+						.append(", ");
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private static final class Counter<T> {
+		private T element;
+		private int hash;
+		private int error;
+		private Bucket<T> bucket;
+		private Counter<T> prev;
+		private Counter<T> next;
+
+		private Counter(T element, int hash) {
+			this.element = element;
+			this.hash = hash;
+		}
+	}
+
+	private static final class Bucket<T> {
+		private int count;
+		private Counter<T> first;
+		private Counter<T> last;
+		private Bucket<T> prev;
+		private Bucket<T> next;
+	}
+}
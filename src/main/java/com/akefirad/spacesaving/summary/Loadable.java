@@ -0,0 +1,14 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * A summary which can be loaded in bulk, see {@link SummaryLoader}.
+ *
+ * @param <T> type of stream token
+ */
+interface Loadable<T> {
+	/**
+	 * Replaces the counters and the total of the summary with the given ones. The
+	 * counters are in ascending order of their counts, so each insertion is O(1).
+	 */
+	void load(long total, Counters<? extends T> counters);
+}
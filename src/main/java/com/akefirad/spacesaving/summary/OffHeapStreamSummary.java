@@ -0,0 +1,328 @@
+package com.akefirad.spacesaving.summary;
+
+import com.akefirad.spacesaving.checkpoint.KeyCodec;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static com.akefirad.spacesaving.summary.CounterBuckets.NONE;
+import static java.nio.ByteOrder.nativeOrder;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Implementation of Space Saving algorithm with the counters kept off heap, for
+ * very large summaries (e.g. tens of millions of counters).
+ * Notes:
+ * 1. Keys are encoded (see {@link KeyCodec}) and stored in an arena of direct
+ * chunks; when the evicted keys are more than the live ones, the live keys are
+ * copied to a new arena (compaction), so the arena stays bounded.
+ * 2. Slots (key reference, hash and error), the open addressing index of the slots
+ * and the count buckets (see {@link DirectCounterBuckets}) are in direct buffers.
+ * A counter takes about 56 bytes of native memory plus its key, and nothing on heap.
+ * 3. Keys are encoded in to a reused (scratch) buffer and looked up by their bytes, so
+ * adding (or estimating) an element allocates nothing; the elements are only decoded
+ * (on heap) when the summary is queried.
+ * 4. The native memory is released by {@link #close()}; the summary must not be
+ * used after that.
+ *
+ * @param <T> type of stream token
+ */
+public class OffHeapStreamSummary<T> implements StreamSummary<T>, Loadable<T>, Closeable {
+	private static final int SLOT_BYTES = 16;
+	private static final int SLOT_KEY = 0;
+	private static final int SLOT_HASH = 8;
+	private static final int SLOT_ERROR = 12;
+
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+	private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+	private static final int SCRATCH_SIZE = 64;
+
+	private final int size;
+	private final KeyCodec<T> codec;
+	private final int mask;
+	private final ByteBuffer tableMemory;
+	private final IntBuffer table;
+	private final ByteBuffer slots;
+	private final DirectCounterBuckets buckets;
+	private final int chunkSize;
+	private KeyArena keys;
+	private ByteBuffer scratch = ByteBuffer.allocate(SCRATCH_SIZE);
+	private int length;
+	private long total;
+	private boolean closed;
+
+	/**
+	 * @param size  size of stream summary
+	 * @param codec codec of the keys
+	 */
+	public OffHeapStreamSummary(int size, KeyCodec<T> codec) {
+		assertValidSize(size, "size of stream summary");
+		assertNotNull(codec, "codec");
+		if (size > Integer.MAX_VALUE / (SLOT_BYTES * 2))
+			throw new IllegalArgumentException("size of stream summary is too big!");
+		this.size = size;
+		this.codec = codec;
+		int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+		this.mask = capacity - 1;
+		this.tableMemory = ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(nativeOrder());
+		this.table = tableMemory.asIntBuffer();
+		this.slots = ByteBuffer.allocateDirect(size * SLOT_BYTES).order(nativeOrder());
+		this.buckets = new DirectCounterBuckets(size);
+		this.chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE,
+				Integer.highestOneBit(Math.max(size, 2) * 32 - 1) << 1));
+		this.keys = new KeyArena(chunkSize);
+	}
+
+	@Override
+	public void add(T object) {
+		add(object, 1);
+	}
+
+	@Override
+	public void add(T object, long weight) {
+		assertNotNull(object, "value");
+		assertValidWeight(weight, "weight");
+		ensureOpen();
+		int keyLength = encode(object);
+		// Checked before any change, so a long key leaves the summary as it is:
+		keys.checkLength(keyLength);
+		byte[] key = scratch.array();
+		int hash = SlotTable.hash(key, 0, keyLength);
+		int slot = find(key, keyLength, hash);
+		// If it's not a new element (an overflow throws before any change):
+		if (slot != NONE) {
+			buckets.increment(slot, weight);
+		}
+		// If it's a new element, and no space is available:
+		else if (length == size) {
+			buckets.checkMinIncrement(weight);
+			// Reuse the oldest slot with the minimum count:
+			slot = buckets.minSlot();
+			unindex(slot);
+			keys.free(key(slot));
+			set(slot, keys.allocate(key, keyLength), hash, buckets.min());
+			index(slot);
+			buckets.increment(slot, weight);
+			if (keys.wasteful())
+				compact();
+		}
+		// If it's a new element, and some space is available:
+		else {
+			int count = Math.toIntExact(weight);
+			slot = length++;
+			set(slot, keys.allocate(key, keyLength), hash, 0);
+			index(slot);
+			buckets.insert(slot, count);
+		}
+		total += weight;
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		ensureOpen();
+		Counters<T> merged = SummaryMerger.merge(this, other);
+		load(total + other.total(), merged);
+	}
+
+	@Override
+	public void load(long total, Counters<? extends T> counters) {
+		ensureOpen();
+		this.total = total;
+		clear();
+		for (int idx = 0; idx < counters.size(); idx++) {
+			int keyLength = encode(counters.element(idx));
+			byte[] key = scratch.array();
+			int slot = length++;
+			set(slot, keys.allocate(key, keyLength), SlotTable.hash(key, 0, keyLength), counters.error(idx));
+			index(slot);
+			buckets.insert(slot, counters.count(idx));
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Returns the native memory of the summary (including the keys) in bytes
+	 *
+	 * @return size of the off-heap memory
+	 */
+	public long memory() {
+		ensureOpen();
+		return tableMemory.capacity() + slots.capacity() +
+				(long) size * (DirectCounterBuckets.SLOT_INTS + DirectCounterBuckets.BUCKET_INTS) * Integer.BYTES +
+				keys.memory();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		ensureOpen();
+		return SlotQueries.topK(buckets::descend, k, this::element);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		ensureOpen();
+		return SlotQueries.heavyHitters(buckets::descend, phi * total, this::element);
+	}
+
+	@Override
+	public Estimate estimate(T object) {
+		assertNotNull(object, "value");
+		ensureOpen();
+		int keyLength = encode(object);
+		// A key too long for the summary is never monitored:
+		int slot = keys.fits(keyLength) ? find(scratch.array(), keyLength, SlotTable.hash(scratch.array(), 0, keyLength)) : NONE;
+		if (slot != NONE)
+			return new Estimate(buckets.count(slot), error(slot), true);
+		int min = length < size ? 0 : buckets.min();
+		return new Estimate(min, min, false);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		ensureOpen();
+		Map<SummaryElement<T>, Integer> map = new HashMap<>();
+		for (int slot = 0; slot < length; slot++)
+			map.put(element(slot), buckets.count(slot));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return topK(length);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		ensureOpen();
+		return SlotQueries.mostFrequents(buckets::descend, this::element);
+	}
+
+	/**
+	 * Releases the native memory of the summary.
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		keys.release();
+		buckets.release();
+		DirectBuffers.release(slots);
+		DirectBuffers.release(tableMemory);
+	}
+
+	private void ensureOpen() {
+		if (closed)
+			throw new IllegalStateException("summary is closed!");
+	}
+
+	private void clear() {
+		for (int idx = 0; idx <= mask; idx++)
+			table.put(idx, 0);
+		buckets.clear();
+		keys.release();
+		keys = new KeyArena(chunkSize);
+		length = 0;
+	}
+
+	/**
+	 * Copies the live keys to a new arena, and releases the old one.
+	 */
+	private void compact() {
+		KeyArena arena = new KeyArena(chunkSize);
+		for (int slot = 0; slot < length; slot++)
+			slots.putLong(slot * SLOT_BYTES + SLOT_KEY, arena.copy(keys, key(slot)));
+		keys.release();
+		keys = arena;
+	}
+
+	/**
+	 * Encodes the given element in to the scratch buffer, and returns its length. The buffer
+	 * grows for a longer key, unless it doesn't fit in the arena anyway.
+	 */
+	private int encode(T object) {
+		((Buffer) scratch).clear();
+		int keyLength = codec.encode(object, scratch);
+		if (keyLength > scratch.capacity() && keys.fits(keyLength)) {
+			scratch = ByteBuffer.allocate(Math.max(keyLength, scratch.capacity() * 2));
+			keyLength = codec.encode(object, scratch);
+		}
+		return keyLength;
+	}
+
+	private SummaryElement<T> element(int slot) {
+		return new SummaryElement<>(codec.decode(keys.key(key(slot))), error(slot));
+	}
+
+	private void set(int slot, long key, int hash, int error) {
+		int offset = slot * SLOT_BYTES;
+		slots.putLong(offset + SLOT_KEY, key);
+		slots.putInt(offset + SLOT_HASH, hash);
+		slots.putInt(offset + SLOT_ERROR, error);
+	}
+
+	private long key(int slot) {
+		return slots.getLong(slot * SLOT_BYTES + SLOT_KEY);
+	}
+
+	private int hash(int slot) {
+		return slots.getInt(slot * SLOT_BYTES + SLOT_HASH);
+	}
+
+	private int error(int slot) {
+		return slots.getInt(slot * SLOT_BYTES + SLOT_ERROR);
+	}
+
+	private int find(byte[] key, int length, int hash) {
+		for (int idx = hash & mask; ; idx = (idx + 1) & mask) {
+			int slot = table.get(idx) - 1;
+			if (slot == NONE || (hash(slot) == hash && keys.matches(key(slot), key, length)))
+				return slot;
+		}
+	}
+
+	private void index(int slot) {
+		int idx = hash(slot) & mask;
+		while (table.get(idx) != 0)
+			idx = (idx + 1) & mask;
+		table.put(idx, slot + 1);
+	}
+
+	private void unindex(int slot) {
+		int gap = hash(slot) & mask;
+		while (table.get(gap) != slot + 1)
+			gap = (gap + 1) & mask;
+
+		// Shift back the following slots of the cluster, instead of leaving a tombstone:
+		for (int idx = (gap + 1) & mask; table.get(idx) != 0; idx = (idx + 1) & mask) {
+			int home = hash(table.get(idx) - 1) & mask;
+			if (((idx - home) & mask) >= ((idx - gap) & mask)) {
+				table.put(gap, table.get(idx));
+				gap = idx;
+			}
+		}
+		table.put(gap, 0);
+	}
+
+	@Override
+	public String toString() {
+		return closed ? "{closed}" : sortedFrequencies().toString();
+	}
+}
@@ -0,0 +1,272 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * A sampling front-end of a summary, for the streams faster than the summary.
+ * Notes:
+ * 1. An element is admitted with the probability p = 1 / 2^level, decided by the
+ * bits of a random number (thread local by default, so it needs no lock nor seed);
+ * a skipped element only costs the random number and a counter.
+ * 2. An admitted element is added with its weight times 2^level, so the counts and
+ * the errors of the summary are (unbiased) estimates of the real ones, even if the
+ * level changes over time.
+ * 3. Every few thousand elements, the rate of the admitted elements is measured; the
+ * level goes up (p is halved) while the rate is over the budget, and goes down again
+ * once the rate is well below the budget.
+ * 4. Once sampled, a count might be less than the real one; the sampling error is
+ * bounded by three standard deviations, i.e. 3 * sqrt(count * (1 / p - 1)) with the
+ * smallest p so far, with a high probability. The errors reported by the queries
+ * include this bound, the most frequent elements are only the guaranteed ones after
+ * both errors, and the heavy hitters are all the ones that might be over the
+ * threshold after the sampling error. Without sampling (p = 1), the summary is the same as the
+ * underlying summary.
+ * 5. It's not thread-safe (nor is the underlying summary, usually); to sample a
+ * stream of many threads, use a front-end per thread, or lock it.
+ *
+ * @param <T> type of stream token
+ */
+public class SampledStreamSummary<T> implements StreamSummary<T> {
+	private static final int CHECK_INTERVAL = 1 << 12;
+	private static final int MAX_LEVEL = 30;
+	private static final double SIGMAS = 3;
+
+	private final StreamSummary<T> summary;
+	private final long budget;
+	private final LongSupplier clock;
+	private final IntSupplier random;
+
+	private int level;
+	private int maxLevel;
+	private int mask;
+	private long total;
+	private int seen;
+	private long admitted;
+	private long windowStart;
+
+	/**
+	 * @param summary the underlying summary
+	 * @param budget  maximum number of the admitted elements per second
+	 */
+	public SampledStreamSummary(StreamSummary<T> summary, long budget) {
+		this(summary, budget, System::nanoTime);
+	}
+
+	/**
+	 * @param summary the underlying summary
+	 * @param budget  maximum number of the admitted elements per second
+	 * @param clock   clock in nanoseconds, e.g. System::nanoTime
+	 */
+	public SampledStreamSummary(StreamSummary<T> summary, long budget, LongSupplier clock) {
+		this(summary, budget, clock, () -> ThreadLocalRandom.current().nextInt());
+	}
+
+	/**
+	 * @param summary the underlying summary
+	 * @param budget  maximum number of the admitted elements per second
+	 * @param clock   clock in nanoseconds, e.g. System::nanoTime
+	 * @param random  source of the random bits, e.g. new Random(seed)::nextInt
+	 */
+	public SampledStreamSummary(StreamSummary<T> summary, long budget, LongSupplier clock, IntSupplier random) {
+		assertNotNull(summary, "summary");
+		assertValidWeight(budget, "budget");
+		assertNotNull(clock, "clock");
+		assertNotNull(random, "random");
+		this.summary = summary;
+		this.budget = budget;
+		this.clock = clock;
+		this.random = random;
+		this.windowStart = clock.getAsLong();
+	}
+
+	@Override
+	public void add(T element) {
+		add(element, 1);
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		assertNotNull(element, "value");
+		assertValidWeight(weight, "weight");
+		if (sample(weight))
+			summary.add(element, Math.multiplyExact(weight, 1L << level));
+	}
+
+	@Override
+	public void addView(KeyView<T> view) {
+		assertNotNull(view, "view");
+		if (!sample(1))
+			return;
+		// Only materialize the admitted elements, with their scaled weight:
+		if (level == 0)
+			summary.addView(view);
+		else
+			summary.add(view.materialize(), 1L << level);
+	}
+
+	@Override
+	public void addAll(Iterable<? extends T> elements) {
+		// Sample before aggregating, so the skipped elements cost nothing:
+		assertNotNull(elements, "elements");
+		for (T element : elements)
+			add(element);
+	}
+
+	/**
+	 * Returns whether the element is admitted, and adapts the level now and then.
+	 */
+	private boolean sample(long weight) {
+		total += weight;
+		if (++seen >= CHECK_INTERVAL)
+			adapt();
+		if (level != 0 && (random.getAsInt() & mask) != 0)
+			return false;
+		admitted++;
+		return true;
+	}
+
+	private void adapt() {
+		long now = clock.getAsLong();
+		long elapsed = Math.max(1, now - windowStart);
+		double rate = admitted * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+		if (rate > budget && level < MAX_LEVEL)
+			setLevel(level + 1);
+		else if (rate < budget / 4.0 && level > 0)
+			setLevel(level - 1);
+		seen = 0;
+		admitted = 0;
+		windowStart = now;
+	}
+
+	private void setLevel(int level) {
+		this.level = level;
+		this.maxLevel = Math.max(maxLevel, level);
+		this.mask = (1 << level) - 1;
+	}
+
+	/**
+	 * Returns the current probability of admitting an element.
+	 */
+	public double probability() {
+		return 1.0 / (1L << level);
+	}
+
+	/**
+	 * Returns the bound of the sampling error of the given (estimated) count.
+	 */
+	public int samplingError(int count) {
+		if (maxLevel == 0)
+			return 0;
+		return (int) Math.ceil(SIGMAS * Math.sqrt(count * (double) ((1L << maxLevel) - 1)));
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		assertNotNull(other, "other");
+		if (other instanceof SampledStreamSummary) {
+			SampledStreamSummary<T> sampled = (SampledStreamSummary<T>) other;
+			maxLevel = Math.max(maxLevel, sampled.maxLevel);
+			summary.merge(sampled.summary);
+			total += sampled.total;
+		} else {
+			summary.merge(other);
+			total += other.total();
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return summary.capacity();
+	}
+
+	/**
+	 * Returns the total number (weight) of the elements, both admitted and skipped.
+	 */
+	@Override
+	public long total() {
+		return total;
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return withSamplingErrors(summary.frequencies());
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return withSamplingErrors(summary.sortedFrequencies());
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		return withSamplingErrors(summary.topK(k));
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		if (maxLevel == 0)
+			return summary.mostFrequents();
+		// Guaranteed if its lower bound is more than the upper bound of the next one:
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		SummaryElement<T> previous = null;
+		int previousCount = 0;
+		for (Map.Entry<SummaryElement<T>, Integer> entry : sortedFrequencies().entrySet()) {
+			int count = entry.getValue();
+			if (previous != null && previousCount - previous.error() > count + samplingError(count))
+				map.put(previous, previousCount);
+			previous = entry.getKey();
+			previousCount = count;
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		if (maxLevel == 0)
+			return withSamplingErrors(summary.heavyHitters(phi));
+		assertValidRatio(phi, "phi");
+		// A sampled count might be less than the real one, by up to its sampling error:
+		double threshold = phi * total;
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Map.Entry<SummaryElement<T>, Integer> entry : sortedFrequencies().entrySet()) {
+			int count = entry.getValue();
+			if (count + (long) samplingError(count) <= threshold)
+				break;
+			map.put(entry.getKey(), count);
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		Estimate estimate = summary.estimate(element);
+		if (maxLevel == 0)
+			return estimate;
+		int error = Math.min(estimate.count(), estimate.error() + samplingError(estimate.count()));
+		return new Estimate(estimate.count(), error, estimate.monitored());
+	}
+
+	private Map<SummaryElement<T>, Integer> withSamplingErrors(Map<SummaryElement<T>, Integer> frequencies) {
+		if (maxLevel == 0)
+			return frequencies;
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		frequencies.forEach((element, count) -> map.put(new SummaryElement<>(element.get(),
+				Math.min(count, element.error() + samplingError(count))), count));
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public String toString() {
+		return "p=" + probability() + " " + summary;
+	}
+}
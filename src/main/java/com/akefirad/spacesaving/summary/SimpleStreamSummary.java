@@ -5,7 +5,9 @@ import org.slf4j.Logger;
 import java.util.*;
 
 import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
 import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.IntStream.range;
@@ -22,62 +24,115 @@ import static org.slf4j.LoggerFactory.getLogger;
  * elements with the same counter is one place, a linked list is used.
  * Depending on the stream and alphabet size and distribution, the process
  * of finding elements and removing them (the there is no space), might
- * be expensive. In this implementation a HashSet (or LinkedHashSet) is used.
+ * be expensive. In this implementation a HashMap (of each element to itself, so
+ * its error can be looked up) is used.
+ * 3. Optionally, a {@link CountMinSketch} filters the new elements once the summary
+ * is full (see {@link LinkedStreamSummary}).
+ * 4. It's not thread-safe, the frequencies are a view of the (live) map; to query
+ * the counters while they are being updated, see {@link SnapshotStreamSummary}.
  *
  * @param <T> type of stream token
  */
-public class SimpleStreamSummary<T> implements StreamSummary<T> {
+public class SimpleStreamSummary<T> implements StreamSummary<T>, Loadable<T> {
 	private static final Logger logger = getLogger(SimpleStreamSummary.class);
 
 	private final int size;
 	private final Map<SummaryElement<T>, Integer> elements;
-	private final NavigableMap<Integer, Set<SummaryElement<T>>> counts;
+	private final NavigableMap<Integer, Map<SummaryElement<T>, SummaryElement<T>>> counts;
+	private long total;
+	private final CountMinSketch admission;
+	private SummaryListener listener = SummaryListener.NONE;
 
 	public SimpleStreamSummary(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * @param size      size of the summary
+	 * @param admission admission filter of the new elements, or null
+	 */
+	public SimpleStreamSummary(int size, CountMinSketch admission) {
 		assertValidSize(size, "size of stream summary");
 		this.size = size;
+		this.admission = admission;
 		this.elements = new HashMap<>();
 		this.counts = new TreeMap<>();
 	}
 
 	@Override
 	public void add(T object) {
+		add(object, 1);
+	}
+
+	@Override
+	public void add(T object, long weight) {
 		assertNotNull(object, "value");
+		assertValidWeight(weight, "weight");
 
 		SummaryElement<T> element = new SummaryElement<>(object);
-		logger.trace("Adding element {}...", element);
+		if (logger.isTraceEnabled())
+			logger.trace("Adding element {}...", element);
 
 		Integer count = elements.get(element);
 		// If it's not a new element:
 		if (count != null) {
-			logger.trace("Existing element. Increasing count {}...", element, count);
-			assert counts.get(count).contains(element);
+			// Checked before any change, so an overflow leaves the summary as it is:
+			int newCount = Math.toIntExact(count + weight);
+			listener.onHit(weight);
+			if (logger.isTraceEnabled())
+				logger.trace("Existing element. Increasing count {}...", element, count);
+			assert counts.get(count).containsKey(element);
 
-			Set<SummaryElement<T>> elements = counts.get(count);
-			boolean removed = elements.remove(element);
-			assert removed : "Expecting element '" + object + "' in the set!";
+			Map<SummaryElement<T>, SummaryElement<T>> elements = counts.get(count);
+			SummaryElement<T> removed = elements.remove(element);
+			assert removed != null : "Expecting element '" + object + "' in the set!";
+			element = removed;
 
 			if (elements.isEmpty()) {
-				logger.trace("The set for count {} is empty. Removing it...", count);
+				if (logger.isTraceEnabled())
+					logger.trace("The set for count {} is empty. Removing it...", count);
 				counts.remove(count);
+				listener.onBucketRemoved();
 			}
 
-			doAdd(element, count + 1);
+			doAdd(element, newCount);
 		}
 		// If it's a new element, and no space is available:
 		else if (elements.size() == size) {
 			assert !counts.firstEntry().getValue().isEmpty();
 
-			logger.trace("New element, but no space. Removing one element...");
+			if (logger.isTraceEnabled())
+				logger.trace("New element, but no space. Removing one element...");
 
 			Integer minCount = counts.firstKey();
-			Set<SummaryElement<T>> minElements = counts.get(minCount);
+			// Without enough (sketched) occurrences, the new element is not admitted:
+			long newCount;
+			if (admission == null) {
+				// Checked before the minimum element is removed:
+				newCount = Math.toIntExact(minCount + weight);
+			} else {
+				newCount = admission.add(hash(object), weight);
+				if (newCount <= minCount) {
+					if (logger.isTraceEnabled())
+						logger.trace("Sketched count {} is not bigger than {}. Rejecting...", newCount, minCount);
+					listener.onReject(weight);
+					total += weight;
+					return;
+				}
+				// An unmonitored element occurs at most as many times as the minimum, so a
+				// (colliding) sketched estimate above that is capped:
+				newCount = Math.min(newCount, minCount + weight);
+			}
+
+			listener.onInsert(weight);
+			listener.onEvict(minCount);
+			Map<SummaryElement<T>, SummaryElement<T>> minElements = counts.get(minCount);
 			assert minElements.size() > 0 : "Expecting non-empty set!";
 
 			// Might be important which one should be removed:
 
 			// Option1: Get the first element!
-			SummaryElement<T> minElement = minElements.iterator().next();
+			SummaryElement<T> minElement = minElements.keySet().iterator().next();
 
 			// Option2: Get the element with the biggest error!
 			//SummaryElement<T> minElement = minElements.stream()
@@ -86,24 +141,70 @@ public class SimpleStreamSummary<T> implements StreamSummary<T> {
 
 			// Trying option2 might slightly improve the overestimation.
 
-			logger.trace("Minimum count is {}. Removing '{}'...", minCount, minElement);
+			if (logger.isTraceEnabled())
+				logger.trace("Minimum count is {}. Removing '{}'...", minCount, minElement);
 
 			minElements.remove(minElement);
 			if (minElements.isEmpty()) {
-				logger.trace("The set for count {} is empty. Removing it...", minCount);
+				if (logger.isTraceEnabled())
+					logger.trace("The set for count {} is empty. Removing it...", minCount);
 				counts.remove(minCount);
+				listener.onBucketRemoved();
 			}
 
 			Integer expected = elements.remove(minElement);
 			assert Objects.equals(expected, minCount);
+			if (admission != null)
+				admission.raise(hash(minElement.get()), minCount);
 
 			// Ask for more information: Should the old error be added?
-			doAdd(new SummaryElement<>(object, minCount), minCount + 1);
+			doAdd(new SummaryElement<>(object, Math.toIntExact(newCount - weight)), Math.toIntExact(newCount));
 		}
 		// If it's a new element, and some space is available:
 		else {
-			doAdd(element, 1);
+			int newCount = Math.toIntExact(weight);
+			listener.onInsert(weight);
+			doAdd(element, newCount);
 		}
+		total += weight;
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		Counters<T> merged = SummaryMerger.merge(this, other);
+		load(total + other.total(), merged);
+	}
+
+	@Override
+	public void load(long total, Counters<? extends T> counters) {
+		this.total = total;
+		elements.clear();
+		counts.clear();
+		for (int idx = 0; idx < counters.size(); idx++)
+			doAdd(new SummaryElement<>(counters.element(idx), counters.error(idx)), counters.count(idx));
+		// Every element not monitored occurs at most as many times as the minimum:
+		if (admission != null)
+			admission.fill(elements.size() < size ? 0 : counts.firstKey());
+	}
+
+	/**
+	 * Sets the listener of the events of the summary (e.g. for metrics)
+	 *
+	 * @param listener listener, or {@link SummaryListener#NONE}
+	 */
+	public void setListener(SummaryListener listener) {
+		assertNotNull(listener, "listener");
+		this.listener = listener;
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		return total;
 	}
 
 	@Override
@@ -131,18 +232,63 @@ public class SimpleStreamSummary<T> implements StreamSummary<T> {
 		return unmodifiableMap(map);
 	}
 
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		// Walk down from the biggest count, and stop after k elements:
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Map.Entry<Integer, Map<SummaryElement<T>, SummaryElement<T>>> entry : counts.descendingMap().entrySet()) {
+			for (SummaryElement<T> element : entry.getValue().keySet()) {
+				if (map.size() >= k)
+					return unmodifiableMap(map);
+				map.put(element, entry.getKey());
+			}
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		double threshold = phi * total;
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Map.Entry<Integer, Map<SummaryElement<T>, SummaryElement<T>>> entry : counts.descendingMap().entrySet()) {
+			if (entry.getKey() <= threshold)
+				break;
+			entry.getValue().keySet().forEach(element -> map.put(element, entry.getKey()));
+		}
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(T object) {
+		assertNotNull(object, "value");
+		SummaryElement<T> element = new SummaryElement<>(object);
+		Integer count = elements.get(element);
+		if (count != null)
+			return new Estimate(count, counts.get(count).get(element).error(), true);
+		int min = elements.size() < size ? 0 : counts.firstKey();
+		return new Estimate(min, min, false);
+	}
+
+	private static int hash(Object object) {
+		return SlotTable.spread(object.hashCode());
+	}
+
 	private void doAdd(SummaryElement<T> element, int count) {
 		assert element != null && count > 0;
 
-		logger.trace("Inserting {} with count {}...", element, count);
+		if (logger.isTraceEnabled())
+			logger.trace("Inserting {} with count {}...", element, count);
 		elements.put(element, count);
-		Set<SummaryElement<T>> elements = counts.get(count);
+		Map<SummaryElement<T>, SummaryElement<T>> elements = counts.get(count);
 		if (elements == null) {
-			logger.trace("Create a new set for count {}...", count);
-			elements = new HashSet<>(); // Should be LinkedHashSet?
+			if (logger.isTraceEnabled())
+				logger.trace("Create a new set for count {}...", count);
+			elements = new HashMap<>(); // Should be LinkedHashMap?
 			counts.put(count, elements);
+			listener.onBucketCreated();
 		}
-		elements.add(element);
+		elements.put(element, element);
 	}
 
 	@Override
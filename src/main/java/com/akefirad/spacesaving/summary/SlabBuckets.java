@@ -0,0 +1,283 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.Arrays;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+
+/**
+ * Array based Stream-Summaries (count buckets) of many regions, in shared arrays.
+ * Notes:
+ * 1. The arrays are split in to regions of size slots (and size buckets), each one an
+ * independent Stream-Summary; a slot (or a bucket) is identified by its index in the
+ * shared arrays, the owner keeps the elements (and errors) of the slots in its own
+ * (parallel) arrays. {@link CounterBuckets} is the single region case.
+ * 2. Slots with the same count are linked in a bucket, in insertion order,
+ * and buckets are linked in ascending order of their counts.
+ * 3. There are never more non-empty buckets than slots in a region, so all the links
+ * are preallocated primitive arrays and no operation allocates; the state of a region
+ * is a few ints (minimum, maximum, free buckets and the never used buckets).
+ */
+final class SlabBuckets {
+	static final int NONE = -1;
+
+	private final int size;
+
+	private final int[] slotBucket;
+	private final int[] slotPrev;
+	private final int[] slotNext;
+
+	private final int[] counts;
+	private final int[] first;
+	private final int[] last;
+	private final int[] prev;
+	private final int[] next;
+
+	private final int[] min;
+	private final int[] max;
+	private final int[] free;
+	private final int[] unused;
+
+	SlabBuckets(int size, int regions) {
+		assertValidSize(size, "number of slots");
+		assertValidSize(regions, "number of regions");
+		int length = Math.multiplyExact(size, regions);
+		this.size = size;
+		this.slotBucket = new int[length];
+		this.slotPrev = new int[length];
+		this.slotNext = new int[length];
+		this.counts = new int[length];
+		this.first = new int[length];
+		this.last = new int[length];
+		this.prev = new int[length];
+		this.next = new int[length];
+		this.min = new int[regions];
+		this.max = new int[regions];
+		this.free = new int[regions];
+		this.unused = new int[regions];
+		for (int region = 0; region < regions; region++)
+			clear(region);
+	}
+
+	/**
+	 * Removes all the slots of the given region, in O(size).
+	 */
+	void clear(int region) {
+		Arrays.fill(slotBucket, base(region), base(region) + size, NONE);
+		min[region] = max[region] = free[region] = NONE;
+		unused[region] = 0;
+	}
+
+	/**
+	 * Copies the slots and the buckets of the given buckets (of the same size and regions).
+	 */
+	void copyFrom(SlabBuckets other) {
+		int length = counts.length;
+		System.arraycopy(other.slotBucket, 0, slotBucket, 0, length);
+		System.arraycopy(other.slotPrev, 0, slotPrev, 0, length);
+		System.arraycopy(other.slotNext, 0, slotNext, 0, length);
+		System.arraycopy(other.counts, 0, counts, 0, length);
+		System.arraycopy(other.first, 0, first, 0, length);
+		System.arraycopy(other.last, 0, last, 0, length);
+		System.arraycopy(other.prev, 0, prev, 0, length);
+		System.arraycopy(other.next, 0, next, 0, length);
+		int regions = min.length;
+		System.arraycopy(other.min, 0, min, 0, regions);
+		System.arraycopy(other.max, 0, max, 0, regions);
+		System.arraycopy(other.free, 0, free, 0, regions);
+		System.arraycopy(other.unused, 0, unused, 0, regions);
+	}
+
+	/**
+	 * Returns the first slot of the given region.
+	 */
+	int base(int region) {
+		return region * size;
+	}
+
+	/**
+	 * Returns the smallest count of the given region, or zero if there is no slot.
+	 */
+	int min(int region) {
+		return min[region] == NONE ? 0 : counts[min[region]];
+	}
+
+	/**
+	 * Returns the oldest slot with the smallest count, or NONE if there is no slot.
+	 */
+	int minSlot(int region) {
+		return min[region] == NONE ? NONE : first[min[region]];
+	}
+
+	/**
+	 * Throws (an ArithmeticException) if the smallest count of the given region can't be
+	 * increased by the given delta, so the owner can check it before the minimum slot is
+	 * reused.
+	 */
+	void checkMinIncrement(int region, long delta) {
+		Math.toIntExact(min(region) + delta);
+	}
+
+	int count(int slot) {
+		return counts[slotBucket[slot]];
+	}
+
+	boolean contains(int slot) {
+		return slotBucket[slot] != NONE;
+	}
+
+	/**
+	 * Adds the given (unused) slot of the given region with the given count. It's O(1)
+	 * for counts not bigger than the minimum, and it's O(1) when slots are inserted in
+	 * ascending order of their counts.
+	 */
+	void insert(int region, int slot, int count) {
+		assert count > 0 && slotBucket[slot] == NONE;
+
+		int after;
+		if (min[region] == NONE || count <= counts[min[region]]) {
+			after = NONE;
+		} else {
+			after = max[region];
+			while (counts[after] > count)
+				after = prev[after];
+		}
+
+		int bucket = after == NONE ? min[region] : after;
+		if (bucket == NONE || counts[bucket] != count) {
+			bucket = allocate(region, count);
+			linkAfter(region, bucket, after);
+		}
+		attach(slot, bucket);
+	}
+
+	/**
+	 * Increases the count of the given slot of the given region. It's O(1) for a delta
+	 * of one, otherwise it's linear in the number of buckets passed.
+	 */
+	void increment(int region, int slot, long delta) {
+		assert delta > 0 && slotBucket[slot] != NONE;
+
+		int bucket = slotBucket[slot];
+		int count = Math.toIntExact(counts[bucket] + delta);
+		boolean alone = first[bucket] == slot && slotNext[slot] == NONE;
+
+		int after = bucket;
+		int following = next[bucket];
+		while (following != NONE && counts[following] < count) {
+			after = following;
+			following = next[following];
+		}
+
+		if (following != NONE && counts[following] == count) {
+			detach(slot);
+			attach(slot, following);
+			if (alone)
+				unlink(region, bucket);
+		} else if (alone && after == bucket) {
+			// The only slot of its bucket; the bucket can be reused in place:
+			counts[bucket] = count;
+		} else {
+			detach(slot);
+			if (alone)
+				unlink(region, bucket);
+			int target = allocate(region, count);
+			linkAfter(region, target, after);
+			attach(slot, target);
+		}
+	}
+
+	/**
+	 * Removes the given slot of the given region.
+	 */
+	void remove(int region, int slot) {
+		int bucket = slotBucket[slot];
+		assert bucket != NONE;
+		detach(slot);
+		if (first[bucket] == NONE)
+			unlink(region, bucket);
+	}
+
+	/**
+	 * Visits the slots of the given region from the biggest count down (the oldest slot
+	 * first among the same counts), until the visitor stops.
+	 */
+	void descend(int region, SlotVisitor visitor) {
+		int rank = 0;
+		for (int bucket = max[region]; bucket != NONE; bucket = prev[bucket])
+			for (int slot = first[bucket]; slot != NONE; slot = slotNext[slot])
+				if (!visitor.visit(rank++, slot, counts[bucket]))
+					return;
+	}
+
+	private void attach(int slot, int bucket) {
+		slotBucket[slot] = bucket;
+		slotPrev[slot] = last[bucket];
+		slotNext[slot] = NONE;
+		if (last[bucket] == NONE)
+			first[bucket] = slot;
+		else
+			slotNext[last[bucket]] = slot;
+		last[bucket] = slot;
+	}
+
+	private void detach(int slot) {
+		int bucket = slotBucket[slot];
+		if (slotPrev[slot] == NONE)
+			first[bucket] = slotNext[slot];
+		else
+			slotNext[slotPrev[slot]] = slotNext[slot];
+		if (slotNext[slot] == NONE)
+			last[bucket] = slotPrev[slot];
+		else
+			slotPrev[slotNext[slot]] = slotPrev[slot];
+		slotBucket[slot] = NONE;
+	}
+
+	/**
+	 * Links the given (detached) bucket right after the given bucket,
+	 * or at the beginning of the list if the given bucket is NONE.
+	 */
+	private void linkAfter(int region, int bucket, int after) {
+		int before = after == NONE ? min[region] : next[after];
+		prev[bucket] = after;
+		next[bucket] = before;
+		if (after == NONE)
+			min[region] = bucket;
+		else
+			next[after] = bucket;
+		if (before == NONE)
+			max[region] = bucket;
+		else
+			prev[before] = bucket;
+	}
+
+	private void unlink(int region, int bucket) {
+		assert first[bucket] == NONE : "Expecting an empty bucket!";
+		if (prev[bucket] == NONE)
+			min[region] = next[bucket];
+		else
+			next[prev[bucket]] = next[bucket];
+		if (next[bucket] == NONE)
+			max[region] = prev[bucket];
+		else
+			prev[next[bucket]] = prev[bucket];
+
+		// Recycle the bucket:
+		next[bucket] = free[region];
+		free[region] = bucket;
+	}
+
+	private int allocate(int region, int count) {
+		int bucket = free[region];
+		if (bucket != NONE) {
+			free[region] = next[bucket];
+		} else {
+			// Take a never used bucket of the region:
+			assert unused[region] < size : "Expecting a free bucket!";
+			bucket = base(region) + unused[region]++;
+		}
+		counts[bucket] = count;
+		first[bucket] = last[bucket] = NONE;
+		return bucket;
+	}
+}
@@ -0,0 +1,97 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Queries of the summaries which keep their counters in slots, by a walk of the
+ * slots from the biggest count down (e.g. {@link CounterBuckets#descend(SlotVisitor)}).
+ * The element (and error) of a slot is only created if it's in the result.
+ */
+final class SlotQueries {
+	private SlotQueries() {
+	}
+
+	/**
+	 * Returns (at most) k counters with the biggest counts, see {@link StreamSummary#topK(int)}.
+	 */
+	static <T> Map<SummaryElement<T>, Integer> topK(Consumer<SlotVisitor> walk, int k,
+	                                                IntFunction<SummaryElement<T>> element) {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		if (k > 0)
+			walk.accept((rank, slot, count) -> {
+				map.put(element.apply(slot), count);
+				return rank + 1 < k;
+			});
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Returns the counters with counts above the threshold, see {@link StreamSummary#heavyHitters(double)}.
+	 */
+	static <T> Map<SummaryElement<T>, Integer> heavyHitters(Consumer<SlotVisitor> walk, double threshold,
+	                                                        IntFunction<SummaryElement<T>> element) {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		walk.accept((rank, slot, count) -> {
+			if (count <= threshold)
+				return false;
+			map.put(element.apply(slot), count);
+			return true;
+		});
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Returns the guaranteed counters, see {@link StreamSummary#mostFrequents()}.
+	 */
+	static <T> Map<SummaryElement<T>, Integer> mostFrequents(Consumer<SlotVisitor> walk,
+	                                                         IntFunction<SummaryElement<T>> element) {
+		Guaranteed<T> guaranteed = new Guaranteed<>(element);
+		walk.accept(guaranteed);
+		return unmodifiableMap(guaranteed.map);
+	}
+
+	/**
+	 * Returns the counters (element:count:error), from the biggest count down.
+	 */
+	static <T> String toString(Consumer<SlotVisitor> walk, IntFunction<SummaryElement<T>> element) {
+		StringBuilder sb = new StringBuilder("{");
+		walk.accept((rank, slot, count) -> {
+			SummaryElement<T> counter = element.apply(slot);
+			sb.append(counter.get())
+					.append(":").append(count)
+					.append(":").append(counter.error())
+					.append(", ");
+			return true;
+		});
+		sb.append("}");
+		return sb.toString();
+	}
+
+	/**
+	 * Keeps a counter if its guaranteed count is bigger than the count of the next one.
+	 */
+	private static final class Guaranteed<T> implements SlotVisitor {
+		private final IntFunction<SummaryElement<T>> element;
+		private final Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		private SummaryElement<T> previous;
+		private int previousCount;
+
+		private Guaranteed(IntFunction<SummaryElement<T>> element) {
+			this.element = element;
+		}
+
+		@Override
+		public boolean visit(int rank, int slot, int count) {
+			if (previous != null && previousCount - previous.error() > count)
+				map.put(previous, previousCount);
+			previous = element.apply(slot);
+			previousCount = count;
+			return true;
+		}
+	}
+}
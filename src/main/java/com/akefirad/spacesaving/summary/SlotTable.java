@@ -0,0 +1,163 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.Arrays;
+
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+
+/**
+ * Open addressing (linear probing) index of counter slots, on their (spread) hashes.
+ * Notes:
+ * 1. The table keeps slot + 1 (zero is an empty entry), and it's (at least) twice
+ * the number of the slots, so the probes are short; the hashes of the slots are
+ * kept aside, so a slot is never rehashed.
+ * 2. A removed slot doesn't leave a tombstone: the following slots of its cluster
+ * are shifted back, so the probes never get longer.
+ * 3. The owner compares the elements of the slots, by probing from {@link #probe(int)}
+ * with {@link #next(int)}; the hash functions of the summaries are here as well.
+ * 4. It might be split in to regions (of the same size), each one a table of its own,
+ * e.g. one per tenant; the single region methods are on the first one.
+ */
+final class SlotTable {
+	private final int mask;
+	private final int[] table;
+	private final int[] hashes;
+
+	SlotTable(int size) {
+		this(size, 1);
+	}
+
+	/**
+	 * A table of many regions, each one an independent table of size slots; a slot is
+	 * identified by its index in all the regions, as in {@link SlabBuckets}.
+	 */
+	SlotTable(int size, int regions) {
+		assertValidSize(size, "number of slots");
+		assertValidSize(regions, "number of regions");
+		int tableSize = tableSize(size);
+		this.table = new int[Math.multiplyExact(tableSize, regions)];
+		this.mask = tableSize - 1;
+		this.hashes = new int[Math.multiplyExact(size, regions)];
+	}
+
+	/**
+	 * Returns the size of the table of the given number of slots, a power of two.
+	 */
+	static int tableSize(int size) {
+		return Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+	}
+
+	/**
+	 * Spreads the bits of a hash code, so the low bits (of the index) depend on all of them.
+	 */
+	static int spread(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	static int hash(long element) {
+		long hash = element * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32);
+	}
+
+	/**
+	 * Returns the (spread) hash of the given bytes, e.g. a UTF-8 key.
+	 */
+	static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int idx = offset; idx < offset + length; idx++)
+			hash = 31 * hash + bytes[idx];
+		return spread(hash);
+	}
+
+	/**
+	 * Returns the first index of the probes of the given hash.
+	 */
+	int probe(int hash) {
+		return probe(0, hash);
+	}
+
+	/**
+	 * Returns the first index of the probes of the given hash in the given region.
+	 */
+	int probe(int region, int hash) {
+		return region * (mask + 1) + (hash & mask);
+	}
+
+	/**
+	 * Returns the next index of the probes, wrapping around within its region.
+	 */
+	int next(int idx) {
+		return (idx & ~mask) | ((idx + 1) & mask);
+	}
+
+	/**
+	 * Returns the slot of the given index, or NONE if it's empty (the end of the probes).
+	 */
+	int slot(int idx) {
+		return table[idx] - 1;
+	}
+
+	int hash(int slot) {
+		return hashes[slot];
+	}
+
+	void index(int slot, int hash) {
+		index(0, slot, hash);
+	}
+
+	/**
+	 * Adds the given (not indexed) slot of the given region with the given hash.
+	 */
+	void index(int region, int slot, int hash) {
+		hashes[slot] = hash;
+		int idx = probe(region, hash);
+		while (table[idx] != 0)
+			idx = next(idx);
+		table[idx] = slot + 1;
+	}
+
+	void unindex(int slot) {
+		unindex(0, slot);
+	}
+
+	/**
+	 * Removes the given (indexed) slot of the given region.
+	 */
+	void unindex(int region, int slot) {
+		int gap = probe(region, hashes[slot]);
+		while (table[gap] != slot + 1)
+			gap = next(gap);
+
+		// Shift back the following slots of the cluster, instead of leaving a tombstone:
+		for (int idx = next(gap); table[idx] != 0; idx = next(idx)) {
+			int home = hashes[table[idx] - 1] & mask;
+			if (((idx - home) & mask) >= ((idx - gap) & mask)) {
+				table[gap] = table[idx];
+				gap = idx;
+			}
+		}
+		table[gap] = 0;
+	}
+
+	/**
+	 * Removes all the slots.
+	 */
+	void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	/**
+	 * Removes all the slots of the given region.
+	 */
+	void clear(int region) {
+		int offset = region * (mask + 1);
+		Arrays.fill(table, offset, offset + mask + 1, 0);
+	}
+
+	/**
+	 * Returns the (heap) memory of the table and the hashes in bytes.
+	 */
+	long memory() {
+		return 4L * (table.length + hashes.length);
+	}
+}
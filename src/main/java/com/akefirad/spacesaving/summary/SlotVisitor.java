@@ -0,0 +1,17 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * Visitor of the counter slots, from the biggest count down (and the oldest slot
+ * first among the same counts), see {@link CounterBuckets#descend(SlotVisitor)}.
+ */
+@FunctionalInterface
+interface SlotVisitor {
+	/**
+	 * Visits a slot, and returns whether to go on with the next (lower) slots.
+	 *
+	 * @param rank  position of the slot in the walk, from zero
+	 * @param slot  the slot
+	 * @param count count of the slot
+	 */
+	boolean visit(int rank, int slot, int count);
+}
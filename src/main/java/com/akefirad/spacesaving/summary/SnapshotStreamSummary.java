@@ -0,0 +1,291 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static com.akefirad.spacesaving.summary.CounterBuckets.NONE;
+
+/**
+ * Implementation of Space Saving algorithm, whose (consistent) snapshots can be taken
+ * by any thread, without stalling the writers.
+ * Notes:
+ * 1. Elements and errors are kept in parallel arrays (slots), the counts and their
+ * order in an array based Stream-Summary ({@link CounterBuckets}), and the slots of
+ * the elements in a map, which is only touched by the writers.
+ * 2. Writers are serialized by a {@link StampedLock}, which works as a sequence lock:
+ * a reader copies the slots and the buckets optimistically (without locking), and
+ * only keeps the copy if no writer has changed them in the meantime. The copy is
+ * then walked in the order of the buckets, the same as any other summary.
+ * 3. If the copies keep failing (the writers are busy), the reader asks for a snapshot
+ * instead: the next writer copies the slots (right after its update), and publishes
+ * the snapshot to all the waiting readers. So a reader never locks (nor blocks) a
+ * writer, it costs a writer at most one (already sorted) copy.
+ * 4. The queries of the {@link StreamSummary} are answered from a new snapshot,
+ * so they are consistent and thread-safe. A merged summary is read (as a snapshot)
+ * before the write lock is taken, so it can be this summary, or one merging it.
+ *
+ * @param <T> type of stream token
+ */
+public class SnapshotStreamSummary<T> implements StreamSummary<T>, Loadable<T> {
+	private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+	private final int size;
+	private final Map<T, Integer> slots;
+	private final Object[] elements;
+	private final int[] errors;
+	private final CounterBuckets buckets;
+	private final StampedLock lock = new StampedLock();
+	private final AtomicLong requests = new AtomicLong();
+	private volatile SummarySnapshot<T> published;
+	private long served;
+	private int length;
+	private long total;
+
+	public SnapshotStreamSummary(int size) {
+		assertValidSize(size, "size of stream summary");
+		this.size = size;
+		this.slots = new HashMap<>();
+		this.elements = new Object[size];
+		this.errors = new int[size];
+		this.buckets = new CounterBuckets(size);
+	}
+
+	@Override
+	public void add(T element) {
+		add(element, 1);
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		assertNotNull(element, "value");
+		assertValidWeight(weight, "weight");
+		long stamp = lock.writeLock();
+		try {
+			doAdd(element, weight);
+			serve();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void addAll(Iterable<? extends T> elements) {
+		assertNotNull(elements, "elements");
+		addAll(WeightedBatch.aggregate(elements));
+	}
+
+	@Override
+	public void addAll(T[] elements, long[] weights) {
+		assertNotNull(elements, "elements");
+		assertNotNull(weights, "weights");
+		addAll(WeightedBatch.aggregate(elements, weights));
+	}
+
+	private void addAll(Map<? extends T, long[]> batch) {
+		// The whole batch in one (write) section:
+		long stamp = lock.writeLock();
+		try {
+			batch.forEach((element, weight) -> doAdd(element, weight[0]));
+			serve();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		assertNotNull(other, "other");
+		// Read the other summary first, it might be waiting for (or be) this one:
+		SummarySnapshot<T> snapshot = SummarySnapshot.of(other);
+		long stamp = lock.writeLock();
+		try {
+			Counters<T> merged = SummaryMerger.merge(copy(0), snapshot);
+			fill(total + snapshot.total(), merged);
+			serve();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void load(long total, Counters<? extends T> counters) {
+		long stamp = lock.writeLock();
+		try {
+			fill(total, counters);
+			serve();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Replaces the counters, sorted (ascending), under the write lock.
+	 */
+	private void fill(long total, Counters<? extends T> counters) {
+		this.total = total;
+		slots.clear();
+		buckets.clear();
+		length = 0;
+		for (int idx = 0; idx < counters.size(); idx++) {
+			int slot = length++;
+			put(slot, counters.element(idx), counters.error(idx));
+			buckets.insert(slot, counters.count(idx));
+		}
+	}
+
+	/**
+	 * Returns a consistent (point-in-time) snapshot of the counters, taken after the call.
+	 * It never locks the summary, but it might wait for the next writer.
+	 */
+	public SummarySnapshot<T> snapshot() {
+		Object[] elements = new Object[size];
+		int[] errors = new int[size];
+		CounterBuckets buckets = new CounterBuckets(size);
+		long ticket = 0;
+		for (int attempt = 1; ; attempt++) {
+			// Copy the slots and the buckets, and validate that no writer has changed them:
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				long total = this.total;
+				int length = this.length;
+				System.arraycopy(this.elements, 0, elements, 0, length);
+				System.arraycopy(this.errors, 0, errors, 0, length);
+				buckets.copyFrom(this.buckets);
+				if (lock.validate(stamp))
+					return copy(size, total, elements, errors, buckets, length, 0);
+			}
+
+			// The writers are busy, ask them for a snapshot:
+			if (attempt == OPTIMISTIC_ATTEMPTS)
+				ticket = requests.incrementAndGet();
+			if (ticket != 0) {
+				SummarySnapshot<T> published = this.published;
+				if (published != null && published.ticket >= ticket)
+					return published;
+				if (attempt < OPTIMISTIC_ATTEMPTS * 4)
+					Thread.yield();
+				else
+					LockSupport.parkNanos(1_000);
+			}
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	@Override
+	public long total() {
+		long stamp = lock.tryOptimisticRead();
+		long total = this.total;
+		return stamp != 0 && lock.validate(stamp) ? total : snapshot().total();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return snapshot().frequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return snapshot().sortedFrequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		return snapshot().mostFrequents();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		return snapshot().topK(k);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		return snapshot().heavyHitters(phi);
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		return snapshot().estimate(element);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	private void doAdd(T element, long weight) {
+		Integer slot = slots.get(element);
+		// If it's not a new element (an overflow throws before any change):
+		if (slot != null) {
+			buckets.increment(slot, weight);
+		}
+		// If it's a new element, and no space is available:
+		else if (length == size) {
+			buckets.checkMinIncrement(weight);
+			// Reuse the oldest slot with the minimum count:
+			int min = buckets.minSlot();
+			slots.remove(elements[min]);
+			int error = buckets.min();
+			buckets.increment(min, weight);
+			put(min, element, error);
+		}
+		// If it's a new element, and some space is available:
+		else {
+			int count = Math.toIntExact(weight);
+			int free = length++;
+			buckets.insert(free, count);
+			put(free, element, 0);
+		}
+		total += weight;
+	}
+
+	private void put(int slot, T element, int error) {
+		slots.put(element, slot);
+		elements[slot] = element;
+		errors[slot] = error;
+	}
+
+	/**
+	 * Publishes a snapshot, if any reader is waiting for one (with the write lock).
+	 */
+	private void serve() {
+		long ticket = requests.get();
+		if (ticket == served)
+			return;
+		published = copy(ticket);
+		served = ticket;
+	}
+
+	/**
+	 * Copies the slots (with the write lock), in the order of the buckets, so it needs no sort.
+	 */
+	private SummarySnapshot<T> copy(long ticket) {
+		return copy(size, total, elements, errors, buckets, length, ticket);
+	}
+
+	/**
+	 * Copies the given (consistent) slots, in the order of the given buckets.
+	 */
+	private static <T> SummarySnapshot<T> copy(int size, long total, Object[] elements, int[] errors,
+	                                           CounterBuckets buckets, int length, long ticket) {
+		Object[] sortedElements = new Object[length];
+		int[] sortedCounts = new int[length];
+		int[] sortedErrors = new int[length];
+		buckets.descend((rank, slot, count) -> {
+			sortedElements[rank] = elements[slot];
+			sortedCounts[rank] = count;
+			sortedErrors[rank] = errors[slot];
+			return true;
+		});
+		return new SummarySnapshot<>(size, total, sortedElements, sortedCounts, sortedErrors, ticket);
+	}
+}
@@ -1,7 +1,12 @@
 package com.akefirad.spacesaving.summary;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidRatio;
+import static java.util.Collections.unmodifiableMap;
+
 /**
  * Base interface for stream summary implementations
  *
@@ -15,6 +20,76 @@ public interface StreamSummary<T> {
 	 */
 	void add(T element);
 
+	/**
+	 * Add (monitor) an element (token) in to the summary, as if it's added weight times.
+	 * A new element replacing the minimum (m) gets the count of m + weight and the error of m.
+	 *
+	 * @param element element (token)
+	 * @param weight  number of occurrences, positive
+	 */
+	void add(T element, long weight);
+
+	/**
+	 * Add (monitor) an element (token) in to the summary, given by a view. Implementations
+	 * may look the element up by its view, and only materialize it for a new counter.
+	 *
+	 * @param view view of the element (token), only valid during the call
+	 */
+	default void addView(KeyView<T> view) {
+		assertNotNull(view, "view");
+		add(view.materialize());
+	}
+
+	/**
+	 * Add (monitor) a batch of elements (tokens) in to the summary.
+	 * The batch is aggregated first, so each distinct element is added once (weighted).
+	 *
+	 * @param elements elements (tokens)
+	 */
+	default void addAll(Iterable<? extends T> elements) {
+		assertNotNull(elements, "elements");
+		WeightedBatch.aggregate(elements).forEach((element, weight) -> add(element, weight[0]));
+	}
+
+	/**
+	 * Add (monitor) a batch of weighted elements (tokens) in to the summary.
+	 * The batch is aggregated first, so each distinct element is added once (weighted).
+	 *
+	 * @param elements elements (tokens)
+	 * @param weights  number of occurrences of the elements, positive
+	 */
+	default void addAll(T[] elements, long[] weights) {
+		assertNotNull(elements, "elements");
+		assertNotNull(weights, "weights");
+		WeightedBatch.aggregate(elements, weights).forEach((element, weight) -> add(element, weight[0]));
+	}
+
+	/**
+	 * Merges (folds) another summary of the same capacity in to this summary.
+	 * Counts and errors of the elements are added; an element missing from
+	 * a full summary is taken with the minimum count of that summary (as both
+	 * count and error), and only the elements with the biggest counts are kept.
+	 * The counts remain overestimations and count minus error remains an
+	 * underestimation of the real frequencies of the combined streams.
+	 *
+	 * @param other the summary to merge, it's not modified
+	 */
+	void merge(StreamSummary<T> other);
+
+	/**
+	 * Returns the capacity of the summary (the maximum number of monitored elements)
+	 *
+	 * @return capacity of the summary
+	 */
+	int capacity();
+
+	/**
+	 * Returns the total number (weight) of the elements added to the summary
+	 *
+	 * @return length of the summarized stream
+	 */
+	long total();
+
 	/**
 	 * Returns the captured frequencies (unsorted)
 	 *
@@ -35,4 +110,58 @@ public interface StreamSummary<T> {
 	 * @return frequencies in a map containing element, error, counter
 	 */
 	Map<SummaryElement<T>, Integer> mostFrequents();
+
+	/**
+	 * Returns (at most) k elements with the biggest counts (sorted)
+	 *
+	 * @param k number of elements
+	 * @return frequencies in a map containing element, error, counter
+	 */
+	default Map<SummaryElement<T>, Integer> topK(int k) {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Map.Entry<SummaryElement<T>, Integer> entry : sortedFrequencies().entrySet()) {
+			if (map.size() >= k)
+				break;
+			map.put(entry.getKey(), entry.getValue());
+		}
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Returns the elements with counts bigger than phi * total (sorted).
+	 * Every element with a (real) frequency bigger than phi * total is included.
+	 *
+	 * @param phi ratio of the total, between zero and one
+	 * @return frequencies in a map containing element, error, counter
+	 */
+	default Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		assertValidRatio(phi, "phi");
+		double threshold = phi * total();
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (Map.Entry<SummaryElement<T>, Integer> entry : sortedFrequencies().entrySet()) {
+			if (entry.getValue() <= threshold)
+				break;
+			map.put(entry.getKey(), entry.getValue());
+		}
+		return unmodifiableMap(map);
+	}
+
+	/**
+	 * Returns the estimated frequency of the given element. For an element that's not
+	 * monitored, it's the minimum count (as both count and error) if the summary is full.
+	 *
+	 * @param element element (token)
+	 * @return count and error of the element
+	 */
+	default Estimate estimate(T element) {
+		assertNotNull(element, "value");
+		Map<SummaryElement<T>, Integer> frequencies = frequencies();
+		int min = frequencies.size() < capacity() ? 0 : Integer.MAX_VALUE;
+		for (Map.Entry<SummaryElement<T>, Integer> entry : frequencies.entrySet()) {
+			if (entry.getKey().get().equals(element))
+				return new Estimate(entry.getValue(), entry.getKey().error(), true);
+			min = Math.min(min, entry.getValue());
+		}
+		return new Estimate(min, min, false);
+	}
 }
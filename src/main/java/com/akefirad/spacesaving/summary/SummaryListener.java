@@ -0,0 +1,58 @@
+package com.akefirad.spacesaving.summary;
+
+/**
+ * Listener of the (hot path) events of a summary, e.g. for metrics.
+ * The methods are called on the adding thread(s), so they must be cheap;
+ * the default (no-op) listener costs nothing once inlined.
+ */
+public interface SummaryListener {
+	/**
+	 * A listener doing nothing, the default one
+	 */
+	SummaryListener NONE = new SummaryListener() {
+	};
+
+	/**
+	 * An element with a counter is added
+	 *
+	 * @param weight number of occurrences
+	 */
+	default void onHit(long weight) {
+	}
+
+	/**
+	 * An element without a counter is added (inserted)
+	 *
+	 * @param weight number of occurrences
+	 */
+	default void onInsert(long weight) {
+	}
+
+	/**
+	 * An element without a counter is added, but not admitted (see {@link CountMinSketch})
+	 *
+	 * @param weight number of occurrences
+	 */
+	default void onReject(long weight) {
+	}
+
+	/**
+	 * A counter is evicted, to insert a new element
+	 *
+	 * @param count count of the evicted counter (the minimum)
+	 */
+	default void onEvict(int count) {
+	}
+
+	/**
+	 * A bucket (of counters with the same count) is created
+	 */
+	default void onBucketCreated() {
+	}
+
+	/**
+	 * A bucket (of counters with the same count) is removed
+	 */
+	default void onBucketRemoved() {
+	}
+}
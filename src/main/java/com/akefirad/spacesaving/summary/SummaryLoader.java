@@ -0,0 +1,84 @@
+package com.akefirad.spacesaving.summary;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+
+/**
+ * Loads counters in bulk (e.g. of a checkpoint) in to a summary.
+ * Notes:
+ * 1. An empty summary of this package takes the counters directly, each one inserted
+ * in O(1), so the counters are neither copied nor sorted.
+ * 2. Any other summary (or a summary which isn't empty) merges the counters (see
+ * {@link StreamSummary#merge(StreamSummary)}).
+ */
+public final class SummaryLoader {
+	private static final Counters<Object> NONE = new Counters<Object>() {
+		@Override
+		public int size() {
+			return 0;
+		}
+
+		@Override
+		public Object element(int idx) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		@Override
+		public int count(int idx) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		@Override
+		public int error(int idx) {
+			throw new IndexOutOfBoundsException();
+		}
+	};
+
+	private SummaryLoader() {
+	}
+
+	/**
+	 * Loads the given counters and total in to the given summary, of the same capacity.
+	 * If a counter can't be loaded (e.g. its element can't be decoded), the summary is
+	 * left empty.
+	 *
+	 * @param summary  summary to load, usually empty
+	 * @param capacity capacity of the counters
+	 * @param total    total of the counters
+	 * @param counters counters, in ascending order of their counts
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void load(StreamSummary<T> summary, int capacity, long total, Counters<? extends T> counters) {
+		assertNotNull(summary, "summary");
+		assertNotNull(counters, "counters");
+		if (summary.capacity() != capacity)
+			throw new IllegalArgumentException("capacity of summaries are not the same!");
+		if (counters.size() > capacity)
+			throw new IllegalArgumentException("counters are more than the capacity!");
+
+		if (summary instanceof Loadable && summary.total() == 0) {
+			Loadable<T> loadable = (Loadable<T>) summary;
+			try {
+				loadable.load(total, counters);
+			} catch (RuntimeException e) {
+				loadable.load(0, (Counters<T>) NONE);
+				throw e;
+			}
+		} else {
+			summary.merge(snapshot(capacity, total, counters));
+		}
+	}
+
+	private static <T> SummarySnapshot<T> snapshot(int capacity, long total, Counters<? extends T> counters) {
+		// A snapshot is sorted by the counts, descending:
+		int size = counters.size();
+		Object[] elements = new Object[size];
+		int[] counts = new int[size];
+		int[] errors = new int[size];
+		for (int idx = 0; idx < size; idx++) {
+			elements[size - 1 - idx] = counters.element(idx);
+			counts[size - 1 - idx] = counters.count(idx);
+			errors[size - 1 - idx] = counters.error(idx);
+		}
+		return new SummarySnapshot<>(capacity, total, elements, counts, errors, 0);
+	}
+}
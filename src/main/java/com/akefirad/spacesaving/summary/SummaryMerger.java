@@ -0,0 +1,108 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+
+/**
+ * Merges two stream summaries based on the rules of the mergeable summaries
+ * (Agarwal et al.) for Space Saving.
+ */
+final class SummaryMerger {
+	private SummaryMerger() {
+	}
+
+	/**
+	 * Returns the merged counters of the given summaries, at most the capacity
+	 * of the summaries, sorted by their counts (ascending).
+	 */
+	static <T> Counters<T> merge(StreamSummary<T> first, StreamSummary<T> second) {
+		assertNotNull(second, "summary");
+		int capacity = first.capacity();
+		if (second.capacity() != capacity)
+			throw new IllegalArgumentException("capacity of summaries are not the same!");
+
+		// Take copies, the frequencies might be views of the summaries:
+		Map<SummaryElement<T>, Integer> firstCounters = new HashMap<>(first.frequencies());
+		Map<SummaryElement<T>, Integer> secondCounters = new HashMap<>(second.frequencies());
+		int firstMin = minCount(firstCounters, capacity);
+		int secondMin = minCount(secondCounters, capacity);
+
+		Map<T, Integer> counts = new HashMap<>();
+		Map<T, Integer> errors = new HashMap<>();
+		firstCounters.forEach((element, count) -> {
+			counts.put(element.get(), Math.addExact(count, secondMin));
+			errors.put(element.get(), element.error() + secondMin);
+		});
+		secondCounters.forEach((element, count) -> {
+			Integer existing = counts.get(element.get());
+			if (existing == null) {
+				counts.put(element.get(), Math.addExact(count, firstMin));
+				errors.put(element.get(), element.error() + firstMin);
+			} else {
+				// Replace the assumed minimum of the second summary with the real counter:
+				counts.put(element.get(), Math.addExact(existing - secondMin, count));
+				errors.put(element.get(), errors.get(element.get()) - secondMin + element.error());
+			}
+		});
+
+		List<Entry<T, Integer>> merged = new ArrayList<>(counts.entrySet());
+		merged.sort(Entry.<T, Integer>comparingByValue().reversed());
+		int size = Math.min(capacity, merged.size());
+		Object[] elements = new Object[size];
+		int[] kept = new int[size];
+		int[] keptErrors = new int[size];
+		// Kept in ascending order of the counts:
+		for (int idx = 0; idx < size; idx++) {
+			Entry<T, Integer> entry = merged.get(idx);
+			elements[size - 1 - idx] = entry.getKey();
+			kept[size - 1 - idx] = entry.getValue();
+			keptErrors[size - 1 - idx] = errors.get(entry.getKey());
+		}
+		return new Merged<>(elements, kept, keptErrors);
+	}
+
+	/**
+	 * The minimum count of a full summary, otherwise (there is no unmonitored element) zero.
+	 */
+	private static <T> int minCount(Map<SummaryElement<T>, Integer> counters, int capacity) {
+		return counters.size() < capacity ? 0 : Collections.min(counters.values());
+	}
+
+	/**
+	 * Merged counters, in ascending order of their counts.
+	 */
+	private static final class Merged<T> implements Counters<T> {
+		private final Object[] elements;
+		private final int[] counts;
+		private final int[] errors;
+
+		private Merged(Object[] elements, int[] counts, int[] errors) {
+			this.elements = elements;
+			this.counts = counts;
+			this.errors = errors;
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T element(int idx) {
+			return (T) elements[idx];
+		}
+
+		@Override
+		public int count(int idx) {
+			return counts[idx];
+		}
+
+		@Override
+		public int error(int idx) {
+			return errors[idx];
+		}
+	}
+}
@@ -0,0 +1,422 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.*;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+import static com.akefirad.spacesaving.summary.SlabBuckets.NONE;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Summaries (Space Saving) of many tenants, e.g. one per customer, in shared memory.
+ * Notes:
+ * 1. The counters of all the tenants are kept in shared (slab) arrays, split in to
+ * regions of size counters, one region per tenant: the elements, errors and hashes
+ * in parallel arrays, the counts in array based Stream-Summaries ({@link SlabBuckets}),
+ * and the slots of the elements in open addressing (linear probing) tables ({@link SlotTable}).
+ * 2. The number of the regions is fixed by the memory budget (see {@link #memory(int, int)}),
+ * so the registry never allocates while adding, and its memory is bounded.
+ * 3. A tenant only costs its region, plus a few ints (and an entry in the map of
+ * the tenants); there are no objects per tenant, nor per counter.
+ * 4. When all the regions are taken, the least recently updated tenant is evicted,
+ * and its region is reused for the new one; only adding (not querying) updates
+ * a tenant.
+ * 5. It's not thread-safe.
+ *
+ * @param <K> type of tenant id
+ * @param <T> type of stream token
+ */
+public class SummaryRegistry<K, T> {
+	private static final int REFERENCE = 4;
+
+	private final int size;
+	private final int regions;
+
+	private final Object[] elements;
+	private final int[] errors;
+	private final SlotTable slots;
+	private final SlabBuckets buckets;
+
+	private final Map<K, Integer> index;
+	private final Object[] tenants;
+	private final int[] lengths;
+	private final long[] totals;
+	private final int[] older;
+	private final int[] newer;
+	private final int[] freeRegions;
+	private int freeLength;
+	private int newest = NONE;
+	private int oldest = NONE;
+	private long evictions;
+
+	/**
+	 * @param size   size of the summary of each tenant
+	 * @param memory memory budget in bytes, see {@link #memory(int, int)}
+	 */
+	public SummaryRegistry(int size, long memory) {
+		assertValidSize(size, "size of stream summary");
+		long regions = memory / memory(size, 1);
+		if (regions < 1)
+			throw new IllegalArgumentException("memory is not enough for one tenant!");
+		this.size = size;
+		this.regions = (int) Math.min(regions, Integer.MAX_VALUE / SlotTable.tableSize(size));
+
+		int slots = Math.multiplyExact(size, this.regions);
+		this.elements = new Object[slots];
+		this.errors = new int[slots];
+		this.slots = new SlotTable(size, this.regions);
+		this.buckets = new SlabBuckets(size, this.regions);
+
+		this.index = new HashMap<>();
+		this.tenants = new Object[this.regions];
+		this.lengths = new int[this.regions];
+		this.totals = new long[this.regions];
+		this.older = new int[this.regions];
+		this.newer = new int[this.regions];
+		this.freeRegions = new int[this.regions];
+		// So the regions are taken in order, from zero:
+		for (int region = 0; region < this.regions; region++)
+			freeRegions[region] = this.regions - 1 - region;
+		this.freeLength = this.regions;
+	}
+
+	/**
+	 * Returns the memory (roughly, in bytes) of a registry of the given number of tenants.
+	 *
+	 * @param size    size of the summary of each tenant
+	 * @param tenants number of the tenants
+	 */
+	public static long memory(int size, int tenants) {
+		assertValidSize(size, "size of stream summary");
+		assertValidSize(tenants, "number of tenants");
+		// Element, error, hash, and eight ints of the buckets per counter:
+		long counters = (long) size * (REFERENCE + 4 + 4 + 8 * 4);
+		// The table, six ints (lengths, links, free regions and the buckets), the total,
+		// the tenant, and its entry (with the boxed region) in the map:
+		long tenant = 4L * SlotTable.tableSize(size) + 6 * 4 + 8 + REFERENCE + 48;
+		return tenants * (counters + tenant);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary of the given tenant
+	 *
+	 * @param tenant  tenant id
+	 * @param element element (token)
+	 */
+	public void add(K tenant, T element) {
+		add(tenant, element, 1);
+	}
+
+	/**
+	 * Add (monitor) an element (token) in to the summary of the given tenant,
+	 * as if it's added weight times
+	 *
+	 * @param tenant  tenant id
+	 * @param element element (token)
+	 * @param weight  number of occurrences, positive
+	 */
+	public void add(K tenant, T element, long weight) {
+		assertNotNull(element, "value");
+		assertValidWeight(weight, "weight");
+		// Checked before any change (e.g. evicting a tenant), as the counts below:
+		int count = Math.toIntExact(weight);
+		int region = acquire(tenant);
+
+		int hash = SlotTable.spread(element.hashCode());
+		int slot = find(region, element, hash);
+		// If it's not a new element (an overflow throws before any change):
+		if (slot != NONE) {
+			buckets.increment(region, slot, weight);
+		}
+		// If it's a new element, and no space is available:
+		else if (lengths[region] == size) {
+			buckets.checkMinIncrement(region, weight);
+			// Reuse the oldest slot with the minimum count:
+			slot = buckets.minSlot(region);
+			slots.unindex(region, slot);
+			put(region, slot, element, hash, buckets.min(region));
+			buckets.increment(region, slot, weight);
+		}
+		// If it's a new element, and some space is available:
+		else {
+			slot = buckets.base(region) + lengths[region]++;
+			put(region, slot, element, hash, 0);
+			buckets.insert(region, slot, count);
+		}
+		totals[region] += weight;
+	}
+
+	/**
+	 * Returns a summary (view) of the given tenant; adding to it adds to the registry.
+	 */
+	public StreamSummary<T> summary(K tenant) {
+		assertNotNull(tenant, "tenant");
+		return new TenantSummary(tenant);
+	}
+
+	/**
+	 * Merges another summary (of the same size) in to the summary of the given tenant.
+	 */
+	public void merge(K tenant, StreamSummary<T> other) {
+		// Both read before acquiring the tenant, as it might evict the tenant of the other:
+		long total = total(tenant) + other.total();
+		Counters<T> merged = SummaryMerger.merge(summary(tenant), other);
+		int region = acquire(tenant);
+		reset(region);
+		totals[region] = total;
+		for (int idx = 0; idx < merged.size(); idx++) {
+			T element = merged.element(idx);
+			int slot = buckets.base(region) + lengths[region]++;
+			put(region, slot, element, SlotTable.spread(element.hashCode()), merged.error(idx));
+			buckets.insert(region, slot, merged.count(idx));
+		}
+	}
+
+	/**
+	 * Returns the estimate of the given element in the summary of the given tenant,
+	 * see {@link StreamSummary#estimate(Object)}.
+	 */
+	public Estimate estimate(K tenant, T element) {
+		assertNotNull(element, "value");
+		int region = region(tenant);
+		if (region == NONE)
+			return new Estimate(0, 0, false);
+		int slot = find(region, element, SlotTable.spread(element.hashCode()));
+		if (slot != NONE)
+			return new Estimate(buckets.count(slot), errors[slot], true);
+		int min = lengths[region] < size ? 0 : buckets.min(region);
+		return new Estimate(min, min, false);
+	}
+
+	/**
+	 * Returns (at most) k elements of the given tenant with the biggest counts (sorted)
+	 */
+	public Map<SummaryElement<T>, Integer> topK(K tenant, int k) {
+		int region = region(tenant);
+		if (region == NONE)
+			return Collections.emptyMap();
+		return SlotQueries.topK(visitor -> buckets.descend(region, visitor), k, this::element);
+	}
+
+	/**
+	 * Returns the most frequent elements of the given tenant (guaranteed, sorted)
+	 */
+	public Map<SummaryElement<T>, Integer> mostFrequents(K tenant) {
+		int region = region(tenant);
+		if (region == NONE)
+			return Collections.emptyMap();
+		return SlotQueries.mostFrequents(visitor -> buckets.descend(region, visitor), this::element);
+	}
+
+	/**
+	 * Returns the total number (weight) of the elements of the given tenant
+	 */
+	public long total(K tenant) {
+		int region = region(tenant);
+		return region == NONE ? 0 : totals[region];
+	}
+
+	public boolean contains(K tenant) {
+		return index.containsKey(tenant);
+	}
+
+	/**
+	 * Removes the given tenant, its region is reused.
+	 *
+	 * @return whether the tenant was in the registry
+	 */
+	public boolean remove(K tenant) {
+		Integer region = index.remove(tenant);
+		if (region == null)
+			return false;
+		unlink(region);
+		reset(region);
+		tenants[region] = null;
+		freeRegions[freeLength++] = region;
+		return true;
+	}
+
+	/**
+	 * Returns the number of the tenants
+	 */
+	public int tenants() {
+		return index.size();
+	}
+
+	/**
+	 * Returns the maximum number of the tenants (within the memory budget)
+	 */
+	public int maxTenants() {
+		return regions;
+	}
+
+	/**
+	 * Returns the size of the summary of each tenant
+	 */
+	public int capacity() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of the evicted tenants
+	 */
+	public long evictions() {
+		return evictions;
+	}
+
+	private int region(K tenant) {
+		Integer region = index.get(tenant);
+		return region == null ? NONE : region;
+	}
+
+	/**
+	 * Returns the region of the given tenant, taking (or evicting) one if it's a new tenant.
+	 */
+	private int acquire(K tenant) {
+		assertNotNull(tenant, "tenant");
+		Integer existing = index.get(tenant);
+		if (existing != null) {
+			int region = existing;
+			if (region != newest) {
+				unlink(region);
+				linkNewest(region);
+			}
+			return region;
+		}
+
+		int region;
+		if (freeLength > 0) {
+			region = freeRegions[--freeLength];
+		} else {
+			// Evict the least recently updated tenant:
+			region = oldest;
+			index.remove(tenants[region]);
+			unlink(region);
+			reset(region);
+			evictions++;
+		}
+		tenants[region] = tenant;
+		index.put(tenant, region);
+		linkNewest(region);
+		return region;
+	}
+
+	/**
+	 * Removes all the counters of the given region, in O(size).
+	 */
+	private void reset(int region) {
+		int base = buckets.base(region);
+		Arrays.fill(elements, base, base + lengths[region], null);
+		slots.clear(region);
+		buckets.clear(region);
+		lengths[region] = 0;
+		totals[region] = 0;
+	}
+
+	private void linkNewest(int region) {
+		older[region] = newest;
+		newer[region] = NONE;
+		if (newest != NONE)
+			newer[newest] = region;
+		newest = region;
+		if (oldest == NONE)
+			oldest = region;
+	}
+
+	private void unlink(int region) {
+		if (older[region] == NONE)
+			oldest = newer[region];
+		else
+			newer[older[region]] = newer[region];
+		if (newer[region] == NONE)
+			newest = older[region];
+		else
+			older[newer[region]] = older[region];
+	}
+
+	private void put(int region, int slot, T element, int hash, int error) {
+		elements[slot] = element;
+		errors[slot] = error;
+		slots.index(region, slot, hash);
+	}
+
+	private int find(int region, T element, int hash) {
+		for (int idx = slots.probe(region, hash); ; idx = slots.next(idx)) {
+			int slot = slots.slot(idx);
+			if (slot == NONE || (slots.hash(slot) == hash && elements[slot].equals(element)))
+				return slot;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private SummaryElement<T> element(int slot) {
+		return new SummaryElement<>((T) elements[slot], errors[slot]);
+	}
+
+	/**
+	 * The summary of a tenant, as a view of the registry.
+	 */
+	private final class TenantSummary implements StreamSummary<T> {
+		private final K tenant;
+
+		private TenantSummary(K tenant) {
+			this.tenant = tenant;
+		}
+
+		@Override
+		public void add(T element) {
+			SummaryRegistry.this.add(tenant, element);
+		}
+
+		@Override
+		public void add(T element, long weight) {
+			SummaryRegistry.this.add(tenant, element, weight);
+		}
+
+		@Override
+		public void merge(StreamSummary<T> other) {
+			SummaryRegistry.this.merge(tenant, other);
+		}
+
+		@Override
+		public int capacity() {
+			return size;
+		}
+
+		@Override
+		public long total() {
+			return SummaryRegistry.this.total(tenant);
+		}
+
+		@Override
+		public Map<SummaryElement<T>, Integer> frequencies() {
+			return sortedFrequencies();
+		}
+
+		@Override
+		public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+			return SummaryRegistry.this.topK(tenant, size);
+		}
+
+		@Override
+		public Map<SummaryElement<T>, Integer> mostFrequents() {
+			return SummaryRegistry.this.mostFrequents(tenant);
+		}
+
+		@Override
+		public Map<SummaryElement<T>, Integer> topK(int k) {
+			return SummaryRegistry.this.topK(tenant, k);
+		}
+
+		@Override
+		public Estimate estimate(T element) {
+			return SummaryRegistry.this.estimate(tenant, element);
+		}
+
+		@Override
+		public String toString() {
+			return tenant + "=" + sortedFrequencies();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * An immutable (point-in-time) copy of the counters of a summary, see
+ * {@link SnapshotStreamSummary#snapshot()}.
+ * The counters are kept in parallel arrays, sorted by their counts (descending),
+ * so a snapshot can be shared by any number of threads.
+ *
+ * @param <T> type of stream token
+ */
+public final class SummarySnapshot<T> implements StreamSummary<T> {
+	private final int capacity;
+	private final long total;
+	private final Object[] elements;
+	private final int[] counts;
+	private final int[] errors;
+	final long ticket;
+
+	/**
+	 * Takes the given counters, sorted by their counts (descending), the arrays are owned by the snapshot.
+	 */
+	SummarySnapshot(int capacity, long total, Object[] elements, int[] counts, int[] errors, long ticket) {
+		this.capacity = capacity;
+		this.total = total;
+		this.elements = elements;
+		this.counts = counts;
+		this.errors = errors;
+		this.ticket = ticket;
+	}
+
+	/**
+	 * Returns a snapshot of the counters of the given summary, the summary itself if it's a snapshot.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> SummarySnapshot<T> of(StreamSummary<T> summary) {
+		if (summary instanceof SummarySnapshot)
+			return (SummarySnapshot<T>) summary;
+		if (summary instanceof SnapshotStreamSummary)
+			return ((SnapshotStreamSummary<T>) summary).snapshot();
+		long total = summary.total();
+		Map<SummaryElement<T>, Integer> frequencies = summary.sortedFrequencies();
+		Object[] elements = new Object[frequencies.size()];
+		int[] counts = new int[frequencies.size()];
+		int[] errors = new int[frequencies.size()];
+		int idx = 0;
+		for (Map.Entry<SummaryElement<T>, Integer> entry : frequencies.entrySet()) {
+			elements[idx] = entry.getKey().get();
+			counts[idx] = entry.getValue();
+			errors[idx] = entry.getKey().error();
+			idx++;
+		}
+		return new SummarySnapshot<>(summary.capacity(), total, elements, counts, errors, 0);
+	}
+
+	@Override
+	public void add(T element) {
+		throw new UnsupportedOperationException("snapshot is read only!");
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		throw new UnsupportedOperationException("snapshot is read only!");
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		throw new UnsupportedOperationException("snapshot is read only!");
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of the monitored elements
+	 */
+	public int size() {
+		return counts.length;
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return sortedFrequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return topK(counts.length);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (int idx = 0; idx < Math.min(k, counts.length); idx++)
+			map.put(element(idx), counts[idx]);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		Map<SummaryElement<T>, Integer> map = new LinkedHashMap<>();
+		for (int idx = 0; idx < counts.length - 1; idx++)
+			if (counts[idx] - errors[idx] > counts[idx + 1])
+				map.put(element(idx), counts[idx]);
+		return unmodifiableMap(map);
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		assertNotNull(element, "value");
+		for (int idx = 0; idx < counts.length; idx++)
+			if (elements[idx].equals(element))
+				return new Estimate(counts[idx], errors[idx], true);
+		int min = counts.length < capacity ? 0 : counts[counts.length - 1];
+		return new Estimate(min, min, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private SummaryElement<T> element(int idx) {
+		return new SummaryElement<>((T) elements[idx], errors[idx]);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int idx = 0; idx < counts.length; idx++)
+			sb.append(elements[idx])
+					.append(":").append(counts[idx])
+					.append(":").append(errors[idx])
+					.append(", ");
+		sb.append("}");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,39 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+
+/**
+ * Local (pre) aggregation of a batch of elements, before adding them to a summary.
+ * Elements are kept in the order of their first occurrence in the batch.
+ */
+final class WeightedBatch {
+	private WeightedBatch() {
+	}
+
+	static <T> Map<T, long[]> aggregate(Iterable<? extends T> elements) {
+		Map<T, long[]> batch = new LinkedHashMap<>();
+		for (T element : elements) {
+			assertNotNull(element, "value");
+			batch.computeIfAbsent(element, key -> new long[1])[0]++;
+		}
+		return batch;
+	}
+
+	static <T> Map<T, long[]> aggregate(T[] elements, long[] weights) {
+		if (elements.length != weights.length)
+			throw new IllegalArgumentException("number of elements and weights are not the same!");
+
+		Map<T, long[]> batch = new LinkedHashMap<>();
+		for (int idx = 0; idx < elements.length; idx++) {
+			assertNotNull(elements[idx], "value");
+			assertValidWeight(weights[idx], "weight");
+			long[] weight = batch.computeIfAbsent(elements[idx], key -> new long[1]);
+			weight[0] = Math.addExact(weight[0], weights[idx]);
+		}
+		return batch;
+	}
+}
@@ -0,0 +1,218 @@
+package com.akefirad.spacesaving.summary;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.akefirad.spacesaving.Asserts.assertNotNull;
+import static com.akefirad.spacesaving.Asserts.assertValidSize;
+import static com.akefirad.spacesaving.Asserts.assertValidWeight;
+
+/**
+ * Implementation of Space Saving algorithm over a sliding window of the stream,
+ * e.g. the last 5 minutes or the last 10M elements.
+ * Notes:
+ * 1. The window is split in to epochs (of time or of elements), each one summarized
+ * by its own (linked) summary, kept in a ring. Elements are added to the current epoch.
+ * 2. When an epoch is over, the oldest one is expired by clearing its summary, in
+ * O(capacity), and reused as the current epoch; so the memory is fixed (epochs times
+ * capacity counters), no matter how long the stream is.
+ * 3. The window slides one epoch at a time: it covers the last (epochs - 1) complete
+ * epochs, plus the current (partial) one.
+ * 4. Queries merge (see {@link StreamSummary#merge(StreamSummary)}) the epochs; the
+ * merged summary is cached until the next change.
+ *
+ * @param <T> type of stream token
+ */
+public class WindowedStreamSummary<T> implements StreamSummary<T> {
+	private final int size;
+	private final LinkedStreamSummary<T>[] epochs;
+	private final long epochLength;
+	private final LongSupplier clock;
+
+	private int current;
+	private long epoch;
+	private StreamSummary<T> window;
+
+	/**
+	 * A window of the last (epochs times epochLength) elements.
+	 *
+	 * @param size        size of stream summary
+	 * @param epochs      number of epochs in the window
+	 * @param epochLength number of elements (total weight) in each epoch
+	 */
+	public WindowedStreamSummary(int size, int epochs, long epochLength) {
+		this(size, epochs, epochLength, (LongSupplier) null);
+	}
+
+	/**
+	 * A window of the last (epochs times epochLength) time.
+	 *
+	 * @param size        size of stream summary
+	 * @param epochs      number of epochs in the window
+	 * @param epochLength duration of each epoch
+	 * @param unit        unit of the duration
+	 */
+	public WindowedStreamSummary(int size, int epochs, long epochLength, TimeUnit unit) {
+		this(size, epochs, epochLength, unit, System::nanoTime);
+	}
+
+	/**
+	 * A window of the last (epochs times epochLength) time, given by the clock.
+	 *
+	 * @param size        size of stream summary
+	 * @param epochs      number of epochs in the window
+	 * @param epochLength duration of each epoch
+	 * @param unit        unit of the duration
+	 * @param clock       clock in nanoseconds, e.g. System::nanoTime
+	 */
+	public WindowedStreamSummary(int size, int epochs, long epochLength, TimeUnit unit, LongSupplier clock) {
+		this(size, epochs, nanos(epochLength, unit), clock);
+		assertNotNull(clock, "clock");
+	}
+
+	@SuppressWarnings("unchecked")
+	private WindowedStreamSummary(int size, int epochs, long epochLength, LongSupplier clock) {
+		assertValidSize(size, "size of stream summary");
+		assertValidSize(epochs, "number of epochs");
+		assertValidWeight(epochLength, "epoch length");
+		this.size = size;
+		this.epochs = new LinkedStreamSummary[epochs];
+		for (int idx = 0; idx < epochs; idx++)
+			this.epochs[idx] = new LinkedStreamSummary<>(size);
+		this.epochLength = epochLength;
+		this.clock = clock;
+		this.epoch = clock == null ? 0 : Math.floorDiv(clock.getAsLong(), epochLength);
+	}
+
+	@Override
+	public void add(T element) {
+		add(element, 1);
+	}
+
+	@Override
+	public void add(T element, long weight) {
+		advance();
+		epochs[current].add(element, weight);
+		window = null;
+	}
+
+	@Override
+	public void addView(KeyView<T> view) {
+		advance();
+		epochs[current].addView(view);
+		window = null;
+	}
+
+	@Override
+	public void merge(StreamSummary<T> other) {
+		assertNotNull(other, "summary");
+		StreamSummary<T> copy = other == this ? window() : other;
+		advance();
+		epochs[current].merge(copy);
+		window = null;
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	/**
+	 * Returns the total number (weight) of the elements in the window
+	 *
+	 * @return length of the summarized window
+	 */
+	@Override
+	public long total() {
+		advance();
+		long total = 0;
+		for (StreamSummary<T> epoch : epochs)
+			total += epoch.total();
+		return total;
+	}
+
+	/**
+	 * Returns the number of the epochs in the window
+	 *
+	 * @return number of epochs
+	 */
+	public int epochs() {
+		return epochs.length;
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> topK(int k) {
+		return window().topK(k);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> heavyHitters(double phi) {
+		return window().heavyHitters(phi);
+	}
+
+	@Override
+	public Estimate estimate(T element) {
+		return window().estimate(element);
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> frequencies() {
+		return window().frequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> sortedFrequencies() {
+		return window().sortedFrequencies();
+	}
+
+	@Override
+	public Map<SummaryElement<T>, Integer> mostFrequents() {
+		return window().mostFrequents();
+	}
+
+	/**
+	 * Moves to the next epoch(s) if the current one is over, expiring the oldest ones.
+	 */
+	private void advance() {
+		long expired;
+		if (clock == null) {
+			expired = epochs[current].total() >= epochLength ? 1 : 0;
+		} else {
+			long now = Math.floorDiv(clock.getAsLong(), epochLength);
+			expired = now - epoch;
+			epoch = now;
+		}
+
+		for (long idx = 0; idx < Math.min(expired, epochs.length); idx++) {
+			current = (current + 1) % epochs.length;
+			epochs[current].clear();
+			window = null;
+		}
+	}
+
+	/**
+	 * Returns the merged summary of the epochs (cached until the next change).
+	 */
+	private StreamSummary<T> window() {
+		advance();
+		if (window == null) {
+			LinkedStreamSummary<T> merged = new LinkedStreamSummary<>(size);
+			for (StreamSummary<T> epoch : epochs)
+				if (epoch.total() > 0)
+					merged.merge(epoch);
+			window = merged;
+		}
+		return window;
+	}
+
+	private static long nanos(long length, TimeUnit unit) {
+		assertNotNull(unit, "unit");
+		return unit.toNanos(length);
+	}
+
+	@Override
+	public String toString() {
+		return window().toString();
+	}
+}
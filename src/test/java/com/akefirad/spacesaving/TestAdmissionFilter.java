@@ -0,0 +1,144 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.metrics.SummaryMetrics;
+import com.akefirad.spacesaving.summary.CountMinSketch;
+import com.akefirad.spacesaving.summary.Estimate;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestAdmissionFilter {
+	private static final Logger logger = getLogger(TestAdmissionFilter.class);
+
+	private static final int SIZE = 100;
+	private static final int LENGTH = 300_000;
+	private static final int TOP = 20;
+
+	@Test
+	public void testLinkedGuarantees() {
+		logger.info("Verifying the guarantees of the linked summary with an admission filter...");
+		verifyGuarantees(new LinkedStreamSummary<>(SIZE, new CountMinSketch(SIZE * 8, 4)), 42);
+	}
+
+	@Test
+	public void testSimpleGuarantees() {
+		logger.info("Verifying the guarantees of the simple summary with an admission filter...");
+		verifyGuarantees(new SimpleStreamSummary<>(SIZE, new CountMinSketch(SIZE * 8, 4)), 42);
+	}
+
+	@Test
+	public void testCollidingKey() {
+		logger.info("Verifying a new element of a colliding (overestimated) sketch cell...");
+		for (int weight = 1; weight <= 3; weight++) {
+			CountMinSketch linkedSketch = new CountMinSketch(SIZE * 8, 4);
+			CountMinSketch simpleSketch = new CountMinSketch(SIZE * 8, 4);
+			for (StreamSummary<String> summary : Arrays.<StreamSummary<String>>asList(
+					new LinkedStreamSummary<>(2, linkedSketch), new SimpleStreamSummary<>(2, simpleSketch))) {
+				summary.add("a", 2);
+				summary.add("b", 2);
+				// As if other keys of the same cells occurred a lot:
+				linkedSketch.fill(100);
+				simpleSketch.fill(100);
+				summary.add("c", weight);
+				// Starts at the minimum plus the weight, not the sketched estimate:
+				assertThat(summary.estimate("c"), equalTo(new Estimate(2 + weight, 2, true)));
+				assertThat(summary.total(), equalTo(4L + weight));
+			}
+		}
+	}
+
+	@Test
+	public void testMergeGuarantees() {
+		logger.info("Verifying the guarantees of merged summaries with admission filters...");
+		LinkedStreamSummary<Long> summary = new LinkedStreamSummary<>(SIZE, new CountMinSketch(SIZE * 8, 4));
+		Map<Long, Integer> real = fill(summary, 7);
+		LinkedStreamSummary<Long> other = new LinkedStreamSummary<>(SIZE);
+		fill(other, 11).forEach((element, count) -> real.merge(element, count, Integer::sum));
+		summary.merge(other);
+		// And keep adding after the merge:
+		fill(summary, 13).forEach((element, count) -> real.merge(element, count, Integer::sum));
+		verifyGuarantees(summary, real);
+	}
+
+	@Test
+	public void testLessChurnAndOverestimation() {
+		logger.info("Comparing the linked summary with and without an admission filter...");
+		LinkedStreamSummary<Long> plain = new LinkedStreamSummary<>(SIZE);
+		LinkedStreamSummary<Long> filtered = new LinkedStreamSummary<>(SIZE, new CountMinSketch(SIZE * 8, 4));
+		SummaryMetrics plainMetrics = new SummaryMetrics();
+		SummaryMetrics filteredMetrics = new SummaryMetrics();
+		plain.setListener(plainMetrics);
+		filtered.setListener(filteredMetrics);
+		Map<Long, Integer> real = fill(plain, 42);
+		fill(filtered, 42);
+
+		long plainError = overestimation(plain, real);
+		long filteredError = overestimation(filtered, real);
+		logger.info("Evictions: {} without and {} with the filter, overestimation of the top {}: {} and {}.",
+				plainMetrics.getEvictions(), filteredMetrics.getEvictions(), TOP, plainError, filteredError);
+		assertThat(filteredMetrics.getEvictions() * 10, lessThan(plainMetrics.getEvictions()));
+		assertThat(filteredMetrics.getRejections(), greaterThan(0L));
+		assertThat(filteredMetrics.getAdds(), equalTo((long) LENGTH));
+		assertThat(filteredError, lessThan(plainError));
+	}
+
+	private static void verifyGuarantees(StreamSummary<Long> summary, long seed) {
+		verifyGuarantees(summary, fill(summary, seed));
+	}
+
+	private static void verifyGuarantees(StreamSummary<Long> summary, Map<Long, Integer> real) {
+		Map<SummaryElement<Long>, Integer> frequencies = summary.frequencies();
+		assertThat(frequencies.size(), equalTo(SIZE));
+		int min = Integer.MAX_VALUE;
+		Map<Long, Integer> monitored = new HashMap<>();
+		for (Map.Entry<SummaryElement<Long>, Integer> entry : frequencies.entrySet()) {
+			int count = real.get(entry.getKey().get());
+			assertThat(entry.getValue(), greaterThanOrEqualTo(count));
+			assertThat(entry.getValue() - entry.getKey().error(), lessThanOrEqualTo(count));
+			monitored.put(entry.getKey().get(), entry.getValue());
+			min = Math.min(min, entry.getValue());
+		}
+		for (Map.Entry<Long, Integer> entry : real.entrySet())
+			if (!monitored.containsKey(entry.getKey()))
+				assertThat(entry.getValue(), lessThanOrEqualTo(min));
+	}
+
+	private static long overestimation(StreamSummary<Long> summary, Map<Long, Integer> real) {
+		List<Long> top = real.entrySet().stream()
+				.sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+				.limit(TOP).map(Map.Entry::getKey).collect(toList());
+		return top.stream().mapToLong(element -> summary.estimate(element).count() - real.get(element)).sum();
+	}
+
+	private static Map<Long, Integer> fill(StreamSummary<Long> summary, long seed) {
+		Map<Long, Integer> real = new HashMap<>();
+		Random random = new Random(seed);
+		for (int i = 0; i < LENGTH; i++) {
+			long value = heavyTailed(random);
+			summary.add(value);
+			real.merge(value, 1, Integer::sum);
+		}
+		return real;
+	}
+
+	private static long heavyTailed(Random random) {
+		// Half of the stream is a long tail of (almost) unique elements:
+		if (random.nextBoolean())
+			return 1_000_000 + random.nextInt(10_000_000);
+		return (long) Math.pow(1000, random.nextDouble() * random.nextDouble());
+	}
+}
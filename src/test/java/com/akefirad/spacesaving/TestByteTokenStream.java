@@ -0,0 +1,109 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.stream.Stream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestByteTokenStream {
+	private static final Logger logger = getLogger(TestByteTokenStream.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSameTokensAsStringStream() throws IOException {
+		logger.info("Verifying the tokens against the string stream...");
+		long length = 0;
+		try (Stream<String> expected = new StringStream(new InputStreamReader(resource(), UTF_8));
+		     Stream<String> actual = new ByteTokenStream(ByteBuffer.wrap(bytes(resource())))) {
+			String token;
+			while ((token = expected.next()) != null) {
+				assertThat(actual.next(), equalTo(token));
+				++length;
+			}
+			assertThat(actual.next(), nullValue());
+		}
+		logger.info("{} tokens have been verified.", length);
+	}
+
+	@Test
+	public void testViewsSameAsStrings() throws IOException {
+		logger.info("Verifying adding views against adding strings...");
+		StreamSummary<String> expected = new LinkedStreamSummary<>(SIZE);
+		StreamSummary<String> actual = new LinkedStreamSummary<>(SIZE);
+		try (ByteTokenStream stream = new ByteTokenStream(resource())) {
+			while (stream.advance()) {
+				expected.add(stream.materialize());
+				actual.addView(stream);
+			}
+		}
+		assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+		assertThat(actual.total(), equalTo(expected.total()));
+	}
+
+	@Test
+	public void testAllocationFree() throws IOException {
+		logger.info("Verifying the allocation of tokenizing and adding known tokens...");
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		StringBuilder sb = new StringBuilder();
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++)
+			sb.append("Token").append(random.nextInt(SIZE / 2)).append(i % 10 == 0 ? '\n' : ' ');
+		byte[] text = sb.toString().getBytes(UTF_8);
+
+		StreamSummary<String> summary = new LinkedStreamSummary<>(SIZE);
+		for (int round = 0; round < 5; round++) {
+			try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+				long id = currentThread().getId();
+				long before = threads.getThreadAllocatedBytes(id);
+				while (stream.advance())
+					summary.addView(stream);
+				long allocated = threads.getThreadAllocatedBytes(id) - before;
+				logger.info("{} bytes have been allocated by the round {}.", allocated, round);
+				if (round > 0)
+					assertThat(allocated, lessThan(1_000L));
+			}
+		}
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+
+	private static byte[] bytes(InputStream input) throws IOException {
+		try (InputStream in = input) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				output.write(buffer, 0, read);
+			return output.toByteArray();
+		}
+	}
+}
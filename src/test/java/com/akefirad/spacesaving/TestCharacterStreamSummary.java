@@ -0,0 +1,127 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.stream.CharacterStream;
+import com.akefirad.spacesaving.stream.FrequencyTracker;
+import com.akefirad.spacesaving.summary.CharacterStreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestCharacterStreamSummary {
+	private static final Logger logger = getLogger(TestCharacterStreamSummary.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+
+	@Test
+	public void testExactCounts() throws IOException {
+		logger.info("Verifying the exact counts against the real frequencies...");
+		CharacterStreamSummary summary = new CharacterStreamSummary(1000);
+		Map<Character, Integer> real;
+		try (CharacterStream stream = new CharacterStream(reader())) {
+			Character character;
+			while ((character = stream.next()) != null)
+				summary.add(character);
+			real = stream.frequencies();
+		}
+
+		assertThat(summary.exact(), is(true));
+		assertThat(counts(summary.frequencies()), equalTo(real));
+		assertThat(summary.total(), equalTo(real.values().stream().mapToLong(Integer::longValue).sum()));
+		summary.frequencies().keySet().forEach(element -> assertThat(element.error(), equalTo(0)));
+		assertThat(summary.estimate('e').count(), equalTo(real.get('e')));
+		assertThat(summary.estimate('☃').monitored(), is(false));
+		logger.info("{} distinct characters have been counted.", real.size());
+	}
+
+	@Test
+	public void testBulkSameAsOneByOne() throws IOException {
+		logger.info("Verifying the bulk reads and adds...");
+		CharacterStreamSummary expected = new CharacterStreamSummary(1000);
+		try (CharacterStream stream = new CharacterStream(reader())) {
+			Character character;
+			while ((character = stream.next()) != null)
+				expected.add(character.charValue());
+		}
+
+		CharacterStreamSummary actual = new CharacterStreamSummary(1000);
+		char[] chars = new char[1000];
+		try (CharacterStream stream = new CharacterStream(reader())) {
+			int read;
+			while ((read = stream.read(chars, 0, chars.length)) >= 0)
+				actual.add(chars, 0, read);
+		}
+		assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+		assertThat(actual.total(), equalTo(expected.total()));
+	}
+
+	@Test
+	public void testOverflow() throws IOException {
+		logger.info("Verifying the fallback to space saving once the alphabet overflows...");
+		CharacterStreamSummary summary = new CharacterStreamSummary(20);
+		Map<Character, Integer> real;
+		char[] chars = new char[512];
+		try (CharacterStream stream = new CharacterStream(reader(), FrequencyTracker.none())) {
+			real = new HashMap<>();
+			int read;
+			while ((read = stream.read(chars, 0, chars.length)) >= 0) {
+				summary.add(chars, 0, read);
+				for (int idx = 0; idx < read; idx++)
+					real.merge(chars[idx], 1, Integer::sum);
+			}
+		}
+
+		assertThat(summary.exact(), is(false));
+		assertThat(summary.frequencies().size(), equalTo(20));
+		assertThat(summary.total(), equalTo(real.values().stream().mapToLong(Integer::longValue).sum()));
+		summary.frequencies().forEach((element, count) -> {
+			assertThat(count, greaterThanOrEqualTo(real.get(element.get())));
+			assertThat(count - element.error(), lessThanOrEqualTo(real.get(element.get())));
+		});
+	}
+
+	@Test
+	public void testMergeExact() {
+		logger.info("Verifying merging exact summaries...");
+		CharacterStreamSummary summary = new CharacterStreamSummary(3);
+		CharacterStreamSummary other = new CharacterStreamSummary(3);
+		summary.add('a', 3);
+		summary.add('b');
+		other.add('a');
+		other.add('c', 2);
+		summary.merge(other);
+		assertThat(summary.exact(), is(true));
+		assertThat(summary.count('a'), equalTo(4L));
+		assertThat(summary.count('c'), equalTo(2L));
+		assertThat(summary.total(), equalTo(7L));
+
+		other.add('d');
+		summary.merge(other);
+		assertThat(summary.exact(), is(false));
+		assertThat(summary.total(), equalTo(11L));
+	}
+
+	private static Map<Character, Integer> counts(Map<SummaryElement<Character>, Integer> frequencies) {
+		Map<Character, Integer> map = new HashMap<>();
+		frequencies.forEach((element, count) -> map.put(element.get(), count));
+		return map;
+	}
+
+	private static InputStreamReader reader() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		InputStream input = ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+		return new InputStreamReader(input, UTF_8);
+	}
+}
@@ -0,0 +1,71 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.ConcurrentStreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestConcurrentStreamSummary {
+	private static final Logger logger = getLogger(TestConcurrentStreamSummary.class);
+
+	private static final int SIZE = 50;
+	private static final int THREADS = 4;
+	private static final int LENGTH = 100_000;
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		logger.info("Verifying concurrent adds...");
+		ConcurrentStreamSummary<Integer> summary = new ConcurrentStreamSummary<>(SIZE, THREADS);
+		Map<Integer, LongAdder> real = new ConcurrentHashMap<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				int seed = thread;
+				futures.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < LENGTH; i++) {
+						int value = (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+						summary.add(value);
+						real.computeIfAbsent(value, key -> new LongAdder()).increment();
+						// Query now and then, while the others are adding:
+						if (i % 20_000 == 0)
+							assertThat(summary.frequencies().size(), lessThanOrEqualTo(SIZE));
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		Map<SummaryElement<Integer>, Integer> counters = summary.frequencies();
+		assertThat(counters.size(), equalTo(SIZE));
+		int minCount = Collections.min(counters.values());
+		counters.forEach((element, count) -> {
+			long frequency = real.get(element.get()).sum();
+			assertThat((long) count, greaterThanOrEqualTo(frequency));
+			assertThat((long) count - element.error(), lessThanOrEqualTo(frequency));
+		});
+
+		Set<Integer> counted = counters.keySet().stream().map(SummaryElement::get).collect(toSet());
+		real.forEach((element, frequency) -> {
+			if (!counted.contains(element))
+				assertThat(frequency.sum(), lessThanOrEqualTo((long) minCount));
+		});
+	}
+}
@@ -0,0 +1,85 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.DecayedStreamSummary;
+import com.akefirad.spacesaving.summary.Estimate;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestDecayedStreamSummary {
+	private static final Logger logger = getLogger(TestDecayedStreamSummary.class);
+
+	private static final int SIZE = 50;
+	private static final int LENGTH = 100_000;
+	private static final long HALF_LIFE = 1000; // milliseconds
+
+	@Test
+	public void testDecay() {
+		logger.info("Verifying the decay of the counts...");
+		DecayedStreamSummary<String> summary = new DecayedStreamSummary<>(SIZE, 1, SECONDS, () -> 0L);
+		summary.addAt("old", 1000, 0);
+		summary.addAt("new", 100, 5 * HALF_LIFE);
+
+		assertThat(summary.decayedCount("old"), closeTo(1000 / 32.0, 1e-9));
+		assertThat(summary.decayedCount("new"), closeTo(100, 1e-9));
+		assertThat(summary.topK(1).keySet().iterator().next().get(), equalTo("new"));
+		assertThat(summary.estimate("old").count(), equalTo(32));
+		assertThat(summary.estimate("old").guaranteed(), equalTo(31));
+		assertThat(summary.total(), equalTo(131L));
+	}
+
+	@Test
+	public void testRenormalization() {
+		logger.info("Verifying the counts over many half-lives...");
+		DecayedStreamSummary<String> summary = new DecayedStreamSummary<>(SIZE, 1, SECONDS, () -> 0L);
+		// The decayed count of one occurrence per half-life converges to two:
+		for (int i = 0; i < 10_000; i++)
+			summary.addAt("a", i * HALF_LIFE);
+		assertThat(summary.decayedCount("a"), closeTo(2, 1e-9));
+		assertThat(summary.decayedTotal(), closeTo(2, 1e-9));
+	}
+
+	@Test
+	public void testDecayedBounds() {
+		logger.info("Verifying the bounds of the decayed counts...");
+		DecayedStreamSummary<Integer> summary = new DecayedStreamSummary<>(SIZE, 1, SECONDS, () -> 0L);
+		DecayedStreamSummary<Integer> odds = new DecayedStreamSummary<>(SIZE, 1, SECONDS, () -> 0L);
+		DecayedStreamSummary<Integer> evens = new DecayedStreamSummary<>(SIZE, 1, SECONDS, () -> 0L);
+		int[] elements = new int[LENGTH];
+		long[] timestamps = new long[LENGTH];
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			elements[i] = (int) Math.pow(500, random.nextDouble() * random.nextDouble());
+			// Roughly in order, 10 occurrences per millisecond:
+			timestamps[i] = i / 10 + random.nextInt(20);
+			summary.addAt(elements[i], timestamps[i]);
+			(i % 2 == 0 ? evens : odds).addAt(elements[i], timestamps[i]);
+		}
+		evens.merge(odds);
+
+		long time = summary.time();
+		Map<Integer, Double> real = new HashMap<>();
+		for (int i = 0; i < LENGTH; i++)
+			real.merge(elements[i], Math.pow(2, (timestamps[i] - time) / (double) HALF_LIFE), Double::sum);
+
+		assertThat(evens.time(), equalTo(time));
+		for (DecayedStreamSummary<Integer> decayed : Arrays.asList(summary, evens)) {
+			assertThat(decayed.frequencies().size(), equalTo(SIZE));
+			real.forEach((element, frequency) -> {
+				Estimate estimate = decayed.estimate(element);
+				assertThat((double) estimate.count(), greaterThanOrEqualTo(frequency - 1e-6));
+				if (estimate.monitored())
+					assertThat((double) estimate.guaranteed(), lessThanOrEqualTo(frequency + 1e-6));
+			});
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.DictionaryStreamSummary;
+import com.akefirad.spacesaving.summary.KeyDictionary;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestDictionaryStreamSummary {
+	private static final Logger logger = getLogger(TestDictionaryStreamSummary.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSameAsLinked() throws IOException {
+		logger.info("Verifying the dictionary summary against the linked summary...");
+		DictionaryStreamSummary actual = new DictionaryStreamSummary(SIZE);
+		StreamSummary<String> bytes = new DictionaryStreamSummary(SIZE);
+		StreamSummary<String> expected = new LinkedStreamSummary<>(SIZE);
+		try (ByteTokenStream stream = new ByteTokenStream(resource())) {
+			while (stream.advance()) {
+				actual.add(stream.array(), stream.offset(), stream.length());
+				bytes.add(stream.materialize());
+				expected.add(stream.materialize());
+			}
+		}
+
+		assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+		assertThat(bytes.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+		assertThat(actual.total(), equalTo(expected.total()));
+		assertThat(actual.topK(5), equalTo(expected.topK(5)));
+		assertThat(actual.mostFrequents(), equalTo(expected.mostFrequents()));
+		expected.frequencies().keySet().forEach(element ->
+				assertThat(actual.estimate(element.get()), equalTo(expected.estimate(element.get()))));
+		assertThat(actual.estimate("no-such-token"), equalTo(expected.estimate("no-such-token")));
+		logger.info("The summary takes about {} bytes.", actual.memory());
+	}
+
+	@Test
+	public void testEvictedKeysReclaimed() {
+		logger.info("Verifying the bytes of the evicted keys are reclaimed...");
+		DictionaryStreamSummary summary = new DictionaryStreamSummary(SIZE);
+		Random random = new Random(42);
+		for (int i = 0; i < 1_000_000; i++)
+			summary.add("https://example.com/" + (random.nextBoolean() ? random.nextInt(10) : i));
+		logger.info("The summary takes about {} bytes.", summary.memory());
+		assertThat(summary.memory(), lessThan(16L * 1024));
+		assertThat(summary.frequencies().size(), equalTo(SIZE));
+		for (int i = 0; i < 10; i++)
+			assertThat(summary.estimate("https://example.com/" + i).monitored(), is(true));
+	}
+
+	@Test
+	public void testDictionary() {
+		logger.info("Verifying the dictionary...");
+		KeyDictionary keys = new KeyDictionary(3);
+		assertThat(keys.intern("a"), equalTo(0));
+		assertThat(keys.intern("été"), equalTo(1));
+		assertThat(keys.intern("a"), equalTo(0));
+		assertThat(keys.intern("b"), equalTo(2));
+		assertThat(keys.intern("c"), equalTo(-1));
+		assertThat(keys.key(1), equalTo("été"));
+
+		keys.remove(0);
+		assertThat(keys.find("a"), equalTo(-1));
+		assertThat(keys.contains(0), is(false));
+		byte[] bytes = "xcx".getBytes(UTF_8);
+		assertThat(keys.intern(bytes, 1, 1), equalTo(0));
+		assertThat(keys.key(0), equalTo("c"));
+		assertThat(keys.find("b"), equalTo(2));
+		assertThat(keys.size(), equalTo(3));
+	}
+
+	@Test
+	public void testCompaction() {
+		logger.info("Verifying the dictionary under churn...");
+		KeyDictionary keys = new KeyDictionary(16);
+		String[] expected = new String[16];
+		for (int id = 0; id < 16; id++)
+			expected[keys.intern("key-" + id)] = "key-" + id;
+		long memory = keys.memory();
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			// Evict a random key, and add a new one (of a random length) in its place:
+			keys.remove(random.nextInt(16));
+			String key = i + "-" + new String(new char[random.nextInt(40)]).replace('\0', 'x');
+			int id = keys.intern(key);
+			expected[id] = key;
+		}
+		for (int id = 0; id < 16; id++) {
+			assertThat(keys.key(id), equalTo(expected[id]));
+			assertThat(keys.find(expected[id]), equalTo(id));
+		}
+		// Compacted in place, the arena has never grown:
+		assertThat(keys.memory(), equalTo(memory));
+	}
+
+	@Test
+	public void testOverflow() {
+		logger.info("Verifying the dictionary summary after an overflowing weight...");
+		TestWeightedStreamSummary.verifyOverflowLeavesUnchanged(new DictionaryStreamSummary(2), "a", "b", "c");
+	}
+
+	@Test
+	public void testMerge() {
+		logger.info("Verifying merging in to the dictionary summary...");
+		StreamSummary<String> summary = new DictionaryStreamSummary(SIZE);
+		StreamSummary<String> expected = new LinkedStreamSummary<>(SIZE);
+		StreamSummary<String> other = new LinkedStreamSummary<>(SIZE);
+		Random random = new Random(7);
+		for (int i = 0; i < 100_000; i++) {
+			String token = "t" + (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+			(i % 2 == 0 ? summary : other).add(token);
+			if (i % 2 == 0)
+				expected.add(token);
+		}
+		summary.merge(other);
+		expected.merge(other);
+		assertThat(summary.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+		assertThat(summary.total(), equalTo(100_000L));
+		summary.add("t1");
+		expected.add("t1");
+		assertThat(summary.estimate("t1"), equalTo(expected.estimate("t1")));
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+}
@@ -0,0 +1,101 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.ingest.FanOutIngestion;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.CharacterStreamSummary;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestFanOutIngestion {
+	private static final Logger logger = getLogger(TestFanOutIngestion.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSameAsSeparatePasses() throws IOException {
+		logger.info("Verifying one pass against separate passes...");
+		verify(bytes(resource()), 100_000);
+	}
+
+	@Test
+	public void testNonAsciiWords() throws IOException {
+		logger.info("Verifying non-ASCII words...");
+		verify("Café au lait, café  AU\tlait; naïve café au lait\nÉté été a".getBytes(UTF_8), SIZE);
+	}
+
+	private static void verify(byte[] text, int characterSize) throws IOException {
+		StreamSummary<String> words = new LinkedStreamSummary<>(SIZE);
+		CharacterStreamSummary characters = new CharacterStreamSummary(characterSize);
+		Map<Integer, StreamSummary<String>> ngrams = new HashMap<>();
+		for (int n = 2; n <= 4; n++)
+			ngrams.put(n, new LinkedStreamSummary<>(SIZE));
+		long count = new FanOutIngestion(words, characters, ngrams).summarize(new ByteArrayInputStream(text));
+
+		// The same, in separate passes over the (materialized) words:
+		List<String> tokens = new ArrayList<>();
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			while (stream.advance())
+				tokens.add(stream.materialize());
+		}
+		assertThat(count, equalTo((long) tokens.size()));
+
+		StreamSummary<String> expectedWords = new LinkedStreamSummary<>(SIZE);
+		tokens.forEach(expectedWords::add);
+		assertThat(words.sortedFrequencies(), equalTo(expectedWords.sortedFrequencies()));
+
+		CharacterStreamSummary expectedCharacters = new CharacterStreamSummary(characterSize);
+		tokens.forEach(token -> token.chars().filter(Character::isLetterOrDigit)
+				.forEach(c -> expectedCharacters.add((char) c)));
+		assertThat(characters.sortedFrequencies(), equalTo(expectedCharacters.sortedFrequencies()));
+
+		for (int n = 2; n <= 4; n++) {
+			StreamSummary<String> expected = new LinkedStreamSummary<>(SIZE);
+			for (int idx = n; idx <= tokens.size(); idx++)
+				expected.add(String.join(" ", tokens.subList(idx - n, idx)));
+			StreamSummary<String> actual = ngrams.get(n);
+			logger.info("Top {}-grams: {}", n, actual.topK(3));
+			assertThat(actual.total(), equalTo(expected.total()));
+			assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+			assertThat(new ArrayList<>(actual.sortedFrequencies().values()),
+					equalTo(new ArrayList<>(expected.sortedFrequencies().values())));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidN() {
+		new FanOutIngestion(null, null, Collections.singletonMap(1, new LinkedStreamSummary<>(SIZE)));
+	}
+
+	private static InputStream resource() {
+		return ofNullable(currentThread().getContextClassLoader().getResourceAsStream(LONG_TEXT))
+				.orElseThrow(() -> new AssertionError("Text not found!"));
+	}
+
+	private static byte[] bytes(InputStream input) throws IOException {
+		try (InputStream in = input) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		}
+	}
+}
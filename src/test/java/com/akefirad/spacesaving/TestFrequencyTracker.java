@@ -0,0 +1,80 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.stream.FrequencyTracker;
+import com.akefirad.spacesaving.stream.SimpleStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestFrequencyTracker {
+	private static final Logger logger = getLogger(TestFrequencyTracker.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+
+	@Test
+	public void testExactSameAsReal() throws IOException {
+		logger.info("Verifying the exact tracker against the real frequencies...");
+		Map<String, Integer> real = new HashMap<>();
+		try (SimpleStream<String> stream = new StringStream(reader(), FrequencyTracker.exact())) {
+			String token;
+			while ((token = stream.next()) != null)
+				real.merge(token, 1, Integer::sum);
+			assertThat(stream.frequencies(), equalTo(real));
+		}
+	}
+
+	@Test
+	public void testNoneTracksNothing() throws IOException {
+		logger.info("Verifying the disabled tracker...");
+		try (SimpleStream<String> stream = new StringStream(reader(), FrequencyTracker.none())) {
+			while (stream.next() != null) ;
+			assertThat(stream.frequencies().isEmpty(), is(true));
+			assertThat(stream.sortedFrequencies().isEmpty(), is(true));
+		}
+	}
+
+	@Test
+	public void testSampledSubsetOfExact() throws IOException {
+		logger.info("Verifying the sampled tracker against the exact tracker...");
+		FrequencyTracker<String> exact = FrequencyTracker.exact();
+		FrequencyTracker<String> sampled = FrequencyTracker.sampled(0.1);
+		try (SimpleStream<String> stream = new StringStream(reader(), FrequencyTracker.none())) {
+			String token;
+			while ((token = stream.next()) != null) {
+				exact.track(token);
+				sampled.track(token);
+			}
+		}
+
+		Map<String, Integer> all = exact.frequencies();
+		Map<String, Integer> sample = sampled.frequencies();
+		logger.info("{} of {} elements have been sampled.", sample.size(), all.size());
+		sample.forEach((element, count) -> assertThat(count, equalTo(all.get(element))));
+		assertThat((double) sample.size(), closeTo(all.size() * 0.1, all.size() * 0.03));
+		assertThat(FrequencyTracker.<String>sampled(1).frequencies().isEmpty(), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRatio() {
+		FrequencyTracker.sampled(0);
+	}
+
+	private static InputStreamReader reader() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		InputStream input = ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+		return new InputStreamReader(input, UTF_8);
+	}
+}
@@ -0,0 +1,130 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.ingest.IngestionPipeline;
+import com.akefirad.spacesaving.ingest.PipelineStage;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestIngestionPipeline {
+	private static final Logger logger = getLogger(TestIngestionPipeline.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSameAsSequential() throws IOException {
+		logger.info("Verifying the pipeline against summarizing in one loop...");
+		byte[] text = bytes(resource());
+		StreamSummary<String> expected = sequential(text, Long.MAX_VALUE);
+		for (int workers : new int[]{1, 3}) {
+			IngestionPipeline pipeline = new IngestionPipeline(SIZE, workers, 4096, 2);
+			StreamSummary<String> actual = pipeline.summarize(new ByteArrayInputStream(text));
+			assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+			assertThat(actual.total(), equalTo(expected.total()));
+
+			List<PipelineStage> stages = pipeline.stages();
+			logger.info("Stages of the pipeline with {} workers: {}", workers, stages);
+			assertThat(stages.size(), equalTo(3));
+			assertThat(stages.get(0).items(), equalTo((long) text.length));
+			assertThat(stages.get(1).items(), equalTo(expected.total()));
+			assertThat(stages.get(2).items(), equalTo(expected.total()));
+		}
+	}
+
+	@Test
+	public void testTokensBiggerThanChunks() throws IOException {
+		logger.info("Verifying tokens bigger than the chunks...");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("short ");
+			for (int j = 0; j < i * 10; j++)
+				sb.append((char) ('a' + i % 26));
+			sb.append(i % 2 == 0 ? '\n' : ' ');
+		}
+		byte[] text = sb.toString().getBytes();
+		StreamSummary<String> expected = sequential(text, Long.MAX_VALUE);
+		StreamSummary<String> actual = new IngestionPipeline(SIZE, 2, 64, 1).summarize(new ByteArrayInputStream(text));
+		assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+	}
+
+	@Test
+	public void testLimit() throws IOException {
+		logger.info("Verifying the limit of tokens...");
+		byte[] text = bytes(resource());
+		StreamSummary<String> expected = sequential(text, 12_345);
+		StreamSummary<String> actual = new LinkedStreamSummary<>(SIZE);
+		long count = new IngestionPipeline(SIZE, 2, 4096, 2)
+				.summarize(Channels.newChannel(new ByteArrayInputStream(text)), actual, 12_345);
+		assertThat(count, equalTo(12_345L));
+		assertThat(actual.sortedFrequencies(), equalTo(expected.sortedFrequencies()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadFailure() throws IOException {
+		logger.info("Verifying a failure of the reader...");
+		ReadableByteChannel channel = new ReadableByteChannel() {
+			private int reads;
+
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				if (reads++ > 1000)
+					throw new IOException("broken!");
+				dst.put((byte) (reads % 3 == 0 ? ' ' : 'a'));
+				return 1;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		new IngestionPipeline(SIZE, 2, 64, 2).summarize(channel);
+	}
+
+	private static StreamSummary<String> sequential(byte[] text, long limit) throws IOException {
+		StreamSummary<String> summary = new LinkedStreamSummary<>(SIZE);
+		try (ByteTokenStream stream = new ByteTokenStream(ByteBuffer.wrap(text))) {
+			while (limit-- > 0 && stream.advance())
+				summary.add(stream.materialize());
+		}
+		return summary;
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+
+	private static byte[] bytes(InputStream input) throws IOException {
+		try (InputStream in = input) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				output.write(buffer, 0, read);
+			return output.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.stream.SimpleStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.Estimate;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestLinkedStreamSummary {
+	private static final Logger logger = getLogger(TestLinkedStreamSummary.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	private static SimpleStream<String> stream;
+	private static StreamSummary<String> summary;
+
+	private static Map<String, Integer> realFrequencies;
+	private static Map<SummaryElement<String>, Integer> calculatedFrequencies;
+	private static long length = 0;
+	private static int minCount = 0;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		summary = new LinkedStreamSummary<>(SIZE);
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		InputStream input = ofNullable(ccl.getResourceAsStream(LONG_TEXT))
+				.orElseThrow(NullPointerException::new);
+		try {
+			stream = new StringStream(new InputStreamReader(input));
+			String string;
+			while ((string = stream.next()) != null) {
+				summary.add(string);
+				++length;
+			}
+
+			realFrequencies = stream.frequencies();
+			calculatedFrequencies = summary.sortedFrequencies();
+			minCount = Collections.min(calculatedFrequencies.values());
+
+			logger.info("{} elements have been read from the stream.", length);
+			logger.info("{} distinct elements have been found.", realFrequencies.size());
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testSize() {
+		logger.info("Verifying the number of counters...");
+		assertThat(calculatedFrequencies.size(), equalTo(SIZE));
+		assertThat(summary.frequencies(), equalTo(calculatedFrequencies));
+	}
+
+	@Test
+	public void testSmallestCounter() {
+		logger.info("Verifying the smallest counter...");
+		assertThat((long) minCount, lessThanOrEqualTo((length / SIZE)));
+	}
+
+	@Test
+	public void testSortedCounters() {
+		logger.info("Verifying the order of counters...");
+		List<Integer> counters = new ArrayList<>(calculatedFrequencies.values());
+		for (int idx = 1; idx < counters.size(); idx++)
+			assertThat(counters.get(idx), lessThanOrEqualTo(counters.get(idx - 1)));
+	}
+
+	@Test
+	public void testBounds() {
+		logger.info("Verifying the overestimation bounds...");
+		calculatedFrequencies.forEach((element, count) -> {
+			int real = realFrequencies.get(element.get());
+			assertThat(count, greaterThanOrEqualTo(real));
+			assertThat(count - element.error(), lessThanOrEqualTo(real));
+			assertThat(element.error(), lessThanOrEqualTo(minCount));
+		});
+	}
+
+	@Test
+	public void testUncountedElements() {
+		logger.info("Verifying the uncounted elements...");
+		Set<String> counted = calculatedFrequencies.keySet().stream()
+				.map(SummaryElement::get)
+				.collect(toSet());
+		realFrequencies.forEach((element, count) -> {
+			if (!counted.contains(element))
+				assertThat(count, lessThanOrEqualTo(minCount));
+		});
+	}
+
+	@Test
+	public void testMostFrequents() {
+		logger.info("Verifying the most frequent elements...");
+		summary.mostFrequents().forEach((element, count) ->
+				assertTrue(count - element.error() > minCount));
+	}
+
+	@Test
+	public void testTopK() {
+		logger.info("Verifying the top-k elements...");
+		List<Map.Entry<SummaryElement<String>, Integer>> sorted = new ArrayList<>(calculatedFrequencies.entrySet());
+		List<Map.Entry<SummaryElement<String>, Integer>> top = new ArrayList<>(summary.topK(10).entrySet());
+		assertThat(top, equalTo(sorted.subList(0, 10)));
+		assertThat(summary.topK(SIZE * 2).size(), equalTo(SIZE));
+	}
+
+	@Test
+	public void testHeavyHitters() {
+		logger.info("Verifying the heavy hitters...");
+		double phi = 0.01;
+		assertThat(summary.total(), equalTo(length));
+		Set<String> hitters = summary.heavyHitters(phi).keySet().stream()
+				.map(SummaryElement::get)
+				.collect(toSet());
+		assertThat(hitters, not(empty()));
+		realFrequencies.forEach((element, count) -> {
+			if (count > phi * length)
+				assertTrue(hitters.contains(element));
+		});
+	}
+
+	@Test
+	public void testEstimate() {
+		logger.info("Verifying the estimates...");
+		calculatedFrequencies.forEach((element, count) -> {
+			Estimate estimate = summary.estimate(element.get());
+			assertTrue(estimate.monitored());
+			assertThat(estimate.count(), equalTo(count));
+			assertThat(estimate.error(), equalTo(element.error()));
+		});
+		realFrequencies.forEach((element, count) -> {
+			Estimate estimate = summary.estimate(element);
+			assertThat(estimate.count(), greaterThanOrEqualTo(count));
+			assertThat(estimate.guaranteed(), lessThanOrEqualTo(count));
+		});
+	}
+
+	@Test
+	public void testSameAsSimpleWithoutEviction() {
+		logger.info("Verifying the counters when there is enough space...");
+		StreamSummary<Integer> linked = new LinkedStreamSummary<>(10);
+		StreamSummary<Integer> simple = new SimpleStreamSummary<>(10);
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			int value = random.nextInt(10);
+			linked.add(value);
+			simple.add(value);
+		}
+		assertThat(linked.frequencies(), equalTo(simple.frequencies()));
+	}
+
+	@Test
+	public void testAllocationFree() {
+		logger.info("Verifying the allocation of adding elements...");
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		// Keys are created upfront, so the stream itself doesn't allocate:
+		Random random = new Random(42);
+		Integer[] keys = new Integer[1 << 16];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = random.nextInt(1000) * random.nextInt(1000);
+
+		StreamSummary<Integer> linked = new LinkedStreamSummary<>(SIZE);
+		for (int i = 0; i < 1_000_000; i++)
+			linked.add(keys[i & (keys.length - 1)]);
+
+		long id = currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 1_000_000; i++)
+			linked.add(keys[i & (keys.length - 1)]);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		logger.info("{} bytes have been allocated by adding 1000000 elements.", allocated);
+		// Allow for the (constant) allocation of the measurement itself:
+		assertThat(allocated, lessThan(1_000L));
+	}
+}
@@ -0,0 +1,76 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.ingest.MappedFileIngestion;
+import com.akefirad.spacesaving.stream.SimpleStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestMappedFileIngestion {
+	private static final Logger logger = getLogger(TestMappedFileIngestion.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSummarize() throws IOException {
+		logger.info("Verifying the summary of a mapped file...");
+		Path file = Files.createTempFile("spacesaving", ".txt");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ClassLoader ccl = currentThread().getContextClassLoader();
+			try (InputStream input = ofNullable(ccl.getResourceAsStream(LONG_TEXT))
+					.orElseThrow(NullPointerException::new)) {
+				Files.copy(input, file, REPLACE_EXISTING);
+			}
+
+			Map<String, Integer> real;
+			long length = 0;
+			try (SimpleStream<String> stream = new StringStream(Files.newBufferedReader(file))) {
+				while (stream.next() != null)
+					++length;
+				real = stream.frequencies();
+			}
+
+			// Small chunks, so there are many of them to merge:
+			StreamSummary<String> summary = new MappedFileIngestion(SIZE, 32 * 1024, pool).summarize(file);
+			assertThat(summary.total(), equalTo(length));
+
+			Map<SummaryElement<String>, Integer> counters = summary.frequencies();
+			assertThat(counters.size(), equalTo(SIZE));
+			int minCount = Collections.min(counters.values());
+			counters.forEach((element, count) -> {
+				assertThat(count, greaterThanOrEqualTo(real.get(element.get())));
+				assertThat(count - element.error(), lessThanOrEqualTo(real.get(element.get())));
+			});
+
+			Set<String> counted = counters.keySet().stream().map(SummaryElement::get).collect(toSet());
+			real.forEach((element, count) -> {
+				if (!counted.contains(element))
+					assertThat(count, lessThanOrEqualTo(minCount));
+			});
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.*;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestMergeStreamSummary {
+	private static final Logger logger = getLogger(TestMergeStreamSummary.class);
+
+	private static final int SIZE = 40;
+	private static final int SHARDS = 4;
+	private static final int LENGTH = 100_000;
+
+	@Test
+	public void testSimpleMerge() {
+		logger.info("Verifying merge of simple summaries...");
+		verifyMerge(() -> new SimpleStreamSummary<>(SIZE));
+	}
+
+	@Test
+	public void testLinkedMerge() {
+		logger.info("Verifying merge of linked summaries...");
+		verifyMerge(() -> new LinkedStreamSummary<>(SIZE));
+	}
+
+	@Test
+	public void testLongMerge() {
+		logger.info("Verifying merge of long summaries...");
+		verifyMerge(() -> new LongStreamSummary(SIZE));
+	}
+
+	@Test
+	public void testMergeWithoutEviction() {
+		logger.info("Verifying merge of summaries with enough space...");
+		StreamSummary<Long> first = new LinkedStreamSummary<>(SIZE);
+		StreamSummary<Long> second = new LongStreamSummary(SIZE);
+		for (long i = 0; i < 10; i++) {
+			first.add(i);
+			second.add(i);
+			second.add(i + 5);
+		}
+		first.merge(second);
+		first.frequencies().forEach((element, count) -> {
+			assertThat(element.error(), equalTo(0));
+			assertThat(count, equalTo(element.get() < 5 ? 2 : element.get() < 10 ? 3 : 1));
+		});
+		assertThat(first.frequencies().size(), equalTo(15));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentCapacities() {
+		new LinkedStreamSummary<Long>(SIZE).merge(new LongStreamSummary(SIZE + 1));
+	}
+
+	private static void verifyMerge(Supplier<StreamSummary<Long>> factory) {
+		Map<Long, Integer> real = new HashMap<>();
+		List<StreamSummary<Long>> shards = new ArrayList<>();
+		for (int shard = 0; shard < SHARDS; shard++)
+			shards.add(factory.get());
+
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			// Roughly Zipfian, and each shard has its own (slightly) different distribution:
+			int shard = i % SHARDS;
+			long value = (long) Math.pow(2000, random.nextDouble() * random.nextDouble()) + shard;
+			shards.get(shard).add(value);
+			real.merge(value, 1, Integer::sum);
+		}
+
+		StreamSummary<Long> merged = shards.get(0);
+		shards.subList(1, SHARDS).forEach(merged::merge);
+
+		Map<SummaryElement<Long>, Integer> counters = merged.frequencies();
+		assertThat(counters.size(), equalTo(SIZE));
+		int minCount = Collections.min(counters.values());
+		assertThat((long) minCount, lessThanOrEqualTo((long) LENGTH / SIZE));
+
+		counters.forEach((element, count) -> {
+			int frequency = real.get(element.get());
+			assertThat(count, greaterThanOrEqualTo(frequency));
+			assertThat(count - element.error(), lessThanOrEqualTo(frequency));
+		});
+
+		Set<Long> counted = counters.keySet().stream().map(SummaryElement::get).collect(toSet());
+		real.forEach((element, frequency) -> {
+			if (!counted.contains(element))
+				assertThat(frequency, lessThanOrEqualTo(minCount));
+		});
+	}
+}
@@ -0,0 +1,130 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.checkpoint.KeyCodec;
+import com.akefirad.spacesaving.stream.SimpleStream;
+import com.akefirad.spacesaving.stream.StringStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.OffHeapStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestOffHeapStreamSummary {
+	private static final Logger logger = getLogger(TestOffHeapStreamSummary.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testSameAsLinked() throws IOException {
+		logger.info("Verifying off-heap summary against the linked summary...");
+		StreamSummary<String> linked = new LinkedStreamSummary<>(SIZE);
+		try (OffHeapStreamSummary<String> offHeap = new OffHeapStreamSummary<>(SIZE, KeyCodec.strings());
+		     SimpleStream<String> stream = new StringStream(new InputStreamReader(resource(), UTF_8))) {
+			String token;
+			while ((token = stream.next()) != null) {
+				linked.add(token);
+				offHeap.add(token);
+			}
+
+			// Lots of evictions, so the keys are compacted many times:
+			assertSameCounters(offHeap.sortedFrequencies(), linked.sortedFrequencies());
+			assertThat(offHeap.total(), equalTo(linked.total()));
+			assertThat(offHeap.topK(10), equalTo(linked.topK(10)));
+			assertThat(offHeap.mostFrequents(), equalTo(linked.mostFrequents()));
+			assertThat(offHeap.heavyHitters(0.01), equalTo(linked.heavyHitters(0.01)));
+			assertThat(offHeap.estimate("the"), equalTo(linked.estimate("the")));
+			assertThat(offHeap.estimate("not-a-word"), equalTo(linked.estimate("not-a-word")));
+			assertThat(offHeap.memory(), lessThan(1024L * 1024));
+
+			// Merged with itself, as the linked one:
+			linked.merge(linked);
+			offHeap.merge(offHeap);
+			assertSameCounters(offHeap.sortedFrequencies(), linked.sortedFrequencies());
+		}
+	}
+
+	@Test
+	public void testRejectedKeyLeavesSummaryUnchanged() {
+		logger.info("Verifying off-heap summary after a too long key, and an overflow...");
+		try (OffHeapStreamSummary<String> summary = new OffHeapStreamSummary<>(2, KeyCodec.strings())) {
+			summary.add("a");
+			char[] chars = new char[70_000];
+			Arrays.fill(chars, 'x');
+			String key = new String(chars);
+			// With some space, and again without space:
+			for (int i = 1; i <= 2; i++) {
+				Map<SummaryElement<String>, Integer> frequencies = new HashMap<>(summary.frequencies());
+				try {
+					summary.add(key);
+					throw new AssertionError("Expecting a too long key!");
+				} catch (IllegalArgumentException e) {
+					assertThat(summary.total(), equalTo((long) i));
+					assertThat(summary.frequencies(), equalTo(frequencies));
+				}
+				summary.add("b");
+			}
+			assertThat(summary.estimate("b").count(), equalTo(2));
+		}
+		try (OffHeapStreamSummary<String> summary = new OffHeapStreamSummary<>(2, KeyCodec.strings())) {
+			TestWeightedStreamSummary.verifyOverflowLeavesUnchanged(summary, "a", "b", "c");
+		}
+	}
+
+	@Test
+	public void testKeysOfAnyLength() {
+		logger.info("Verifying off-heap summary with keys longer than its scratch buffer...");
+		try (OffHeapStreamSummary<String> summary = new OffHeapStreamSummary<>(SIZE, KeyCodec.strings())) {
+			StreamSummary<String> linked = new LinkedStreamSummary<>(SIZE);
+			StringBuilder key = new StringBuilder();
+			for (int i = 0; i < 1000; i++) {
+				key.append(i % 3 == 0 ? "ü" : "x");
+				summary.add(key.toString(), i % 7 + 1);
+				linked.add(key.toString(), i % 7 + 1);
+				assertThat(summary.estimate(key.toString()), equalTo(linked.estimate(key.toString())));
+			}
+			assertSameCounters(summary.frequencies(), linked.frequencies());
+
+			// A key too long for the summary is not monitored:
+			char[] chars = new char[70_000];
+			Arrays.fill(chars, 'x');
+			assertThat(summary.estimate(new String(chars)).monitored(), equalTo(false));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() {
+		OffHeapStreamSummary<Long> summary = new OffHeapStreamSummary<>(SIZE, KeyCodec.longs());
+		summary.add(42L);
+		summary.close();
+		summary.add(42L);
+	}
+
+	private static <T> void assertSameCounters(Map<SummaryElement<T>, Integer> actual,
+	                                           Map<SummaryElement<T>, Integer> expected) {
+		assertThat(actual, equalTo(expected));
+		Map<T, Integer> errors = new HashMap<>();
+		expected.keySet().forEach(element -> errors.put(element.get(), element.error()));
+		actual.keySet().forEach(element -> assertThat(element.error(), equalTo(errors.get(element.get()))));
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+}
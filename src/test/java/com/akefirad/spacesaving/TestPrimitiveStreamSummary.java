@@ -0,0 +1,87 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.IntStreamSummary;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.LongStreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestPrimitiveStreamSummary {
+	private static final Logger logger = getLogger(TestPrimitiveStreamSummary.class);
+
+	private static final int SIZE = 50;
+	private static final int LENGTH = 200_000;
+
+	@Test
+	public void testLongSameAsLinked() {
+		logger.info("Verifying long summary against the linked summary...");
+		LongStreamSummary primitive = new LongStreamSummary(SIZE);
+		LinkedStreamSummary<Long> linked = new LinkedStreamSummary<>(SIZE);
+		Map<Long, Integer> real = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			long value = skewed(random) * 0x1_0000_0001L;
+			primitive.add(value);
+			linked.add(value);
+			real.merge(value, 1, Integer::sum);
+		}
+
+		assertSameCounters(primitive.sortedFrequencies(), linked.sortedFrequencies());
+		primitive.frequencies().forEach((element, count) -> {
+			assertThat(primitive.count(element.get()), equalTo(count));
+			assertThat(primitive.error(element.get()), equalTo(element.error()));
+			assertThat(count, greaterThanOrEqualTo(real.get(element.get())));
+			assertThat(count - element.error(), lessThanOrEqualTo(real.get(element.get())));
+		});
+
+		assertThat(primitive.topK(5), equalTo(linked.topK(5)));
+		assertThat(primitive.heavyHitters(0.01), equalTo(linked.heavyHitters(0.01)));
+		assertThat(primitive.total(), equalTo((long) LENGTH));
+		real.keySet().forEach(element ->
+				assertThat(primitive.estimate(element), equalTo(linked.estimate(element))));
+
+		long[] top = primitive.topKeys(5);
+		assertThat(top.length, equalTo(5));
+		for (int idx = 1; idx < top.length; idx++)
+			assertThat(primitive.count(top[idx]), lessThanOrEqualTo(primitive.count(top[idx - 1])));
+	}
+
+	@Test
+	public void testIntSameAsLinked() {
+		logger.info("Verifying int summary against the linked summary...");
+		IntStreamSummary primitive = new IntStreamSummary(SIZE);
+		LinkedStreamSummary<Integer> linked = new LinkedStreamSummary<>(SIZE);
+		Random random = new Random(7);
+		for (int i = 0; i < LENGTH; i++) {
+			int value = skewed(random);
+			primitive.add(value);
+			linked.add(value);
+		}
+
+		assertSameCounters(primitive.sortedFrequencies(), linked.sortedFrequencies());
+		assertThat(primitive.topKeys(SIZE * 2).length, equalTo(SIZE));
+		assertThat(primitive.count(-1), equalTo(0));
+	}
+
+	private static int skewed(Random random) {
+		// Roughly Zipfian: small values are much more frequent
+		return (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+	}
+
+	private static <T> void assertSameCounters(Map<SummaryElement<T>, Integer> actual,
+	                                           Map<SummaryElement<T>, Integer> expected) {
+		assertThat(actual, equalTo(expected));
+		Map<T, Integer> errors = new HashMap<>();
+		expected.keySet().forEach(element -> errors.put(element.get(), element.error()));
+		actual.keySet().forEach(element -> assertThat(element.error(), equalTo(errors.get(element.get()))));
+	}
+}
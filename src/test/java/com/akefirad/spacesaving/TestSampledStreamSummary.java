@@ -0,0 +1,95 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.Estimate;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SampledStreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSampledStreamSummary {
+	private static final Logger logger = getLogger(TestSampledStreamSummary.class);
+
+	private static final int SIZE = 100;
+	private static final int LENGTH = 2_000_000;
+
+	@Test
+	public void testSameWithoutSampling() {
+		logger.info("Verifying the summary without sampling...");
+		SampledStreamSummary<Integer> summary = new SampledStreamSummary<>(new LinkedStreamSummary<>(SIZE), Long.MAX_VALUE);
+		LinkedStreamSummary<Integer> expected = new LinkedStreamSummary<>(SIZE);
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH / 10; i++) {
+			int value = value(random);
+			summary.add(value);
+			expected.add(value);
+		}
+		assertThat(summary.probability(), equalTo(1.0));
+		assertThat(summary.total(), equalTo(expected.total()));
+		assertThat(summary.frequencies(), equalTo(expected.frequencies()));
+		assertThat(summary.mostFrequents(), equalTo(expected.mostFrequents()));
+		assertThat(summary.heavyHitters(0.01), equalTo(expected.heavyHitters(0.01)));
+		assertThat(summary.estimate(1), equalTo(expected.estimate(1)));
+	}
+
+	@Test
+	public void testSampledOverBudget() {
+		logger.info("Verifying the sampling over the budget...");
+		// Each check of the rate takes 1ms:
+		AtomicLong clock = new AtomicLong();
+		SampledStreamSummary<Integer> summary = new SampledStreamSummary<>(new LinkedStreamSummary<>(SIZE),
+				100_000, () -> clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1)), new Random(7)::nextInt);
+		Map<Integer, Integer> real = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			int value = value(random);
+			summary.add(value);
+			real.merge(value, 1, Integer::sum);
+		}
+
+		// 4096 elements per millisecond, sampled down to (at most) 100 per millisecond:
+		logger.info("Sampled with the probability {}: {}", summary.probability(), summary.topK(5));
+		assertThat(summary.probability(), equalTo(1.0 / 64));
+		assertThat(summary.total(), equalTo((long) LENGTH));
+
+		Map<SummaryElement<Integer>, Integer> top = summary.topK(10);
+		for (Map.Entry<SummaryElement<Integer>, Integer> entry : top.entrySet()) {
+			int count = entry.getValue();
+			int frequency = real.get(entry.getKey().get());
+			assertThat(count - entry.getKey().error(), lessThanOrEqualTo(frequency));
+			assertThat(count + summary.samplingError(count), greaterThanOrEqualTo(frequency));
+		}
+		Estimate estimate = summary.estimate(1);
+		assertThat(estimate.monitored(), is(true));
+		assertThat(estimate.guaranteed(), lessThanOrEqualTo(real.get(1)));
+
+		// The most frequent element (by far) is still guaranteed:
+		assertThat(summary.mostFrequents().keySet(), hasItem(new SummaryElement<>(1)));
+		summary.mostFrequents().keySet().forEach(element ->
+				assertThat(real.get(element.get()), greaterThan(LENGTH / 1000)));
+
+		// A real heavy hitter is never missed, even if its sampled count is under the threshold:
+		double phi = 0.01;
+		Map<SummaryElement<Integer>, Integer> hitters = summary.heavyHitters(phi);
+		hitters.forEach((element, count) ->
+				assertThat(count + summary.samplingError(count), greaterThan((int) (phi * LENGTH))));
+		real.forEach((value, frequency) -> {
+			if (frequency > phi * LENGTH)
+				assertThat(hitters.keySet(), hasItem(new SummaryElement<>(value)));
+		});
+	}
+
+	private static int value(Random random) {
+		return (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+	}
+}
@@ -2,6 +2,7 @@ package com.akefirad.spacesaving;
 
 import com.akefirad.spacesaving.stream.CharacterStream;
 import com.akefirad.spacesaving.stream.SimpleStream;
+import com.akefirad.spacesaving.summary.Estimate;
 import com.akefirad.spacesaving.summary.SimpleStreamSummary;
 import com.akefirad.spacesaving.summary.StreamSummary;
 import com.akefirad.spacesaving.summary.SummaryElement;
@@ -145,4 +146,28 @@ public class TestSimpleStreamSummary {
 
 		assertThat(actual, equalTo(expected));
 	}
+
+	@Test
+	public void testTopKAndEstimates() {
+		logger.info("Verifying the top k, heavy hitters and estimates...");
+		Map<SummaryElement<Character>, Integer> frequencies = summary.frequencies();
+		Map<SummaryElement<Character>, Integer> topK = summary.topK(5);
+		assertThat(new ArrayList<>(topK.values()),
+				equalTo(new ArrayList<>(calculatedFrequencies.values()).subList(0, 5)));
+		topK.forEach((element, count) -> assertThat(frequencies.get(element), equalTo(count)));
+
+		double threshold = 0.05 * summary.total();
+		Set<SummaryElement<Character>> heavyHitters = frequencies.entrySet().stream()
+				.filter(entry -> entry.getValue() > threshold)
+				.map(Map.Entry::getKey)
+				.collect(toSet());
+		assertThat(summary.heavyHitters(0.05).keySet(), equalTo(heavyHitters));
+
+		frequencies.forEach((element, count) -> {
+			Estimate estimate = summary.estimate(element.get());
+			assertThat(estimate, equalTo(new Estimate(count, element.error(), true)));
+		});
+		uncountedElements.forEach(element ->
+				assertThat(summary.estimate(element), equalTo(new Estimate(minCount, minCount, false))));
+	}
 }
@@ -0,0 +1,201 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SnapshotStreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import com.akefirad.spacesaving.summary.SummarySnapshot;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSnapshotStreamSummary {
+	private static final Logger logger = getLogger(TestSnapshotStreamSummary.class);
+
+	private static final int SIZE = 50;
+	private static final int LENGTH = 200_000;
+
+	@Test
+	public void testSameAsLinked() {
+		logger.info("Verifying the summary against the linked summary...");
+		SnapshotStreamSummary<Integer> summary = new SnapshotStreamSummary<>(SIZE);
+		LinkedStreamSummary<Integer> expected = new LinkedStreamSummary<>(SIZE);
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH / 10; i++) {
+			int value = value(random);
+			summary.add(value);
+			expected.add(value);
+		}
+
+		assertThat(summary.total(), equalTo(expected.total()));
+		assertThat(summary.frequencies(), equalTo(expected.frequencies()));
+		expected.frequencies().keySet().forEach(element ->
+				assertThat(summary.estimate(element.get()), equalTo(expected.estimate(element.get()))));
+		// The same order (of the ties as well), optimistic or published:
+		assertThat(counters(summary.topK(10)), equalTo(counters(expected.topK(10))));
+		assertThat(counters(summary.sortedFrequencies()), equalTo(counters(expected.sortedFrequencies())));
+		assertThat(counters(summary.mostFrequents()), equalTo(counters(expected.mostFrequents())));
+
+		SnapshotStreamSummary<Integer> other = new SnapshotStreamSummary<>(SIZE);
+		other.addAll(new Integer[]{1, 2, 3}, new long[]{100, 10, 1});
+		summary.merge(other);
+		expected.merge(other);
+		assertThat(summary.total(), equalTo(expected.total()));
+		assertThat(counters(summary.sortedFrequencies()), equalTo(counters(expected.sortedFrequencies())));
+
+		// Merged with itself:
+		summary.merge(summary);
+		expected.merge(expected);
+		assertThat(summary.total(), equalTo(expected.total()));
+		assertThat(counters(summary.sortedFrequencies()), equalTo(counters(expected.sortedFrequencies())));
+	}
+
+	@Test(timeout = 10_000)
+	public void testMergeEachOther() throws Exception {
+		logger.info("Verifying two summaries merging each other...");
+		SnapshotStreamSummary<Integer> first = new SnapshotStreamSummary<>(SIZE);
+		SnapshotStreamSummary<Integer> second = new SnapshotStreamSummary<>(SIZE);
+		for (int i = 0; i < 100; i++) {
+			first.add(i);
+			second.add(i);
+		}
+		// The counts double with each round, so a few (lined up) rounds:
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> one = executor.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					barrier.await();
+					first.merge(second);
+				}
+				return null;
+			});
+			Future<?> other = executor.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					barrier.await();
+					second.merge(first);
+				}
+				return null;
+			});
+			one.get();
+			other.get();
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(first.snapshot().size(), equalTo(SIZE));
+	}
+
+	@Test
+	public void testOverflow() {
+		logger.info("Verifying the summary after an overflowing weight...");
+		TestWeightedStreamSummary.verifyOverflowLeavesUnchanged(new SnapshotStreamSummary<>(2), "a", "b", "c");
+	}
+
+	@Test
+	public void testConsistentSnapshots() throws Exception {
+		logger.info("Verifying the snapshots while the writers are adding...");
+		SnapshotStreamSummary<Integer> summary = new SnapshotStreamSummary<>(SIZE);
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int writer = 0; writer < 2; writer++) {
+				int seed = writer;
+				writers.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < LENGTH; i++)
+						summary.add(value(random), 1 + i % 3);
+				}));
+			}
+			Future<Integer> reader = executor.submit(() -> {
+				int snapshots = 0;
+				long previous = 0;
+				while (!done.get()) {
+					SummarySnapshot<Integer> snapshot = summary.snapshot();
+					// Every add increments exactly one counter, so a torn copy would not sum up:
+					long sum = 0;
+					int last = Integer.MAX_VALUE;
+					for (Map.Entry<SummaryElement<Integer>, Integer> entry : snapshot.sortedFrequencies().entrySet()) {
+						assertThat(entry.getValue(), lessThanOrEqualTo(last));
+						assertThat(entry.getKey().error(), lessThan(entry.getValue()));
+						last = entry.getValue();
+						sum += entry.getValue();
+					}
+					assertThat(sum, equalTo(snapshot.total()));
+					assertThat(snapshot.total(), greaterThanOrEqualTo(previous));
+					assertThat(snapshot.size(), lessThanOrEqualTo(SIZE));
+					previous = snapshot.total();
+					snapshots++;
+				}
+				return snapshots;
+			});
+
+			for (Future<?> writer : writers)
+				writer.get();
+			done.set(true);
+			logger.info("Took {} snapshots while adding.", reader.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		SummarySnapshot<Integer> snapshot = summary.snapshot();
+		assertThat(snapshot.total(), equalTo(summary.total()));
+		assertThat(snapshot.size(), equalTo(SIZE));
+	}
+
+	@Test
+	public void testConsistentHeavyHitters() throws Exception {
+		logger.info("Verifying the heavy hitters while the writers are adding...");
+		SnapshotStreamSummary<Integer> summary = new SnapshotStreamSummary<>(SIZE);
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// Two elements, added by turns, so at most one of them is more than half of the total:
+			Future<?> writer = executor.submit(() -> {
+				for (int i = 0; i < LENGTH * 5; i++)
+					summary.add(i % 2);
+			});
+			Future<Integer> reader = executor.submit(() -> {
+				int queries = 0;
+				while (!done.get()) {
+					// A total and counters of different moments would have both:
+					assertThat(summary.heavyHitters(0.5).size(), lessThanOrEqualTo(1));
+					queries++;
+				}
+				return queries;
+			});
+
+			writer.get();
+			done.set(true);
+			logger.info("Took {} heavy hitters while adding.", reader.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnlySnapshot() {
+		SnapshotStreamSummary<Integer> summary = new SnapshotStreamSummary<>(SIZE);
+		summary.add(1);
+		summary.snapshot().add(2);
+	}
+
+	private static <T> List<String> counters(Map<SummaryElement<T>, Integer> frequencies) {
+		List<String> counters = new ArrayList<>();
+		frequencies.forEach((element, count) -> counters.add(element.get() + ":" + count + ":" + element.error()));
+		return counters;
+	}
+
+	private static int value(Random random) {
+		return (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+	}
+}
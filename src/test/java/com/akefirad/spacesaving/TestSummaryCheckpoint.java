@@ -0,0 +1,209 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.checkpoint.Checkpointer;
+import com.akefirad.spacesaving.checkpoint.KeyCodec;
+import com.akefirad.spacesaving.checkpoint.SummaryCheckpoint;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.*;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSummaryCheckpoint {
+	private static final Logger logger = getLogger(TestSummaryCheckpoint.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		logger.info("Verifying a checkpoint of words...");
+		StreamSummary<String> summary = new LinkedStreamSummary<>(SIZE);
+		try (ByteTokenStream stream = new ByteTokenStream(resource())) {
+			while (stream.advance())
+				summary.addView(stream);
+		}
+
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try {
+			SummaryCheckpoint.write(summary, KeyCodec.strings(), file);
+			StreamSummary<String> restored = SummaryCheckpoint.read(file, KeyCodec.strings());
+			assertSameCounters(restored, summary);
+			assertThat(restored.capacity(), equalTo(SIZE));
+			assertThat(restored.total(), equalTo(summary.total()));
+
+			// The restored summary continues as the original one:
+			summary.add("the");
+			restored.add("the");
+			assertThat(restored.estimate("the"), equalTo(summary.estimate("the")));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testRestoreLongs() throws IOException {
+		logger.info("Verifying a checkpoint of longs...");
+		LongStreamSummary summary = new LongStreamSummary(SIZE);
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++)
+			summary.add((long) Math.pow(1000, random.nextDouble() * random.nextDouble()) - 500);
+
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try {
+			SummaryCheckpoint.write(summary, KeyCodec.longs(), file);
+			LongStreamSummary restored = new LongStreamSummary(SIZE);
+			SummaryCheckpoint.restore(file, KeyCodec.longs(), restored);
+			assertSameCounters(restored, summary);
+			assertThat(restored.total(), equalTo(summary.total()));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testRestoreInBulk() throws IOException {
+		logger.info("Verifying a checkpoint restored in to each summary...");
+		StreamSummary<String> summary = new LinkedStreamSummary<>(SIZE);
+		try (ByteTokenStream stream = new ByteTokenStream(resource())) {
+			while (stream.advance())
+				summary.addView(stream);
+		}
+
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try (OffHeapStreamSummary<String> offHeap = new OffHeapStreamSummary<>(SIZE, KeyCodec.strings())) {
+			SummaryCheckpoint.write(summary, KeyCodec.strings(), file);
+			for (StreamSummary<String> restored : Arrays.<StreamSummary<String>>asList(new SimpleStreamSummary<>(SIZE),
+					new DictionaryStreamSummary(SIZE), new SnapshotStreamSummary<>(SIZE), offHeap)) {
+				SummaryCheckpoint.restore(file, KeyCodec.strings(), restored);
+				assertSameCounters(restored, summary);
+				assertThat(restored.total(), equalTo(summary.total()));
+				summary.add("the");
+				restored.add("the");
+				assertThat(restored.estimate("the"), equalTo(summary.estimate("the")));
+				SummaryCheckpoint.write(summary, KeyCodec.strings(), file);
+			}
+
+			// A summary which isn't empty merges the checkpoint:
+			StreamSummary<String> merged = new LinkedStreamSummary<>(SIZE);
+			merged.add("the");
+			SummaryCheckpoint.restore(file, KeyCodec.strings(), merged);
+			assertThat(merged.total(), equalTo(summary.total() + 1));
+			assertThat(merged.estimate("the").count(), equalTo(summary.estimate("the").count() + 1));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testInvalidKey() throws IOException {
+		logger.info("Verifying a checkpoint with a key which can't be decoded...");
+		StreamSummary<byte[]> summary = new LinkedStreamSummary<>(SIZE);
+		summary.add(new byte[]{1, 2, 3});
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try {
+			SummaryCheckpoint.write(summary, KeyCodec.bytes(), file);
+			LongStreamSummary restored = new LongStreamSummary(SIZE);
+			try {
+				SummaryCheckpoint.restore(file, KeyCodec.longs(), restored);
+				throw new AssertionError("restored an invalid key!");
+			} catch (IOException e) {
+				assertThat(restored.total(), equalTo(0L));
+				assertThat(restored.frequencies().size(), equalTo(0));
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testByteKeys() {
+		byte[] key = {0, -1, 42, 127};
+		KeyCodec<byte[]> codec = KeyCodec.bytes();
+		assertThat(codec.decode(ByteBuffer.wrap(codec.encode(key))), equalTo(key));
+		assertThat(KeyCodec.strings().decode(ByteBuffer.wrap(KeyCodec.strings().encode("ünïcode"))),
+				equalTo("ünïcode"));
+
+		// Encoding in to a buffer is the same as to an array, even for malformed surrogates:
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		for (String text : Arrays.asList("", "ascii", "ünïcode", "\u20AC\uD83D\uDE00", "\uD83D", "a\uDE00b", "\uD83Dx")) {
+			buffer.clear();
+			byte[] bytes = KeyCodec.strings().encode(text);
+			assertThat(KeyCodec.strings().encode(text, buffer), equalTo(bytes.length));
+			assertThat(Arrays.copyOf(buffer.array(), buffer.position()), equalTo(bytes));
+		}
+		buffer.clear();
+		assertThat(KeyCodec.longs().encode(42L, buffer), equalTo(8));
+		assertThat(buffer.flip(), equalTo(ByteBuffer.wrap(KeyCodec.longs().encode(42L))));
+		// A key which doesn't fit leaves the buffer as it is:
+		buffer.clear();
+		assertThat(KeyCodec.strings().encode("a key longer than sixteen bytes", buffer), equalTo(31));
+		assertThat(buffer.position(), equalTo(0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorrupted() throws IOException {
+		logger.info("Verifying a corrupted checkpoint...");
+		StreamSummary<String> summary = new LinkedStreamSummary<>(SIZE);
+		summary.addAll(Arrays.asList("a", "b", "a"));
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try {
+			SummaryCheckpoint.write(summary, KeyCodec.strings(), file);
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[bytes.length - 1] ^= 1;
+			Files.write(file, bytes);
+			SummaryCheckpoint.read(file, KeyCodec.strings());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testCheckpointer() throws IOException {
+		logger.info("Verifying the background checkpoints...");
+		ConcurrentStreamSummary<String> summary = new ConcurrentStreamSummary<>(SIZE, 2);
+		Path file = Files.createTempFile("spacesaving", ".checkpoint");
+		try (Checkpointer<String> checkpointer = new Checkpointer<>(summary::snapshot,
+				KeyCodec.strings(), file, 1, TimeUnit.HOURS)) {
+			summary.add("a", 3);
+			summary.add("b", 2);
+			checkpointer.checkpoint();
+			summary.add("c");
+		}
+		try {
+			StreamSummary<String> restored = SummaryCheckpoint.read(file, KeyCodec.strings());
+			assertSameCounters(restored, summary);
+			assertThat(restored.total(), equalTo(6L));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static <T> void assertSameCounters(StreamSummary<T> actual, StreamSummary<T> expected) {
+		assertThat(actual.frequencies(), equalTo(expected.frequencies()));
+		Map<T, Integer> errors = new HashMap<>();
+		expected.frequencies().keySet().forEach(element -> errors.put(element.get(), element.error()));
+		actual.frequencies().keySet().forEach(element -> assertThat(element.error(), equalTo(errors.get(element.get()))));
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+}
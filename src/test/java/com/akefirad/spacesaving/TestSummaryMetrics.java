@@ -0,0 +1,104 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.metrics.Histogram;
+import com.akefirad.spacesaving.metrics.InstrumentedStreamSummary;
+import com.akefirad.spacesaving.metrics.StreamMetrics;
+import com.akefirad.spacesaving.metrics.SummaryMetrics;
+import com.akefirad.spacesaving.stream.ByteTokenStream;
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.SimpleStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.function.Supplier;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Optional.ofNullable;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSummaryMetrics {
+	private static final Logger logger = getLogger(TestSummaryMetrics.class);
+
+	private static final String LONG_TEXT = "crime-and-punishment.txt";
+	private static final int SIZE = 100;
+
+	@Test
+	public void testLinkedMetrics() throws IOException {
+		logger.info("Verifying the metrics of the linked summary...");
+		verifyMetrics(() -> new LinkedStreamSummary<>(SIZE));
+	}
+
+	@Test
+	public void testSimpleMetrics() throws IOException {
+		logger.info("Verifying the metrics of the simple summary...");
+		verifyMetrics(() -> new SimpleStreamSummary<>(SIZE));
+	}
+
+	@Test
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		for (int value = 0; value < 100; value++)
+			histogram.record(value);
+		assertThat(histogram.count(), equalTo(100L));
+		assertThat(histogram.percentile(0.01), equalTo(0L));
+		assertThat(histogram.percentile(0.5), equalTo(63L));
+		assertThat(histogram.percentile(1), equalTo(127L));
+	}
+
+	@Test
+	public void testJmx() throws JMException {
+		SummaryMetrics metrics = new SummaryMetrics();
+		metrics.onInsert(1);
+		metrics.onHit(2);
+		ObjectName name = metrics.register("test");
+		try {
+			assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Adds"), equalTo(2L));
+			assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Weight"), equalTo(3L));
+		} finally {
+			metrics.unregister(name);
+		}
+		assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name), is(false));
+	}
+
+	private static void verifyMetrics(Supplier<StreamSummary<String>> factory) throws IOException {
+		SummaryMetrics metrics = new SummaryMetrics();
+		StreamMetrics streamMetrics = new StreamMetrics();
+		StreamSummary<String> summary = new InstrumentedStreamSummary<>(factory.get(), metrics);
+		long tokens = 0;
+		try (ByteTokenStream stream = new ByteTokenStream(resource())) {
+			stream.setListener(streamMetrics);
+			while (stream.advance()) {
+				summary.addView(stream);
+				tokens++;
+			}
+		}
+
+		assertThat(streamMetrics.getTokens(), equalTo(tokens));
+		assertThat(metrics.getAdds(), equalTo(tokens));
+		assertThat(metrics.getWeight(), equalTo(summary.total()));
+		assertThat(metrics.getEvictions(), equalTo(metrics.getInserts() - SIZE));
+		assertThat(metrics.getEvictedCountP99(), greaterThan(0L));
+		// The live buckets are the distinct counts:
+		assertThat(metrics.getBucketsCreated() - metrics.getBucketsRemoved(),
+				equalTo((long) new HashSet<>(summary.frequencies().values()).size()));
+
+		summary.topK(10);
+		summary.estimate("the");
+		assertThat(metrics.getQueries(), equalTo(3L));
+		assertThat(metrics.snapshot().get("queries"), equalTo(3L));
+	}
+
+	private static InputStream resource() {
+		ClassLoader ccl = currentThread().getContextClassLoader();
+		return ofNullable(ccl.getResourceAsStream(LONG_TEXT)).orElseThrow(NullPointerException::new);
+	}
+}
@@ -0,0 +1,117 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.LinkedStreamSummary;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryRegistry;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSummaryRegistry {
+	private static final Logger logger = getLogger(TestSummaryRegistry.class);
+
+	private static final int SIZE = 20;
+	private static final int TENANTS = 50;
+
+	@Test
+	public void testSameAsLinked() {
+		logger.info("Verifying the tenants against linked summaries...");
+		SummaryRegistry<Integer, Integer> registry = new SummaryRegistry<>(SIZE, SummaryRegistry.memory(SIZE, TENANTS));
+		assertThat(registry.maxTenants(), equalTo(TENANTS));
+		Map<Integer, StreamSummary<Integer>> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++) {
+			int tenant = random.nextInt(TENANTS);
+			int value = (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+			long weight = 1 + random.nextInt(3);
+			registry.add(tenant, value, weight);
+			expected.computeIfAbsent(tenant, key -> new LinkedStreamSummary<>(SIZE)).add(value, weight);
+		}
+
+		assertThat(registry.tenants(), equalTo(TENANTS));
+		assertThat(registry.evictions(), equalTo(0L));
+		expected.forEach((tenant, summary) -> {
+			StreamSummary<Integer> actual = registry.summary(tenant);
+			assertThat(actual.total(), equalTo(summary.total()));
+			assertThat(actual.frequencies(), equalTo(summary.frequencies()));
+			assertThat(actual.mostFrequents(), equalTo(summary.mostFrequents()));
+			summary.frequencies().keySet().forEach(element ->
+					assertThat(actual.estimate(element.get()), equalTo(summary.estimate(element.get()))));
+			assertThat(actual.estimate(-1), equalTo(summary.estimate(-1)));
+		});
+
+		// Merging in to a tenant:
+		StreamSummary<Integer> other = new LinkedStreamSummary<>(SIZE);
+		other.add(-1, 1000);
+		registry.merge(0, other);
+		expected.get(0).merge(other);
+		assertThat(registry.summary(0).frequencies(), equalTo(expected.get(0).frequencies()));
+		assertThat(registry.total(0), equalTo(expected.get(0).total()));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUpdated() {
+		logger.info("Verifying the eviction of the idle tenants...");
+		SummaryRegistry<String, String> registry = new SummaryRegistry<>(SIZE, SummaryRegistry.memory(SIZE, 3));
+		assertThat(registry.maxTenants(), equalTo(3));
+		registry.add("a", "x");
+		registry.add("b", "x");
+		registry.add("c", "x");
+		registry.add("a", "y");
+		registry.add("d", "x");
+
+		assertThat(registry.contains("b"), is(false));
+		assertThat(registry.total("b"), equalTo(0L));
+		assertThat(registry.estimate("b", "x").monitored(), is(false));
+		assertThat(registry.evictions(), equalTo(1L));
+		assertThat(registry.tenants(), equalTo(3));
+		assertThat(registry.total("a"), equalTo(2L));
+
+		// A new tenant takes the (cleared) region of the oldest one:
+		registry.add("b", "z", 5);
+		assertThat(registry.contains("c"), is(false));
+		assertThat(registry.summary("b").frequencies().size(), equalTo(1));
+		assertThat(registry.estimate("b", "z").count(), equalTo(5));
+		assertThat(registry.estimate("b", "x").monitored(), is(false));
+
+		// A removed tenant frees its region:
+		assertThat(registry.remove("a"), is(true));
+		registry.add("e", "x");
+		assertThat(registry.evictions(), equalTo(2L));
+		assertThat(registry.tenants(), equalTo(3));
+
+		// Merging the (oldest) tenant in to a new one, evicting it while merging:
+		registry.merge("f", registry.summary("d"));
+		assertThat(registry.contains("d"), is(false));
+		assertThat(registry.total("f"), equalTo(1L));
+		assertThat(registry.estimate("f", "x").count(), equalTo(1));
+	}
+
+	@Test
+	public void testOverflow() {
+		logger.info("Verifying the registry after an overflowing weight...");
+		SummaryRegistry<String, String> registry = new SummaryRegistry<>(2, SummaryRegistry.memory(2, 1));
+		TestWeightedStreamSummary.verifyOverflowLeavesUnchanged(registry.summary("a"), "a", "b", "c");
+
+		// A new tenant isn't taken (evicting the other one) for a weight that can't fit:
+		try {
+			registry.add("b", "x", 3_000_000_000L);
+			throw new AssertionError("Expecting an overflow!");
+		} catch (ArithmeticException e) {
+			assertThat(registry.contains("a"), is(true));
+			assertThat(registry.evictions(), equalTo(0L));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMemoryTooSmall() {
+		new SummaryRegistry<String, String>(SIZE, SummaryRegistry.memory(SIZE, 1) - 1);
+	}
+}
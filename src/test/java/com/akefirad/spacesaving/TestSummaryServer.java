@@ -0,0 +1,177 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.server.LoadGenerator;
+import com.akefirad.spacesaving.server.SummaryServer;
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestSummaryServer {
+	private static final Logger logger = getLogger(TestSummaryServer.class);
+
+	private static final InetSocketAddress ANY = new InetSocketAddress("localhost", 0);
+	private static final int SIZE = 100;
+
+	@Test
+	public void testManyProducers() throws Exception {
+		logger.info("Verifying the server with many producers...");
+		int producers = 4;
+		int tokens = 20_000;
+		int distinct = 1_000;
+		try (SummaryServer server = new SummaryServer(SIZE, ANY, ANY, 10, TimeUnit.MILLISECONDS)) {
+			long sent = new LoadGenerator(server.ingestAddress(), producers, tokens, distinct, 42).run();
+			assertThat(sent, equalTo((long) producers * tokens));
+			StreamSummary<String> snapshot = await(server, sent);
+
+			// The real frequencies, replaying the producers:
+			Map<String, Integer> real = new HashMap<>();
+			for (int producer = 0; producer < producers; producer++) {
+				Random random = new Random(42 + producer);
+				for (int i = 0; i < tokens; i++)
+					real.merge(token(random, distinct), 1, Integer::sum);
+			}
+			for (Map.Entry<SummaryElement<String>, Integer> entry : snapshot.frequencies().entrySet()) {
+				int count = real.getOrDefault(entry.getKey().get(), 0);
+				assertThat(entry.getValue(), greaterThanOrEqualTo(count));
+				assertThat(entry.getValue() - entry.getKey().error(), lessThanOrEqualTo(count));
+			}
+			assertThat(snapshot.estimate("t0").monitored(), is(true));
+		}
+	}
+
+	@Test
+	public void testQueries() throws Exception {
+		logger.info("Verifying the queries...");
+		try (SummaryServer server = new SummaryServer(SIZE, ANY, ANY, 10, TimeUnit.MILLISECONDS);
+		     Socket producer = new Socket();
+		     Socket client = new Socket()) {
+			producer.connect(server.ingestAddress());
+			OutputStream output = producer.getOutputStream();
+			// A token split between writes:
+			for (String part : new String[]{"a b\nc A\nhel", "lo a\n", "hello b a b"}) {
+				output.write(part.getBytes(UTF_8));
+				output.flush();
+				Thread.sleep(20);
+			}
+			producer.close();
+			await(server, 10);
+
+			client.connect(server.queryAddress());
+			BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), UTF_8));
+			Writer writer = new OutputStreamWriter(client.getOutputStream(), UTF_8);
+
+			assertThat(query("TOPK 2", writer, reader), contains("a 4 0", "b 3 0"));
+			assertThat(query("estimate HELLO", writer, reader), contains("2 0 true"));
+			assertThat(query("ESTIMATE x", writer, reader), contains("0 0 false"));
+			assertThat(query("SNAPSHOT", writer, reader), hasItems("total 10", "a 4 0", "c 1 0"));
+			assertThat(query("SNAPSHOT", writer, reader).size(), equalTo(5));
+			assertThat(query("TOPK two", writer, reader).get(0), startsWith("ERROR"));
+			assertThat(query("FOO", writer, reader).get(0), startsWith("ERROR"));
+		}
+	}
+
+	@Test
+	public void testPipelinedQueries() throws Exception {
+		logger.info("Verifying pipelined queries, answered as they are read...");
+		try (SummaryServer server = new SummaryServer(SIZE, ANY, ANY, 10, TimeUnit.MILLISECONDS);
+		     Socket producer = new Socket();
+		     Socket client = new Socket()) {
+			producer.connect(server.ingestAddress());
+			StringBuilder tokens = new StringBuilder();
+			for (int i = 0; i < SIZE; i++)
+				tokens.append("token").append(i).append('\n');
+			producer.getOutputStream().write(tokens.toString().getBytes(UTF_8));
+			producer.close();
+			await(server, SIZE);
+
+			// More requests (and answers) than the buffers, before reading any answer:
+			client.connect(server.queryAddress());
+			int requests = 2_000;
+			OutputStream output = client.getOutputStream();
+			Thread writer = new Thread(() -> {
+				try {
+					for (int i = 0; i < requests; i++)
+						output.write("SNAPSHOT\n".getBytes(UTF_8));
+					output.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			writer.start();
+			Thread.sleep(100);
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), UTF_8));
+			for (int i = 0; i < requests; i++) {
+				List<String> lines = new ArrayList<>();
+				for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine())
+					lines.add(line);
+				assertThat(lines.get(0), equalTo("total " + SIZE));
+				assertThat(lines.size(), equalTo(SIZE + 1));
+			}
+			writer.join(TimeUnit.SECONDS.toMillis(10));
+		}
+	}
+
+	@Test
+	public void testTooLongToken() throws Exception {
+		logger.info("Verifying a token longer than the buffer...");
+		try (SummaryServer server = new SummaryServer(SIZE, ANY, ANY, 10, TimeUnit.MILLISECONDS);
+		     Socket producer = new Socket()) {
+			producer.connect(server.ingestAddress());
+			OutputStream output = producer.getOutputStream();
+			output.write("a ".getBytes(UTF_8));
+			byte[] chunk = new byte[50_000];
+			Arrays.fill(chunk, (byte) 'x');
+			// A (dropped) token of a megabyte, then the rest:
+			for (int i = 0; i < 20; i++)
+				output.write(chunk);
+			output.write(" b a\n".getBytes(UTF_8));
+			producer.close();
+
+			StreamSummary<String> snapshot = await(server, 3);
+			assertThat(snapshot.frequencies().size(), equalTo(2));
+			assertThat(snapshot.estimate("a").count(), equalTo(2));
+			assertThat(snapshot.estimate("b").count(), equalTo(1));
+		}
+	}
+
+	private static String token(Random random, int distinct) {
+		// The same as the load generator:
+		int rank = (int) Math.pow(distinct + 1, random.nextDouble()) - 1;
+		return "t" + Math.min(rank, distinct - 1);
+	}
+
+	private static StreamSummary<String> await(SummaryServer server, long total) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (server.snapshot().total() < total && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		assertThat(server.snapshot().total(), equalTo(total));
+		return server.snapshot();
+	}
+
+	private static List<String> query(String request, Writer writer, BufferedReader reader) throws IOException {
+		writer.write(request + "\n");
+		writer.flush();
+		List<String> lines = new ArrayList<>();
+		for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine())
+			lines.add(line);
+		return lines;
+	}
+}
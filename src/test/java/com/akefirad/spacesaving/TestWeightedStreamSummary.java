@@ -0,0 +1,136 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.*;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestWeightedStreamSummary {
+	private static final Logger logger = getLogger(TestWeightedStreamSummary.class);
+
+	private static final int SIZE = 30;
+	private static final int LENGTH = 50_000;
+
+	@Test
+	public void testLinkedWeightedSameAsRepeated() {
+		logger.info("Verifying weighted adds of the linked summary...");
+		verifyWeightedSameAsRepeated(() -> new LinkedStreamSummary<>(SIZE));
+	}
+
+	@Test
+	public void testLongWeightedSameAsRepeated() {
+		logger.info("Verifying weighted adds of the long summary...");
+		verifyWeightedSameAsRepeated(() -> new LongStreamSummary(SIZE));
+	}
+
+	@Test
+	public void testSimpleWeightedBounds() {
+		logger.info("Verifying weighted adds of the simple summary...");
+		StreamSummary<Long> summary = new SimpleStreamSummary<>(SIZE);
+		Map<Long, Integer> real = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			long value = skewed(random);
+			int weight = 1 + random.nextInt(5);
+			summary.add(value, weight);
+			real.merge(value, weight, Integer::sum);
+		}
+
+		summary.frequencies().forEach((element, count) -> {
+			assertThat(count, greaterThanOrEqualTo(real.get(element.get())));
+			assertThat(count - element.error(), lessThanOrEqualTo(real.get(element.get())));
+		});
+	}
+
+	@Test
+	public void testAddAll() {
+		logger.info("Verifying batch adds...");
+		StreamSummary<String> summary = new ConcurrentStreamSummary<>(SIZE, 2);
+		summary.addAll(Arrays.asList("a", "b", "a", "c", "a"));
+		summary.addAll(new String[]{"b", "d", "b"}, new long[]{2, 7, 3});
+
+		Map<String, Integer> counts = new HashMap<>();
+		summary.frequencies().forEach((element, count) -> counts.put(element.get(), count));
+		assertThat(counts, equalTo(new HashMap<String, Integer>() {{
+			put("a", 3);
+			put("b", 6);
+			put("c", 1);
+			put("d", 7);
+		}}));
+	}
+
+	@Test
+	public void testOverflowLeavesSummaryUnchanged() {
+		logger.info("Verifying the summaries after an overflowing weight...");
+		verifyOverflowLeavesUnchanged(new LinkedStreamSummary<>(2), "a", "b", "c");
+		verifyOverflowLeavesUnchanged(new SimpleStreamSummary<>(2), "a", "b", "c");
+		verifyOverflowLeavesUnchanged(new LongStreamSummary(2), 1L, 2L, 3L);
+		verifyOverflowLeavesUnchanged(new IntStreamSummary(2), 1, 2, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveWeight() {
+		new LinkedStreamSummary<String>(SIZE).add("a", 0);
+	}
+
+	private static void verifyWeightedSameAsRepeated(Supplier<StreamSummary<Long>> factory) {
+		StreamSummary<Long> weighted = factory.get();
+		StreamSummary<Long> repeated = factory.get();
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			long value = skewed(random);
+			int weight = 1 + random.nextInt(5);
+			weighted.add(value, weight);
+			for (int w = 0; w < weight; w++)
+				repeated.add(value);
+		}
+
+		assertThat(weighted.sortedFrequencies(), equalTo(repeated.sortedFrequencies()));
+		assertThat(new ArrayList<>(weighted.sortedFrequencies().values()),
+				equalTo(new ArrayList<>(repeated.sortedFrequencies().values())));
+		Map<Long, Integer> errors = new HashMap<>();
+		repeated.frequencies().keySet().forEach(element -> errors.put(element.get(), element.error()));
+		weighted.frequencies().keySet().forEach(element ->
+				assertThat(element.error(), equalTo(errors.get(element.get()))));
+	}
+
+	/**
+	 * Overflows a new element (with some space), an existing element, and a new element
+	 * (without space) of a summary of size two, and verifies nothing is changed.
+	 */
+	static <T> void verifyOverflowLeavesUnchanged(StreamSummary<T> summary, T a, T b, T c) {
+		summary.add(a);
+		verifyOverflowLeavesUnchanged(summary, b, 3_000_000_000L);
+		summary.add(b);
+		verifyOverflowLeavesUnchanged(summary, a, Integer.MAX_VALUE);
+		verifyOverflowLeavesUnchanged(summary, c, Integer.MAX_VALUE);
+		summary.add(c, 2);
+		assertThat(summary.total(), equalTo(4L));
+		assertThat(summary.sortedFrequencies().values(), contains(3, 1));
+	}
+
+	private static <T> void verifyOverflowLeavesUnchanged(StreamSummary<T> summary, T element, long weight) {
+		long total = summary.total();
+		Map<SummaryElement<T>, Integer> frequencies = new HashMap<>(summary.frequencies());
+		Estimate estimate = summary.estimate(element);
+		try {
+			summary.add(element, weight);
+			throw new AssertionError("Expecting an overflow!");
+		} catch (ArithmeticException e) {
+			assertThat(summary.total(), equalTo(total));
+			assertThat(summary.frequencies(), equalTo(frequencies));
+			assertThat(summary.estimate(element), equalTo(estimate));
+		}
+	}
+
+	private static long skewed(Random random) {
+		// Roughly Zipfian: small values are much more frequent
+		return (long) Math.pow(500, random.nextDouble() * random.nextDouble());
+	}
+}
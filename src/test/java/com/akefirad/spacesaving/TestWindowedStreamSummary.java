@@ -0,0 +1,82 @@
+package com.akefirad.spacesaving;
+
+import com.akefirad.spacesaving.summary.StreamSummary;
+import com.akefirad.spacesaving.summary.SummaryElement;
+import com.akefirad.spacesaving.summary.WindowedStreamSummary;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class TestWindowedStreamSummary {
+	private static final Logger logger = getLogger(TestWindowedStreamSummary.class);
+
+	private static final int SIZE = 50;
+	private static final int EPOCHS = 4;
+	private static final int EPOCH_LENGTH = 10_000;
+	private static final int LENGTH = 105_000;
+
+	@Test
+	public void testCountWindowBounds() {
+		logger.info("Verifying the bounds of a count window...");
+		StreamSummary<Integer> summary = new WindowedStreamSummary<>(SIZE, EPOCHS, EPOCH_LENGTH);
+		int[] stream = new int[LENGTH];
+		Random random = new Random(42);
+		for (int i = 0; i < LENGTH; i++) {
+			// The distribution shifts along the stream:
+			stream[i] = (i / 20_000) * 1000 + (int) Math.pow(1000, random.nextDouble() * random.nextDouble());
+			summary.add(stream[i]);
+		}
+
+		// The window is the last complete epochs, plus the current one:
+		int window = (EPOCHS - 1) * EPOCH_LENGTH + (LENGTH % EPOCH_LENGTH == 0 ? EPOCH_LENGTH : LENGTH % EPOCH_LENGTH);
+		Map<Integer, Integer> real = new HashMap<>();
+		for (int i = LENGTH - window; i < LENGTH; i++)
+			real.merge(stream[i], 1, Integer::sum);
+
+		assertThat(summary.total(), equalTo((long) window));
+		assertThat(summary.frequencies().size(), equalTo(SIZE));
+		summary.frequencies().forEach((element, count) -> {
+			int frequency = real.getOrDefault(element.get(), 0);
+			assertThat(count, greaterThanOrEqualTo(frequency));
+			assertThat(count - element.error(), lessThanOrEqualTo(frequency));
+		});
+		// The early (expired) part of the stream is gone:
+		summary.frequencies().keySet().stream().map(SummaryElement::get)
+				.forEach(element -> assertThat(element, greaterThanOrEqualTo(3000)));
+	}
+
+	@Test
+	public void testTimeWindowExpires() {
+		logger.info("Verifying the expiry of a time window...");
+		AtomicLong clock = new AtomicLong(SECONDS.toNanos(-1));
+		StreamSummary<String> summary = new WindowedStreamSummary<>(SIZE, 5, 1, MINUTES, clock::get);
+		summary.add("old", 100);
+		clock.addAndGet(MINUTES.toNanos(2));
+		summary.add("new", 10);
+
+		assertThat(summary.topK(1).keySet().iterator().next().get(), equalTo("old"));
+		assertThat(summary.estimate("old").count(), equalTo(100));
+		assertThat(summary.total(), equalTo(110L));
+
+		// After 4 more minutes, only the epoch of "new" is left in the window:
+		clock.addAndGet(MINUTES.toNanos(4));
+		assertThat(summary.estimate("old").count(), equalTo(0));
+		assertThat(summary.estimate("new").count(), equalTo(10));
+		assertThat(summary.total(), equalTo(10L));
+
+		// After a long idle time, everything is expired:
+		clock.addAndGet(MINUTES.toNanos(60));
+		assertThat(summary.frequencies().isEmpty(), is(true));
+		assertThat(summary.total(), equalTo(0L));
+	}
+}